@@ -0,0 +1,491 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+
+/**
+ * Overhead of {@link XemblyMojos} and {@link XemblyProjects} per
+ * callback, in one thread and in many threads at once.
+ *
+ * <p>Every operation is a full step: start and success of a mojo or
+ * a project, or a skipped mojo. Directives go to {@link SinkEmitter},
+ * either directly or through {@link AsyncEmitter}, so stdout is not
+ * measured.
+ *
+ * <p>Benchmarks {@code chain} and {@code chainContended} run mojos
+ * through the chain that {@link StepsMojo} injects by default: the
+ * snapshot in memory, watched steps, breakdown, startup and downloads,
+ * with or without forecasts from history. Since the snapshot grows
+ * with every step, every iteration there is a build of {@link #MOJOS}
+ * distinct mojos in every thread, with its own listeners, and its time
+ * is measured as a whole.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle VisibilityModifier (500 lines)
+ * @checkstyle DesignForExtension (500 lines)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("PMD.SystemPrintln")
+public class ListenersBench {
+
+    /**
+     * Threads in contended benchmarks.
+     */
+    private static final int CONTENDED = 8;
+
+    /**
+     * Mojos in a build of one thread, in chain benchmarks.
+     */
+    private static final int MOJOS = 200;
+
+    /**
+     * Capacity of the async queue, as {@code rultor.async.capacity}
+     * by default.
+     */
+    private static final int CAPACITY = 4096;
+
+    /**
+     * Mojo, one start and one success.
+     * @param lst Listeners
+     * @param evt Events of this thread
+     */
+    @Benchmark
+    @Threads(1)
+    public void mojo(final ListenersBench.Listeners lst,
+        final ListenersBench.Events evt) {
+        lst.mojos.mojoStarted(evt.mojo);
+        lst.mojos.mojoSucceeded(evt.mojo);
+    }
+
+    /**
+     * Mojo, one start and one success, many threads.
+     * @param lst Listeners
+     * @param evt Events of this thread
+     */
+    @Benchmark
+    @Threads(ListenersBench.CONTENDED)
+    public void mojoContended(final ListenersBench.Listeners lst,
+        final ListenersBench.Events evt) {
+        lst.mojos.mojoStarted(evt.mojo);
+        lst.mojos.mojoSucceeded(evt.mojo);
+    }
+
+    /**
+     * Skipped mojo.
+     * @param lst Listeners
+     * @param evt Events of this thread
+     */
+    @Benchmark
+    @Threads(1)
+    public void mojoSkipped(final ListenersBench.Listeners lst,
+        final ListenersBench.Events evt) {
+        lst.mojos.mojoSkipped(evt.mojo);
+    }
+
+    /**
+     * Project, one start and one success.
+     * @param lst Listeners
+     * @param evt Events of this thread
+     */
+    @Benchmark
+    @Threads(1)
+    public void project(final ListenersBench.Listeners lst,
+        final ListenersBench.Events evt) {
+        lst.projects.projectStarted(evt.project);
+        lst.projects.projectSucceeded(evt.project);
+    }
+
+    /**
+     * Project, one start and one success, many threads.
+     * @param lst Listeners
+     * @param evt Events of this thread
+     */
+    @Benchmark
+    @Threads(ListenersBench.CONTENDED)
+    public void projectContended(final ListenersBench.Listeners lst,
+        final ListenersBench.Events evt) {
+        lst.projects.projectStarted(evt.project);
+        lst.projects.projectSucceeded(evt.project);
+    }
+
+    /**
+     * Mojo through the default chain, a build of mojos.
+     * @param chn Chain of listeners
+     * @param bld Build of this thread
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = ListenersBench.MOJOS)
+    @Measurement(iterations = 10, batchSize = ListenersBench.MOJOS)
+    @Threads(1)
+    public void chain(final ListenersBench.Chain chn,
+        final ListenersBench.Build bld) {
+        final ExecutionEvent mojo = bld.next();
+        chn.listener.mojoStarted(mojo);
+        chn.listener.mojoSucceeded(mojo);
+    }
+
+    /**
+     * Mojo through the default chain, a build of mojos, many threads.
+     * @param chn Chain of listeners
+     * @param bld Build of this thread
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = ListenersBench.MOJOS)
+    @Measurement(iterations = 10, batchSize = ListenersBench.MOJOS)
+    @Threads(ListenersBench.CONTENDED)
+    public void chainContended(final ListenersBench.Chain chn,
+        final ListenersBench.Build bld) {
+        final ExecutionEvent mojo = bld.next();
+        chn.listener.mojoStarted(mojo);
+        chn.listener.mojoSucceeded(mojo);
+    }
+
+    /**
+     * Listeners under test, shared by all threads.
+     */
+    @State(Scope.Benchmark)
+    public static class Listeners {
+        /**
+         * Reporting of steps, "live" or "compact".
+         */
+        @Param({ "live", "compact" })
+        public String steps;
+        /**
+         * Emitter, "sync" or "async".
+         */
+        @Param({ "sync", "async" })
+        public String emitter;
+        /**
+         * Listener of mojos.
+         */
+        public ExecutionListener mojos;
+        /**
+         * Listener of projects.
+         */
+        public ExecutionListener projects;
+        /**
+         * Emitters to close.
+         */
+        private Emitter[] emitters;
+        /**
+         * Steps to close.
+         */
+        private Steps[] reporters;
+        /**
+         * Make listeners.
+         */
+        @Setup(Level.Trial)
+        public void setup() {
+            this.emitters = new Emitter[] {this.emitter(), this.emitter()};
+            this.reporters = new Steps[] {
+                this.steps(this.emitters[0]), this.steps(this.emitters[1]),
+            };
+            this.mojos = new XemblyMojos(
+                new QuietListener(), this.emitters[0], this.reporters[0]
+            );
+            this.projects = new XemblyProjects(
+                new QuietListener(), this.emitters[1], this.reporters[1]
+            );
+        }
+        /**
+         * Close listeners.
+         */
+        @TearDown(Level.Trial)
+        public void close() {
+            for (int idx = 0; idx < this.emitters.length; ++idx) {
+                this.reporters[idx].close();
+                this.emitters[idx].close();
+            }
+        }
+        /**
+         * Make emitter.
+         * @return Emitter
+         */
+        private Emitter emitter() {
+            Emitter emt = new SinkEmitter();
+            if ("async".equals(this.emitter)) {
+                emt = new AsyncEmitter(
+                    emt, ListenersBench.CAPACITY,
+                    AsyncEmitter.Overflow.BLOCK
+                );
+            }
+            return emt;
+        }
+        /**
+         * Make steps.
+         * @param emt Emitter
+         * @return Steps
+         */
+        private Steps steps(final Emitter emt) {
+            final Steps stps;
+            if ("compact".equals(this.steps)) {
+                stps = new CompactSteps(emt, 0L);
+            } else {
+                stps = new LiveSteps(emt);
+            }
+            return stps;
+        }
+    }
+
+    /**
+     * Events of one thread, in its own project and execution.
+     */
+    @State(Scope.Thread)
+    public static class Events {
+        /**
+         * Numbers of threads.
+         */
+        private static final AtomicInteger THREADS = new AtomicInteger();
+        /**
+         * Mojo event.
+         */
+        public ExecutionEvent mojo;
+        /**
+         * Project event.
+         */
+        public ExecutionEvent project;
+        /**
+         * Make events.
+         */
+        @Setup(Level.Trial)
+        public void setup() {
+            final int thread = ListenersBench.Events.THREADS.incrementAndGet();
+            final MavenProject prj = new MavenProject();
+            prj.setGroupId("com.example");
+            prj.setArtifactId(String.format("module-%d", thread));
+            prj.setVersion("1.0");
+            final Plugin plugin = new Plugin();
+            plugin.setGroupId("org.apache.maven.plugins");
+            plugin.setArtifactId("maven-compiler-plugin");
+            plugin.setVersion("3.1");
+            final MojoExecution exec = new MojoExecution(
+                plugin, "compile", String.format("default-compile-%d", thread)
+            );
+            this.mojo = new FakeEvent(
+                ExecutionEvent.Type.MojoStarted, prj, exec
+            );
+            this.project = new FakeEvent(
+                ExecutionEvent.Type.ProjectStarted, prj, null
+            );
+        }
+    }
+
+    /**
+     * Default chain of listeners, as injected by {@link StepsMojo},
+     * new in every iteration.
+     */
+    @State(Scope.Benchmark)
+    public static class Chain {
+        /**
+         * Emitter, "sync" or "async".
+         */
+        @Param({ "sync", "async" })
+        public String emitter;
+        /**
+         * Steps, "default" or with forecasts from "history".
+         */
+        @Param({ "default", "history" })
+        public String steps;
+        /**
+         * Listener on top of the chain.
+         */
+        public ExecutionListener listener;
+        /**
+         * Folder with snapshot, history and thread dumps.
+         */
+        private File dir;
+        /**
+         * Make folder.
+         * @throws IOException If fails
+         */
+        @Setup(Level.Trial)
+        public void folder() throws IOException {
+            this.dir = File.createTempFile("rultor", ".bench");
+            if (!this.dir.delete() || !this.dir.mkdirs()) {
+                throw new IOException(
+                    String.format("can't create %s", this.dir)
+                );
+            }
+        }
+        /**
+         * Make listeners, in the order of {@link StepsMojo}.
+         * @throws IOException If fails
+         */
+        @Setup(Level.Iteration)
+        public void setup() throws IOException {
+            Emitter emt = new SnapshotEmitter(
+                new SinkEmitter(), new File(this.dir, "snapshot.xml"), 0L
+            );
+            if ("async".equals(this.emitter)) {
+                emt = new AsyncEmitter(
+                    emt, ListenersBench.CAPACITY,
+                    AsyncEmitter.Overflow.BLOCK
+                );
+            }
+            Steps stps = new LiveSteps(emt);
+            if ("history".equals(this.steps)) {
+                stps = new ForecastSteps(
+                    stps, emt, new History(new File(this.dir, "history"))
+                );
+            }
+            stps = new WatchedSteps(
+                stps, emt, this.dir, TimeUnit.MINUTES.toMillis(10L),
+                TimeUnit.MINUTES.toMillis(30L)
+            );
+            ExecutionListener lst = new XemblyMojos(
+                new QuietListener(), emt, stps
+            );
+            lst = new BreakdownListener(lst, emt);
+            final long now = System.currentTimeMillis();
+            lst = new StartupListener(
+                lst, emt,
+                new Startup(
+                    now, now, now, Collections.<MavenProject>emptyList()
+                )
+            );
+            this.listener = new DownloadsListener(
+                lst, emt,
+                new MavenSession(
+                    null, new DefaultRepositorySystemSession(),
+                    new DefaultMavenExecutionRequest(),
+                    new DefaultMavenExecutionResult()
+                )
+            );
+        }
+        /**
+         * End the build, which closes steps and emitters.
+         */
+        @TearDown(Level.Iteration)
+        public void close() {
+            final MavenProject prj = new MavenProject();
+            prj.setGroupId("com.example");
+            prj.setArtifactId("parent");
+            this.listener.sessionEnded(
+                new FakeEvent(ExecutionEvent.Type.SessionEnded, prj, null)
+            );
+        }
+    }
+
+    /**
+     * Build of one thread, distinct mojos in its own project.
+     */
+    @State(Scope.Thread)
+    public static class Build {
+        /**
+         * Numbers of threads.
+         */
+        private static final AtomicInteger THREADS = new AtomicInteger();
+        /**
+         * Mojo events.
+         */
+        private ExecutionEvent[] mojos;
+        /**
+         * Position of the next mojo.
+         */
+        private int pos;
+        /**
+         * Make events.
+         */
+        @Setup(Level.Trial)
+        public void setup() {
+            final int thread = ListenersBench.Build.THREADS.incrementAndGet();
+            final MavenProject prj = new MavenProject();
+            prj.setGroupId("com.example");
+            prj.setArtifactId(String.format("build-%d", thread));
+            prj.setVersion("1.0");
+            final Plugin plugin = new Plugin();
+            plugin.setGroupId("org.apache.maven.plugins");
+            plugin.setArtifactId("maven-antrun-plugin");
+            plugin.setVersion("1.7");
+            this.mojos = new ExecutionEvent[ListenersBench.MOJOS];
+            for (int idx = 0; idx < this.mojos.length; ++idx) {
+                this.mojos[idx] = new FakeEvent(
+                    ExecutionEvent.Type.MojoStarted, prj,
+                    new MojoExecution(
+                        plugin, "run", String.format("execution-%d", idx)
+                    )
+                );
+            }
+        }
+        /**
+         * Start the build over.
+         */
+        @Setup(Level.Iteration)
+        public void rewind() {
+            this.pos = 0;
+        }
+        /**
+         * Next mojo of the build.
+         * @return Event
+         */
+        public ExecutionEvent next() {
+            final ExecutionEvent mojo = this.mojos[this.pos];
+            this.pos = (this.pos + 1) % this.mojos.length;
+            return mojo;
+        }
+    }
+
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeSet;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link ListenersBench} with GC profiler and compares the results
+ * with a baseline.
+ *
+ * <p>Baseline is a properties file, where every benchmark (with its
+ * parameters) has its time in ns/op and its allocation in bytes/op.
+ * If the file is absent, it is created and nothing is compared. If any
+ * of the numbers is worse than the baseline by more than the threshold
+ * (0.2 means 20%), the process exits with code 1. System properties:
+ * {@code rultor.baseline} (path to the file, "baseline.properties" by
+ * default), {@code rultor.threshold} (0.2 by default) and
+ * {@code rultor.rebase} (overwrite the baseline anyway).
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@SuppressWarnings("PMD.SystemPrintln")
+public final class Regression {
+
+    /**
+     * Normalized allocation rate, reported by GC profiler.
+     */
+    private static final String ALLOC = "gc.alloc.rate.norm";
+
+    /**
+     * Utility class.
+     */
+    private Regression() {
+        // intentionally empty
+    }
+
+    /**
+     * Entry point.
+     * @param args Command line arguments, ignored
+     * @throws RunnerException If JMH fails
+     * @throws IOException If baseline can't be read or written
+     */
+    public static void main(final String... args)
+        throws RunnerException, IOException {
+        final File file = new File(
+            System.getProperty("rultor.baseline", "baseline.properties")
+        );
+        final double threshold = Double.parseDouble(
+            System.getProperty("rultor.threshold", "0.2")
+        );
+        final Collection<RunResult> results = new Runner(
+            new OptionsBuilder()
+                .include(ListenersBench.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()
+        ).run();
+        final Properties after = new Properties();
+        for (final RunResult result : results) {
+            final String key = Regression.key(result.getParams());
+            after.setProperty(
+                String.format("%s.ns", key),
+                Double.toString(result.getPrimaryResult().getScore())
+            );
+            final Result<?> alloc = Regression.alloc(result);
+            if (alloc != null) {
+                after.setProperty(
+                    String.format("%s.bytes", key),
+                    Double.toString(alloc.getScore())
+                );
+            }
+        }
+        final List<String> worse = new ArrayList<String>(0);
+        if (file.exists()) {
+            final Properties before = Regression.load(file);
+            for (final String name : new TreeSet<String>(
+                after.stringPropertyNames())) {
+                final String base = before.getProperty(name);
+                if (base == null) {
+                    continue;
+                }
+                final double was = Double.parseDouble(base);
+                final double now = Double.parseDouble(after.getProperty(name));
+                final String line = String.format(
+                    Locale.ENGLISH, "%s: %.1f -> %.1f (%+.1f%%)",
+                    name, was, now, Regression.delta(was, now) * 100.0d
+                );
+                System.out.println(line);
+                if (Regression.delta(was, now) > threshold) {
+                    worse.add(line);
+                }
+            }
+        }
+        if (!file.exists() || Boolean.getBoolean("rultor.rebase")) {
+            Regression.save(after, file);
+            System.out.printf("Baseline saved to %s%n", file);
+        }
+        if (!worse.isEmpty()) {
+            System.out.printf(
+                "%d regression(s) above %.0f%%:%n",
+                worse.size(), threshold * 100.0d
+            );
+            for (final String line : worse) {
+                System.out.println(line);
+            }
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Relative change.
+     * @param was Before
+     * @param now After
+     * @return Change, 0.1 means 10% worse
+     */
+    private static double delta(final double was, final double now) {
+        final double change;
+        if (was <= 0.0d) {
+            change = 0.0d;
+        } else {
+            change = (now - was) / was;
+        }
+        return change;
+    }
+
+    /**
+     * Allocation result of the run.
+     * @param result Result of the run
+     * @return Allocation in bytes per operation or NULL
+     */
+    private static Result<?> alloc(final RunResult result) {
+        Result<?> alloc = null;
+        for (final String name : result.getSecondaryResults().keySet()) {
+            if (name.endsWith(Regression.ALLOC)) {
+                alloc = result.getSecondaryResults().get(name);
+            }
+        }
+        return alloc;
+    }
+
+    /**
+     * Unique key of the benchmark and its parameters.
+     * @param params Parameters of the run
+     * @return Key
+     */
+    private static String key(final BenchmarkParams params) {
+        final StringBuilder key = new StringBuilder(params.getBenchmark());
+        for (final String name : params.getParamsKeys()) {
+            key.append('.').append(name).append('=')
+                .append(params.getParam(name));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Load properties.
+     * @param file File to read
+     * @return Properties
+     * @throws IOException If fails
+     */
+    private static Properties load(final File file) throws IOException {
+        final Properties props = new Properties();
+        final InputStream input = new FileInputStream(file);
+        try {
+            props.load(input);
+        } finally {
+            input.close();
+        }
+        return props;
+    }
+
+    /**
+     * Save properties.
+     * @param props Properties
+     * @param file File to write
+     * @throws IOException If fails
+     */
+    private static void save(final Properties props, final File file)
+        throws IOException {
+        final OutputStream output = new FileOutputStream(file);
+        try {
+            props.store(output, "rultor-maven-plugin listener overhead");
+        } finally {
+            output.close();
+        }
+    }
+
+}
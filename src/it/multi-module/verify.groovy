@@ -35,8 +35,18 @@ import org.hamcrest.MatcherAssert
 MatcherAssert.assertThat(
     new Snapshot(new FileInputStream(new File(basedir, 'build.log'))).xml(),
     XhtmlMatchers.hasXPaths(
-        '/snapshot/steps[count(step) = 2]',
-        '/snapshot/steps/step[@id="com.rultor:first"]',
-        '/snapshot/steps/step[@id="com.rultor:second"]'
+        '/snapshot/steps[count(step[contains(@id, ":") and not(contains(@id, "/"))]) = 2]',
+        '/snapshot/steps/step[@id="com.rultor:first"]/mojos/mojo',
+        '/snapshot/steps/step[@id="com.rultor:second"]',
+        '/snapshot/steps/step[@id="critical-path"]/reactor[count(project) = 2]',
+        '/snapshot/steps/step[@id="advice"]/threads[count(simulation) = 2]'
+    )
+)
+
+MatcherAssert.assertThat(
+    new File(basedir, 'target/rultor-snapshot.xml').text,
+    XhtmlMatchers.hasXPaths(
+        '/snapshot/steps[count(step[contains(@id, ":") and not(contains(@id, "/"))]) = 2]',
+        '/snapshot/steps/step[@id="critical-path"]/reactor[count(project) = 2]'
     )
 )
@@ -39,6 +39,16 @@ MatcherAssert.assertThat(
         '/snapshot/steps/step/summary',
         '/snapshot/steps/step/duration',
         '/snapshot/steps/step/finish',
+        '//step[contains(summary, "maven-surefire-plugin")]',
+        '/snapshot/steps/step[@id="breakdown"]/phases/phase[@id="test"]',
+        '//step[@id="breakdown"]/plugins/plugin[@id="maven-surefire-plugin:test" and @p95]'
+    )
+)
+
+MatcherAssert.assertThat(
+    new File(basedir, 'target/rultor-snapshot.xml').text,
+    XhtmlMatchers.hasXPaths(
+        '/snapshot/steps/step/duration',
         '//step[contains(summary, "maven-surefire-plugin")]'
     )
 )
@@ -0,0 +1,295 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import com.rultor.tools.Time;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import org.apache.maven.execution.ProjectDependencyGraph;
+import org.apache.maven.project.MavenProject;
+import org.xembly.Directives;
+
+/**
+ * Advice on the number of threads of the reactor ({@code -T}).
+ *
+ * <p>Measured durations of projects are replayed over the dependency
+ * graph of the reactor by list scheduling, the way the multi-threaded
+ * builder does it: a free thread takes the first project in reactor
+ * order whose upstream projects are finished. Predicted wall-clock time
+ * is reported for every number of threads, from one to the number
+ * of projects (but not more than {@link #MAX}), together with the
+ * smallest number of threads giving 95% of the best speed-up. The best
+ * one is not necessarily the one with most threads, since list
+ * scheduling may get slower with more of them (Graham's anomalies).
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+final class Advisor {
+
+    /**
+     * Step ID in snapshot.
+     */
+    public static final String ID = "advice";
+
+    /**
+     * Maximum number of threads to simulate.
+     */
+    public static final int MAX = 64;
+
+    /**
+     * Fraction of the best speed-up, which is good enough.
+     */
+    private static final double ENOUGH = 0.95d;
+
+    /**
+     * Dependency graph.
+     */
+    private final transient ProjectDependencyGraph graph;
+
+    /**
+     * Measured spans of projects, by project ID.
+     */
+    private final transient Map<String, Span> spans;
+
+    /**
+     * Public ctor.
+     * @param grph Dependency graph of the reactor
+     * @param measured Spans of projects, by ID of project
+     */
+    Advisor(final ProjectDependencyGraph grph,
+        final Map<String, Span> measured) {
+        this.graph = grph;
+        this.spans = measured;
+    }
+
+    /**
+     * Directives for snapshot, with a summary step.
+     * @return Directives
+     */
+    public Directives directives() {
+        final List<MavenProject> sorted = new ArrayList<MavenProject>(0);
+        long first = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+        for (final MavenProject prj : this.graph.getSortedProjects()) {
+            final Span span = this.spans.get(XemblyProjects.identifier(prj));
+            if (span != null) {
+                sorted.add(prj);
+                first = Math.min(first, span.start());
+                end = Math.max(end, span.finish());
+            }
+        }
+        final Directives dirs = new Directives();
+        if (!sorted.isEmpty()) {
+            final Advisor.Reactor reactor = this.reactor(sorted);
+            final int max = Math.min(sorted.size(), Advisor.MAX);
+            final long[] walls = new long[max + 1];
+            for (int threads = 1; threads <= max; ++threads) {
+                walls[threads] = reactor.wall(threads);
+            }
+            int best = 1;
+            for (int threads = 2; threads <= max; ++threads) {
+                if (walls[threads] < walls[best]) {
+                    best = threads;
+                }
+            }
+            int advice = 1;
+            while (Advisor.speedup(walls, advice)
+                < Advisor.speedup(walls, best) * Advisor.ENOUGH) {
+                ++advice;
+            }
+            dirs.xpath("/snapshot").strict(1)
+                .addIf("steps").add("step")
+                .attr("id", Advisor.ID)
+                .add("summary")
+                .set(
+                    Logger.format(
+                        "-T %d: %[ms]s, -T %d: %[ms]s, -T 1: %[ms]s",
+                        advice, walls[advice], best, walls[best], walls[1]
+                    )
+                ).up()
+                .add("start").set(new Time(first).toString()).up()
+                .add("finish").set(new Time(end).toString()).up()
+                .add("level").set(Level.INFO.toString()).up()
+                .add("duration").set(Long.toString(end - first)).up()
+                .add("advice").set(Integer.toString(advice)).up()
+                .add("threads");
+            for (int threads = 1; threads <= max; ++threads) {
+                dirs.add("simulation")
+                    .attr("threads", Integer.toString(threads))
+                    .attr("wall", Long.toString(walls[threads]))
+                    .attr(
+                        "speedup",
+                        String.format(
+                            Locale.ENGLISH, "%.2f",
+                            Advisor.speedup(walls, threads)
+                        )
+                    )
+                    .up();
+            }
+        }
+        return dirs;
+    }
+
+    /**
+     * Speed-up with the given number of threads.
+     * @param walls Wall-clock times, by number of threads
+     * @param threads Number of threads
+     * @return Speed-up, comparing to one thread
+     */
+    private static double speedup(final long[] walls, final int threads) {
+        final double speedup;
+        if (walls[threads] == 0L) {
+            speedup = 1.0d;
+        } else {
+            speedup = (double) walls[1] / (double) walls[threads];
+        }
+        return speedup;
+    }
+
+    /**
+     * Reactor of measured projects, by their positions in reactor order.
+     * @param sorted Measured projects, in reactor order
+     * @return Reactor
+     */
+    private Advisor.Reactor reactor(final List<MavenProject> sorted) {
+        final Map<MavenProject, Integer> index =
+            new HashMap<MavenProject, Integer>(sorted.size());
+        for (final MavenProject prj : sorted) {
+            index.put(prj, index.size());
+        }
+        final long[] durations = new long[sorted.size()];
+        final int[] upstream = new int[sorted.size()];
+        final int[][] downstream = new int[sorted.size()][];
+        for (final MavenProject prj : sorted) {
+            final int pos = index.get(prj);
+            durations[pos] = this.spans.get(XemblyProjects.identifier(prj))
+                .duration();
+            final List<Integer> next = new ArrayList<Integer>(0);
+            for (final MavenProject down
+                : this.graph.getDownstreamProjects(prj, false)) {
+                final Integer idx = index.get(down);
+                if (idx != null) {
+                    next.add(idx);
+                    ++upstream[idx];
+                }
+            }
+            downstream[pos] = new int[next.size()];
+            for (int idx = 0; idx < next.size(); ++idx) {
+                downstream[pos][idx] = next.get(idx);
+            }
+        }
+        return new Advisor.Reactor(durations, upstream, downstream);
+    }
+
+    /**
+     * Projects of the reactor, as numbers in reactor order.
+     */
+    private static final class Reactor {
+        /**
+         * Durations of projects.
+         */
+        private final transient long[] durations;
+        /**
+         * Numbers of upstream projects of every project.
+         */
+        private final transient int[] upstream;
+        /**
+         * Downstream projects of every project.
+         */
+        private final transient int[][] downstream;
+        /**
+         * Ctor.
+         * @param times Durations of projects
+         * @param ups Numbers of upstream projects
+         * @param downs Downstream projects
+         */
+        Reactor(final long[] times, final int[] ups, final int[][] downs) {
+            this.durations = times;
+            this.upstream = ups;
+            this.downstream = downs;
+        }
+        /**
+         * Simulate the build with the given number of threads.
+         * @param threads Number of threads
+         * @return Wall-clock time
+         */
+        public long wall(final int threads) {
+            final int[] waiting = this.upstream.clone();
+            final SortedSet<Integer> ready = new TreeSet<Integer>();
+            for (int idx = 0; idx < waiting.length; ++idx) {
+                if (waiting[idx] == 0) {
+                    ready.add(idx);
+                }
+            }
+            final PriorityQueue<long[]> running = new PriorityQueue<long[]>(
+                threads,
+                new Comparator<long[]>() {
+                    @Override
+                    public int compare(final long[] left,
+                        final long[] right) {
+                        return Long.valueOf(left[0]).compareTo(right[0]);
+                    }
+                }
+            );
+            long now = 0L;
+            while (!ready.isEmpty() || !running.isEmpty()) {
+                while (running.size() < threads && !ready.isEmpty()) {
+                    final int next = ready.first();
+                    ready.remove(next);
+                    running.add(
+                        new long[] {now + this.durations[next], next}
+                    );
+                }
+                final long[] done = running.poll();
+                now = done[0];
+                for (final int down : this.downstream[(int) done[1]]) {
+                    --waiting[down];
+                    if (waiting[down] == 0) {
+                        ready.add(down);
+                    }
+                }
+            }
+            return now;
+        }
+    }
+
+}
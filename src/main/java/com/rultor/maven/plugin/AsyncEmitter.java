@@ -0,0 +1,341 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import lombok.ToString;
+import org.xembly.Directives;
+
+/**
+ * Emitter that hands directives over to a single background writer.
+ *
+ * <p>Build threads only put directives into a bounded lock-free queue
+ * and return immediately. The writer drains the queue and passes every
+ * portion to the origin emitter separately, since every portion is
+ * applied as one Xembly script and one failed portion must not take
+ * others with it. When the queue is full, the {@link AsyncEmitter.Overflow}
+ * policy decides what to do. The queue is flushed by {@link #close()}
+ * and on JVM shutdown. A portion queued while the emitter is being
+ * closed is written by the thread that queued it, unless the origin
+ * is closed already, then the portion is dropped, like on overflow.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@ToString(of = { "capacity", "overflow" })
+@SuppressWarnings("PMD.DoNotUseThreads")
+final class AsyncEmitter implements Emitter {
+
+    /**
+     * How long the writer sleeps when the queue is empty, in nanoseconds.
+     */
+    private static final long IDLE = TimeUnit.MILLISECONDS.toNanos(50L);
+
+    /**
+     * What to do when the queue is full.
+     */
+    enum Overflow {
+        /**
+         * Wait until the writer makes room in the queue.
+         */
+        BLOCK,
+        /**
+         * Drop the directives and count them.
+         */
+        DROP;
+
+        /**
+         * Parse policy name, case-insensitive.
+         * @param name Name of the policy
+         * @return Policy
+         */
+        static AsyncEmitter.Overflow parse(final String name) {
+            return AsyncEmitter.Overflow.valueOf(
+                name.trim().toUpperCase(Locale.ENGLISH)
+            );
+        }
+    }
+
+    /**
+     * Origin emitter, called only from the writer.
+     */
+    private final transient Emitter origin;
+
+    /**
+     * Maximum number of portions waiting in the queue.
+     */
+    private final transient int capacity;
+
+    /**
+     * Overflow policy.
+     */
+    private final transient AsyncEmitter.Overflow overflow;
+
+    /**
+     * Portions waiting to be written.
+     */
+    private final transient Queue<AsyncEmitter.Portion> queue =
+        new ConcurrentLinkedQueue<AsyncEmitter.Portion>();
+
+    /**
+     * Number of portions in the queue (the queue itself doesn't
+     * know its size in constant time).
+     */
+    private final transient AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Number of portions dropped because of overflow.
+     */
+    private final transient AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Closed already?
+     */
+    private final transient AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Origin closed already? Guarded by the queue.
+     */
+    private transient boolean done;
+
+    /**
+     * Background writer.
+     */
+    private final transient Thread writer;
+
+    /**
+     * Shutdown hook, which flushes the queue if JVM exits before
+     * {@link #close()} is called.
+     */
+    private final transient Thread hook;
+
+    /**
+     * Public ctor.
+     * @param emitter Origin emitter
+     * @param cap Capacity of the queue
+     * @param policy What to do on overflow
+     */
+    AsyncEmitter(final Emitter emitter, final int cap,
+        final AsyncEmitter.Overflow policy) {
+        if (cap < 1) {
+            throw new IllegalArgumentException(
+                String.format("queue capacity %d is too small", cap)
+            );
+        }
+        this.origin = emitter;
+        this.capacity = cap;
+        this.overflow = policy;
+        this.writer = new Thread(
+            new Runnable() {
+                @Override
+                public void run() {
+                    AsyncEmitter.this.loop();
+                }
+            },
+            "rultor-emitter"
+        );
+        this.writer.setDaemon(true);
+        this.hook = new Thread(
+            new Runnable() {
+                @Override
+                public void run() {
+                    AsyncEmitter.this.late();
+                }
+            },
+            "rultor-emitter-hook"
+        );
+        Runtime.getRuntime().addShutdownHook(this.hook);
+        this.writer.start();
+    }
+
+    @Override
+    public void emit(final Directives dirs) {
+        this.emit("", dirs);
+    }
+
+    @Override
+    public void emit(final String step, final Directives dirs) {
+        if (this.reserve()) {
+            this.queue.offer(new AsyncEmitter.Portion(step, dirs));
+            if (this.closed.get()) {
+                this.late();
+            } else {
+                LockSupport.unpark(this.writer);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.closed.compareAndSet(false, true)) {
+            LockSupport.unpark(this.writer);
+            try {
+                this.writer.join();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                Runtime.getRuntime().removeShutdownHook(this.hook);
+            } catch (final IllegalStateException ex) {
+                assert ex != null;
+            }
+            synchronized (this.queue) {
+                this.drain();
+                if (this.dropped.get() > 0L) {
+                    Logger.warn(
+                        this, "%d Xembly portion(s) dropped on overflow",
+                        this.dropped.get()
+                    );
+                }
+                this.origin.close();
+                this.done = true;
+            }
+        }
+    }
+
+    /**
+     * Write everything currently in the queue, from a thread other than
+     * the writer, or drop it if the origin is closed already.
+     */
+    private void late() {
+        synchronized (this.queue) {
+            if (this.done) {
+                int lost = 0;
+                while (this.queue.poll() != null) {
+                    this.size.decrementAndGet();
+                    ++lost;
+                }
+                if (lost > 0) {
+                    this.dropped.addAndGet(lost);
+                    Logger.warn(
+                        this, "%d Xembly portion(s) emitted after close",
+                        lost
+                    );
+                }
+            } else {
+                this.drain();
+            }
+        }
+    }
+
+    /**
+     * Reserve a place in the queue, according to the overflow policy.
+     * @return TRUE if there is a place for one more portion
+     */
+    private boolean reserve() {
+        boolean reserved = true;
+        while (this.size.incrementAndGet() > this.capacity) {
+            this.size.decrementAndGet();
+            if (this.overflow == AsyncEmitter.Overflow.DROP
+                || this.closed.get()) {
+                this.dropped.incrementAndGet();
+                reserved = false;
+                break;
+            }
+            LockSupport.unpark(this.writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1L));
+        }
+        return reserved;
+    }
+
+    /**
+     * Writer loop, until closed.
+     */
+    private void loop() {
+        while (!this.closed.get()) {
+            if (!this.drain()) {
+                LockSupport.parkNanos(this, AsyncEmitter.IDLE);
+            }
+        }
+    }
+
+    /**
+     * Write everything currently in the queue, portion by portion.
+     * @return TRUE if something was written
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private boolean drain() {
+        synchronized (this.queue) {
+            boolean written = false;
+            while (true) {
+                final AsyncEmitter.Portion portion = this.queue.poll();
+                if (portion == null) {
+                    break;
+                }
+                this.size.decrementAndGet();
+                try {
+                    if (portion.step.isEmpty()) {
+                        this.origin.emit(portion.dirs);
+                    } else {
+                        this.origin.emit(portion.step, portion.dirs);
+                    }
+                // @checkstyle IllegalCatch (1 line)
+                } catch (final RuntimeException ex) {
+                    Logger.warn(this, "failed to emit Xembly: %s", ex);
+                }
+                written = true;
+            }
+            return written;
+        }
+    }
+
+    /**
+     * Portion of directives waiting in the queue.
+     */
+    private static final class Portion {
+        /**
+         * ID of the step modified, or empty.
+         */
+        private final transient String step;
+        /**
+         * Directives.
+         */
+        private final transient Directives dirs;
+        /**
+         * Ctor.
+         * @param stp ID of the step modified, or empty
+         * @param drs Directives
+         */
+        Portion(final String stp, final Directives drs) {
+            this.step = stp;
+            this.dirs = drs;
+        }
+    }
+
+}
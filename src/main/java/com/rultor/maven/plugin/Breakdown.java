@@ -0,0 +1,338 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import com.rultor.tools.Time;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import lombok.ToString;
+import org.xembly.Directives;
+
+/**
+ * Durations of mojos, aggregated by lifecycle phases and by plugin goals.
+ *
+ * <p>Every group keeps count, total and maximum of durations and
+ * a log-linear histogram of them, for 50th and 95th percentiles.
+ * Percentiles are approximate: they are upper bounds of histogram
+ * buckets, which are less than 1/8 wide relative to their values.
+ * Recording takes a few atomic increments and no locks.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString
+final class Breakdown {
+
+    /**
+     * Identifier of the step.
+     */
+    public static final String ID = "breakdown";
+
+    /**
+     * Group of mojos invoked outside of any phase.
+     */
+    private static final String NONE = "none";
+
+    /**
+     * Histograms by phases.
+     */
+    private final transient ConcurrentMap<String, Breakdown.Histogram> phases =
+        new ConcurrentHashMap<String, Breakdown.Histogram>(0);
+
+    /**
+     * Histograms by plugin goals.
+     */
+    private final transient ConcurrentMap<String, Breakdown.Histogram> goals =
+        new ConcurrentHashMap<String, Breakdown.Histogram>(0);
+
+    /**
+     * Start of the first mojo.
+     */
+    private final transient AtomicLong first = new AtomicLong(Long.MAX_VALUE);
+
+    /**
+     * Finish of the last mojo.
+     */
+    private final transient AtomicLong last = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Record a completed mojo.
+     * @param phase Lifecycle phase or NULL if invoked directly
+     * @param goal Plugin goal, like {@code maven-compiler-plugin:compile}
+     * @param start Start of the mojo, in milliseconds
+     * @param finish Finish of the mojo, in milliseconds
+     * @checkstyle ParameterNumber (3 lines)
+     */
+    public void record(final String phase, final String goal,
+        final long start, final long finish) {
+        String name = phase;
+        if (name == null) {
+            name = Breakdown.NONE;
+        }
+        final long duration = finish - start;
+        Breakdown.group(this.phases, name).add(duration);
+        Breakdown.group(this.goals, goal).add(duration);
+        Breakdown.lower(this.first, start);
+        Breakdown.raise(this.last, finish);
+    }
+
+    /**
+     * Directives with the step, or empty ones if nothing was recorded.
+     * @return Directives
+     */
+    public Directives directives() {
+        final Directives dirs = new Directives();
+        if (!this.phases.isEmpty()) {
+            long total = 0L;
+            for (final Breakdown.Histogram hist : this.phases.values()) {
+                total += hist.total.get();
+            }
+            final long start = this.first.get();
+            final long finish = this.last.get();
+            dirs.xpath("/snapshot").strict(1)
+                .addIf("steps").add("step")
+                .attr("id", Breakdown.ID)
+                .add("summary")
+                .set(
+                    Logger.format(
+                        "%[ms]s in %d phase(s) and %d goal(s)",
+                        total, this.phases.size(), this.goals.size()
+                    )
+                ).up()
+                .add("start").set(new Time(start).toString()).up()
+                .add("finish").set(new Time(finish).toString()).up()
+                .add("level").set(Level.INFO.toString()).up()
+                .add("duration").set(Long.toString(finish - start)).up()
+                .append(Breakdown.groups("phases", "phase", this.phases))
+                .append(Breakdown.groups("plugins", "plugin", this.goals));
+        }
+        return dirs;
+    }
+
+    /**
+     * Directives with groups, the longest first.
+     * @param parent Name of parent element
+     * @param child Name of child elements
+     * @param groups Groups
+     * @return Directives, leaving the pointer where it was
+     */
+    private static Directives groups(final String parent, final String child,
+        final Map<String, Breakdown.Histogram> groups) {
+        final List<Map.Entry<String, Breakdown.Histogram>> entries =
+            new ArrayList<Map.Entry<String, Breakdown.Histogram>>(
+                groups.entrySet()
+            );
+        Collections.sort(
+            entries,
+            new Comparator<Map.Entry<String, Breakdown.Histogram>>() {
+                @Override
+                public int compare(
+                    final Map.Entry<String, Breakdown.Histogram> left,
+                    final Map.Entry<String, Breakdown.Histogram> right) {
+                    return Long.valueOf(right.getValue().total.get())
+                        .compareTo(left.getValue().total.get());
+                }
+            }
+        );
+        final Directives dirs = new Directives().add(parent);
+        for (final Map.Entry<String, Breakdown.Histogram> entry : entries) {
+            final Breakdown.Histogram hist = entry.getValue();
+            dirs.add(child)
+                .attr("id", entry.getKey())
+                .attr("count", Long.toString(hist.count.get()))
+                .attr("total", Long.toString(hist.total.get()))
+                .attr("max", Long.toString(hist.max.get()))
+                .attr("p50", Long.toString(hist.percentile(0.5d)))
+                .attr("p95", Long.toString(hist.percentile(0.95d)))
+                .up();
+        }
+        return dirs.up();
+    }
+
+    /**
+     * Find or create a group.
+     * @param groups All groups
+     * @param name Name of the group
+     * @return Histogram of the group
+     */
+    private static Breakdown.Histogram group(
+        final ConcurrentMap<String, Breakdown.Histogram> groups,
+        final String name) {
+        Breakdown.Histogram hist = groups.get(name);
+        if (hist == null) {
+            groups.putIfAbsent(name, new Breakdown.Histogram());
+            hist = groups.get(name);
+        }
+        return hist;
+    }
+
+    /**
+     * Lower the value, if it is bigger than the given one.
+     * @param value Value to update
+     * @param candidate The candidate
+     */
+    private static void lower(final AtomicLong value, final long candidate) {
+        long current = value.get();
+        while (candidate < current
+            && !value.compareAndSet(current, candidate)) {
+            current = value.get();
+        }
+    }
+
+    /**
+     * Raise the value, if it is smaller than the given one.
+     * @param value Value to update
+     * @param candidate The candidate
+     */
+    private static void raise(final AtomicLong value, final long candidate) {
+        long current = value.get();
+        while (candidate > current
+            && !value.compareAndSet(current, candidate)) {
+            current = value.get();
+        }
+    }
+
+    /**
+     * Log-linear histogram of durations.
+     *
+     * <p>Values below 8 have their own buckets, every power of two
+     * above is split into 8 buckets.
+     */
+    private static final class Histogram {
+        /**
+         * Sub-buckets in every power of two, as a shift.
+         */
+        private static final int BITS = 3;
+        /**
+         * Number of buckets, enough for any non-negative long.
+         */
+        private static final int SIZE = 64 << Breakdown.Histogram.BITS;
+        /**
+         * Count of values.
+         */
+        private final transient AtomicLong count = new AtomicLong();
+        /**
+         * Sum of values.
+         */
+        private final transient AtomicLong total = new AtomicLong();
+        /**
+         * Maximum value.
+         */
+        private final transient AtomicLong max = new AtomicLong();
+        /**
+         * Buckets.
+         */
+        private final transient AtomicLongArray buckets =
+            new AtomicLongArray(Breakdown.Histogram.SIZE);
+        /**
+         * Add a value.
+         * @param value The value, in milliseconds
+         */
+        public void add(final long value) {
+            final long positive = Math.max(value, 0L);
+            this.count.incrementAndGet();
+            this.total.addAndGet(positive);
+            Breakdown.raise(this.max, positive);
+            this.buckets.incrementAndGet(
+                Breakdown.Histogram.bucket(positive)
+            );
+        }
+        /**
+         * Approximate percentile.
+         * @param fraction Fraction of values, from 0 to 1
+         * @return Upper bound of the bucket with the percentile
+         */
+        public long percentile(final double fraction) {
+            final long rank = (long) Math.ceil(this.count.get() * fraction);
+            long seen = 0L;
+            long result = 0L;
+            for (int idx = 0; idx < Breakdown.Histogram.SIZE; ++idx) {
+                seen += this.buckets.get(idx);
+                if (seen >= rank && seen > 0L) {
+                    result = Math.min(
+                        Breakdown.Histogram.upper(idx), this.max.get()
+                    );
+                    break;
+                }
+            }
+            return result;
+        }
+        /**
+         * Bucket of a value.
+         * @param value Non-negative value
+         * @return Index of the bucket
+         */
+        private static int bucket(final long value) {
+            final int bucket;
+            if (value < 1L << Breakdown.Histogram.BITS) {
+                bucket = (int) value;
+            } else {
+                final int exp = 63 - Long.numberOfLeadingZeros(value);
+                final int shift = exp - Breakdown.Histogram.BITS;
+                bucket = ((shift + 1) << Breakdown.Histogram.BITS)
+                    + (int) ((value >>> shift)
+                    & ((1L << Breakdown.Histogram.BITS) - 1L));
+            }
+            return bucket;
+        }
+        /**
+         * Largest value in a bucket.
+         * @param bucket Index of the bucket
+         * @return The value
+         */
+        private static long upper(final int bucket) {
+            final long value;
+            if (bucket < 1 << Breakdown.Histogram.BITS) {
+                value = bucket;
+            } else {
+                final int shift = (bucket >>> Breakdown.Histogram.BITS) - 1;
+                final long mantissa = (bucket
+                    & ((1 << Breakdown.Histogram.BITS) - 1))
+                    | (1L << Breakdown.Histogram.BITS);
+                value = ((mantissa + 1L) << shift) - 1L;
+            }
+            return value;
+        }
+    }
+
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+
+/**
+ * Times all mojos of the build into a {@link Breakdown} and reports it
+ * as a step when the session ends.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@SuppressWarnings("PMD.TooManyMethods")
+final class BreakdownListener implements ExecutionListener {
+
+    /**
+     * Identities of mojos, their labels are keys of plugin goals.
+     */
+    private final transient Identities ids = new Identities();
+
+    /**
+     * Start times of mojos in progress, by numbers of their identities.
+     */
+    private final transient Timings starts = new Timings();
+
+    /**
+     * Target execution origin.
+     */
+    private final transient ExecutionListener origin;
+
+    /**
+     * Where to send Xembly directives.
+     */
+    private final transient Emitter emitter;
+
+    /**
+     * The breakdown.
+     */
+    private final transient Breakdown breakdown;
+
+    /**
+     * Constructor.
+     *
+     * @param lstnr Listener to call, which closes the emitter at the end
+     * @param emtr Emitter of directives.
+     */
+    BreakdownListener(final ExecutionListener lstnr, final Emitter emtr) {
+        this.origin = lstnr;
+        this.emitter = emtr;
+        this.breakdown = new Breakdown();
+    }
+
+    @Override
+    public void projectDiscoveryStarted(final ExecutionEvent event) {
+        this.origin.projectDiscoveryStarted(event);
+    }
+
+    @Override
+    public void sessionStarted(final ExecutionEvent event) {
+        this.origin.sessionStarted(event);
+    }
+
+    @Override
+    public void sessionEnded(final ExecutionEvent event) {
+        this.emitter.emit(this.breakdown.directives());
+        this.starts.clear();
+        this.ids.clear();
+        this.origin.sessionEnded(event);
+    }
+
+    @Override
+    public void projectSkipped(final ExecutionEvent event) {
+        this.origin.projectSkipped(event);
+    }
+
+    @Override
+    public void projectStarted(final ExecutionEvent event) {
+        this.origin.projectStarted(event);
+    }
+
+    @Override
+    public void projectSucceeded(final ExecutionEvent event) {
+        this.origin.projectSucceeded(event);
+    }
+
+    @Override
+    public void projectFailed(final ExecutionEvent event) {
+        this.origin.projectFailed(event);
+    }
+
+    @Override
+    public void mojoSkipped(final ExecutionEvent event) {
+        this.origin.mojoSkipped(event);
+    }
+
+    @Override
+    public void mojoStarted(final ExecutionEvent event) {
+        this.starts.put(this.mojo(event).number(), System.currentTimeMillis());
+        this.origin.mojoStarted(event);
+    }
+
+    @Override
+    public void mojoSucceeded(final ExecutionEvent event) {
+        this.completed(event);
+        this.origin.mojoSucceeded(event);
+    }
+
+    @Override
+    public void mojoFailed(final ExecutionEvent event) {
+        this.completed(event);
+        this.origin.mojoFailed(event);
+    }
+
+    @Override
+    public void forkStarted(final ExecutionEvent event) {
+        this.origin.forkStarted(event);
+    }
+
+    @Override
+    public void forkSucceeded(final ExecutionEvent event) {
+        this.origin.forkSucceeded(event);
+    }
+
+    @Override
+    public void forkFailed(final ExecutionEvent event) {
+        this.origin.forkFailed(event);
+    }
+
+    @Override
+    public void forkedProjectStarted(final ExecutionEvent event) {
+        this.origin.forkedProjectStarted(event);
+    }
+
+    @Override
+    public void forkedProjectSucceeded(final ExecutionEvent event) {
+        this.origin.forkedProjectSucceeded(event);
+    }
+
+    @Override
+    public void forkedProjectFailed(final ExecutionEvent event) {
+        this.origin.forkedProjectFailed(event);
+    }
+
+    /**
+     * Mojo completed.
+     * @param event Event of the mojo
+     */
+    private void completed(final ExecutionEvent event) {
+        final Identity mojo = this.mojo(event);
+        final long start = this.starts.take(mojo.number());
+        if (start != 0L) {
+            this.breakdown.record(
+                event.getMojoExecution().getLifecyclePhase(), mojo.label(),
+                start, System.currentTimeMillis()
+            );
+        }
+    }
+
+    /**
+     * Identity of the mojo.
+     * @param event Event of the mojo
+     * @return Identity
+     */
+    private Identity mojo(final ExecutionEvent event) {
+        return this.ids.mojo(event.getProject(), event.getMojoExecution());
+    }
+
+}
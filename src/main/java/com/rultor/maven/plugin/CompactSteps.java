@@ -0,0 +1,317 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import com.rultor.tools.Time;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import lombok.ToString;
+import org.xembly.Directives;
+
+/**
+ * Steps reported on completion: every finished step is emitted as
+ * one self-contained element, while steps in progress are kept in
+ * memory.
+ *
+ * <p>This halves the number of Xembly lines in comparison with
+ * {@link LiveSteps}. In order not to hide long-running steps, a
+ * heartbeat thread adds to the snapshot every step which is running
+ * longer than the heartbeat interval, and updates its summary on every
+ * next beat. When such a step finishes, it is patched, like in
+ * {@link LiveSteps}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString(of = { "emitter", "heartbeat" })
+@SuppressWarnings("PMD.DoNotUseThreads")
+final class CompactSteps implements Steps {
+
+    /**
+     * Steps in progress.
+     */
+    private final transient ConcurrentMap<Identity, CompactSteps.Flight>
+        flights = new ConcurrentHashMap<Identity, CompactSteps.Flight>(0);
+
+    /**
+     * Where to send Xembly directives.
+     */
+    private final transient Emitter emitter;
+
+    /**
+     * Heartbeat interval, in milliseconds, zero if disabled.
+     */
+    private final transient long heartbeat;
+
+    /**
+     * Heartbeat thread, or NULL if disabled.
+     */
+    private final transient ScheduledExecutorService beats;
+
+    /**
+     * Encoder of failures.
+     */
+    private final transient Failures failures;
+
+    /**
+     * Public ctor.
+     * @param emtr Emitter of directives
+     * @param beat Heartbeat interval in milliseconds, zero to disable
+     */
+    CompactSteps(final Emitter emtr, final long beat) {
+        this(emtr, beat, new Failures());
+    }
+
+    /**
+     * Public ctor.
+     * @param emtr Emitter of directives
+     * @param beat Heartbeat interval in milliseconds, zero to disable
+     * @param encoder Encoder of failures
+     */
+    CompactSteps(final Emitter emtr, final long beat,
+        final Failures encoder) {
+        this.emitter = emtr;
+        this.heartbeat = beat;
+        this.failures = encoder;
+        if (beat > 0L) {
+            this.beats = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread =
+                            new Thread(runnable, "rultor-heartbeat");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }
+            );
+            this.beats.scheduleWithFixedDelay(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        CompactSteps.this.beat();
+                    }
+                },
+                beat, beat, TimeUnit.MILLISECONDS
+            );
+        } else {
+            this.beats = null;
+        }
+    }
+
+    @Override
+    public void started(final Identity step) {
+        this.flights.put(
+            step, new CompactSteps.Flight(System.currentTimeMillis())
+        );
+    }
+
+    @Override
+    public Span succeeded(final Identity step) {
+        final CompactSteps.Flight flight = this.flights.remove(step);
+        Span span = null;
+        if (flight != null) {
+            final Time end = new Time();
+            synchronized (flight) {
+                flight.landed = true;
+                this.emitter.emit(
+                    step.id(),
+                    this.open(step, flight)
+                        .add("summary").set(step.label()).up()
+                        .add("finish").set(end.toString()).up()
+                        .add("level").set(Level.INFO.toString()).up()
+                        .add("duration")
+                        .set(Long.toString(end.millis() - flight.start))
+                );
+            }
+            span = new Span(
+                flight.start, end.millis(), Thread.currentThread().getName()
+            );
+        }
+        return span;
+    }
+
+    @Override
+    public void skipped(final Identity step) {
+        final String now = new Time().toString();
+        this.emitter.emit(
+            new Directives()
+                .xpath("/snapshot").strict(1)
+                .addIf("steps").add("step")
+                .attr("id", step.id())
+                .add("summary").set(step.skipped()).up()
+                .add("start").set(now).up()
+                .add("finish").set(now).up()
+                .add("level").set(Level.INFO.toString())
+        );
+    }
+
+    @Override
+    public Span failed(final Identity step, final Throwable error) {
+        CompactSteps.Flight flight = this.flights.remove(step);
+        final boolean started = flight != null;
+        if (!started) {
+            flight = new CompactSteps.Flight(System.currentTimeMillis());
+        }
+        final Time end = new Time();
+        synchronized (flight) {
+            flight.landed = true;
+            this.emitter.emit(
+                step.id(),
+                this.open(step, flight)
+                    .add("summary").set(step.label()).up()
+                    .add("finish").set(end.toString()).up()
+                    .add("duration")
+                    .set(Long.toString(end.millis() - flight.start)).up()
+                    .add("level").set(Level.SEVERE.toString()).up()
+                    .append(this.failures.exception(error))
+            );
+        }
+        Span span = null;
+        if (started) {
+            span = new Span(
+                flight.start, end.millis(), Thread.currentThread().getName()
+            );
+        }
+        return span;
+    }
+
+    @Override
+    public void close() {
+        if (this.beats != null) {
+            this.beats.shutdownNow();
+        }
+        this.flights.clear();
+    }
+
+    /**
+     * Report steps which are running too long.
+     */
+    private void beat() {
+        final long now = System.currentTimeMillis();
+        for (final Map.Entry<Identity, CompactSteps.Flight> entry
+            : this.flights.entrySet()) {
+            final CompactSteps.Flight flight = entry.getValue();
+            if (now - flight.start < this.heartbeat) {
+                continue;
+            }
+            synchronized (flight) {
+                if (flight.landed) {
+                    continue;
+                }
+                final Identity step = entry.getKey();
+                final String summary = Logger.format(
+                    "%s running for %[ms]s...", step.label(),
+                    now - flight.start
+                );
+                if (flight.announced) {
+                    this.emitter.emit(
+                        step.id(),
+                        new Directives()
+                            .xpath("/snapshot/steps").strict(1)
+                            .xpath(step.xpath())
+                            .xpath("summary").set(summary)
+                    );
+                } else {
+                    this.emitter.emit(
+                        new Directives()
+                            .xpath("/snapshot").strict(1)
+                            .addIf("steps").add("step")
+                            .attr("id", step.id())
+                            .add("summary").set(summary).up()
+                            .add("start")
+                            .set(new Time(flight.start).toString())
+                    );
+                    flight.announced = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Directives pointing to the step, which is either added right
+     * now (with its start time), or was announced by heartbeat before.
+     * @param step The step
+     * @param flight The flight
+     * @return Directives, pointing to the step element
+     */
+    private Directives open(final Identity step,
+        final CompactSteps.Flight flight) {
+        final Directives dirs;
+        if (flight.announced) {
+            dirs = new Directives()
+                .xpath("/snapshot/steps").strict(1)
+                .xpath(step.xpath())
+                .xpath("summary").remove();
+        } else {
+            dirs = new Directives()
+                .xpath("/snapshot").strict(1)
+                .addIf("steps").add("step")
+                .attr("id", step.id())
+                .add("start").set(new Time(flight.start).toString()).up();
+        }
+        return dirs;
+    }
+
+    /**
+     * Step in progress.
+     */
+    private static final class Flight {
+        /**
+         * Start time, in milliseconds.
+         */
+        private final transient long start;
+        /**
+         * Already added to the snapshot by heartbeat?
+         */
+        private transient boolean announced;
+        /**
+         * Already finished?
+         */
+        private transient boolean landed;
+        /**
+         * Ctor.
+         * @param time Start time
+         */
+        Flight(final long time) {
+            this.start = time;
+        }
+    }
+
+}
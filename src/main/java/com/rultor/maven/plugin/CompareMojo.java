@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.aspects.Loggable;
+import com.jcabi.log.Logger;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Compares durations of steps in two builds, reported by {@code steps}
+ * goal, and finds performance regressions.
+ *
+ * <p>Every build is either a build log with Xembly lines or an XML
+ * snapshot (a file with {@code .xml} extension).
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@ToString
+@Mojo(name = "compare", threadSafe = true, requiresProject = false)
+@EqualsAndHashCode(callSuper = false)
+@Loggable(Loggable.DEBUG)
+public final class CompareMojo extends AbstractMojo {
+
+    /**
+     * Baseline build, log or XML snapshot.
+     */
+    @Parameter(property = "rultor.compare.baseline", required = true)
+    private transient File baseline;
+
+    /**
+     * Current build, log or XML snapshot.
+     */
+    @Parameter(property = "rultor.compare.current", required = true)
+    private transient File current;
+
+    /**
+     * Minimum slowdown of a regression, in milliseconds.
+     */
+    @Parameter(property = "rultor.compare.absolute", defaultValue = "1000")
+    private transient long absolute;
+
+    /**
+     * Minimum slowdown of a regression, in percent.
+     */
+    @Parameter(property = "rultor.compare.relative", defaultValue = "10")
+    private transient long relative;
+
+    /**
+     * Fail the build when there are regressions.
+     */
+    @Parameter(property = "rultor.compare.fail", defaultValue = "false")
+    private transient boolean fail;
+
+    @Override
+    public void execute() throws MojoFailureException {
+        final Comparison comparison = new Comparison(
+            this.durations(this.baseline), this.durations(this.current),
+            this.absolute, this.relative
+        );
+        for (final String line : comparison.steps()) {
+            Logger.info(this, "step %s", line);
+        }
+        for (final String line : comparison.plugins()) {
+            Logger.info(this, "plugin %s", line);
+        }
+        final List<String> regressions = comparison.regressions();
+        for (final String line : regressions) {
+            Logger.warn(this, "regression %s", line);
+        }
+        if (regressions.isEmpty()) {
+            Logger.info(
+                this, "No regressions between %s and %s",
+                this.baseline, this.current
+            );
+        } else if (this.fail) {
+            throw new MojoFailureException(
+                String.format(
+                    "%d regression(s) between %s and %s",
+                    regressions.size(), this.baseline, this.current
+                )
+            );
+        }
+    }
+
+    /**
+     * Set baseline build.
+     * @param file Log or XML snapshot
+     */
+    public void setBaseline(final File file) {
+        this.baseline = file;
+    }
+
+    /**
+     * Set current build.
+     * @param file Log or XML snapshot
+     */
+    public void setCurrent(final File file) {
+        this.current = file;
+    }
+
+    /**
+     * Set thresholds of a regression.
+     * @param millis Minimum slowdown, in milliseconds
+     * @param percent Minimum slowdown, in percent
+     */
+    public void setThresholds(final long millis, final long percent) {
+        this.absolute = millis;
+        this.relative = percent;
+    }
+
+    /**
+     * Fail the build on regressions.
+     * @param flag TRUE to fail
+     */
+    public void setFail(final boolean flag) {
+        this.fail = flag;
+    }
+
+    /**
+     * Read durations of steps.
+     * @param file Log or XML snapshot
+     * @return Durations
+     * @throws MojoFailureException If fails
+     */
+    private Map<String, Long> durations(final File file)
+        throws MojoFailureException {
+        if (!file.exists()) {
+            throw new MojoFailureException(
+                String.format("build %s is absent", file)
+            );
+        }
+        try {
+            return new Durations(file).read();
+        } catch (final IOException ex) {
+            throw new MojoFailureException(
+                String.format("failed to read %s", file), ex
+            );
+        }
+    }
+
+}
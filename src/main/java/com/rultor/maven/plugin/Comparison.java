@@ -0,0 +1,272 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.ToString;
+
+/**
+ * Comparison of durations of steps in two builds.
+ *
+ * <p>Steps are matched by IDs, steps present in one build only are
+ * ignored. Durations of mojos are also summed up by plugin and goal,
+ * over all modules. A step or a plugin goal is a regression when it
+ * became slower both by more than the given number of milliseconds and
+ * by more than the given percent, so that neither jitter of short
+ * steps nor small changes of long ones are reported.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@ToString(of = { "absolute", "relative" })
+final class Comparison {
+
+    /**
+     * Percent of the whole.
+     */
+    private static final long PERCENT = 100L;
+
+    /**
+     * Deltas of steps.
+     */
+    private final transient List<Comparison.Delta> stps;
+
+    /**
+     * Deltas of plugin goals.
+     */
+    private final transient List<Comparison.Delta> plgs;
+
+    /**
+     * Minimum slowdown of a regression, in milliseconds.
+     */
+    private final transient long absolute;
+
+    /**
+     * Minimum slowdown of a regression, in percent.
+     */
+    private final transient long relative;
+
+    /**
+     * Public ctor.
+     * @param before Durations in the baseline build
+     * @param after Durations in the current build
+     * @param millis Minimum slowdown of a regression, in milliseconds
+     * @param percent Minimum slowdown of a regression, in percent
+     * @checkstyle ParameterNumber (4 lines)
+     */
+    Comparison(final Map<String, Long> before, final Map<String, Long> after,
+        final long millis, final long percent) {
+        this.stps = Comparison.deltas(before, after);
+        this.plgs = Comparison.deltas(
+            Comparison.plugins(before), Comparison.plugins(after)
+        );
+        this.absolute = millis;
+        this.relative = percent;
+    }
+
+    /**
+     * Deltas of all steps present in both builds, slowest first.
+     * @return Lines of report
+     */
+    public List<String> steps() {
+        return Comparison.lines(this.stps);
+    }
+
+    /**
+     * Deltas of plugin goals, slowest first.
+     * @return Lines of report
+     */
+    public List<String> plugins() {
+        return Comparison.lines(this.plgs);
+    }
+
+    /**
+     * Regressions of steps and plugin goals.
+     * @return Lines of report, empty if there are no regressions
+     */
+    public List<String> regressions() {
+        final List<String> lines = new ArrayList<String>(0);
+        for (final Comparison.Delta delta : this.stps) {
+            if (delta.regressed(this.absolute, this.relative)) {
+                lines.add(delta.toString());
+            }
+        }
+        for (final Comparison.Delta delta : this.plgs) {
+            if (delta.regressed(this.absolute, this.relative)) {
+                lines.add(delta.toString());
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Report lines.
+     * @param deltas Deltas
+     * @return Lines
+     */
+    private static List<String> lines(final List<Comparison.Delta> deltas) {
+        final List<String> lines = new ArrayList<String>(deltas.size());
+        for (final Comparison.Delta delta : deltas) {
+            lines.add(delta.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Deltas of steps present in both builds, slowest first.
+     * @param before Durations in the baseline build
+     * @param after Durations in the current build
+     * @return Deltas
+     */
+    private static List<Comparison.Delta> deltas(
+        final Map<String, Long> before, final Map<String, Long> after) {
+        final List<Comparison.Delta> deltas =
+            new ArrayList<Comparison.Delta>(after.size());
+        for (final Map.Entry<String, Long> entry : after.entrySet()) {
+            final Long was = before.get(entry.getKey());
+            if (was != null) {
+                deltas.add(
+                    new Comparison.Delta(entry.getKey(), was, entry.getValue())
+                );
+            }
+        }
+        Collections.sort(
+            deltas,
+            new Comparator<Comparison.Delta>() {
+                @Override
+                public int compare(final Comparison.Delta left,
+                    final Comparison.Delta right) {
+                    return Long.valueOf(right.change())
+                        .compareTo(left.change());
+                }
+            }
+        );
+        return deltas;
+    }
+
+    /**
+     * Durations of mojos summed up by plugin artifact and goal.
+     * @param steps Durations of steps
+     * @return Durations of plugin goals
+     */
+    private static Map<String, Long> plugins(final Map<String, Long> steps) {
+        final Map<String, Long> plugins = new TreeMap<String, Long>();
+        for (final Map.Entry<String, Long> entry : steps.entrySet()) {
+            final String key = entry.getKey();
+            final int slash = key.indexOf('/');
+            if (slash < 0) {
+                continue;
+            }
+            final String[] parts = key.substring(slash + 1).split(":");
+            if (parts.length < 3) {
+                continue;
+            }
+            final String goal = String.format("%s:%s", parts[1], parts[2]);
+            Long total = plugins.get(goal);
+            if (total == null) {
+                total = 0L;
+            }
+            plugins.put(goal, total + entry.getValue());
+        }
+        return plugins;
+    }
+
+    /**
+     * Change of duration of one step.
+     */
+    private static final class Delta {
+        /**
+         * Step ID or plugin goal.
+         */
+        private final transient String name;
+        /**
+         * Duration before, in milliseconds.
+         */
+        private final transient long before;
+        /**
+         * Duration after, in milliseconds.
+         */
+        private final transient long after;
+        /**
+         * Ctor.
+         * @param label Step ID or plugin goal
+         * @param was Duration before
+         * @param now Duration after
+         */
+        Delta(final String label, final long was, final long now) {
+            this.name = label;
+            this.before = was;
+            this.after = now;
+        }
+        @Override
+        public String toString() {
+            final String percent;
+            if (this.before == 0L) {
+                percent = "new";
+            } else {
+                percent = String.format(
+                    "%+d%%", this.change() * Comparison.PERCENT / this.before
+                );
+            }
+            return String.format(
+                "%s: %s -> %s (%s)", this.name,
+                Logger.format("%[ms]s", this.before),
+                Logger.format("%[ms]s", this.after),
+                percent
+            );
+        }
+        /**
+         * Change of duration.
+         * @return Milliseconds, positive if slower
+         */
+        public long change() {
+            return this.after - this.before;
+        }
+        /**
+         * Is it a regression?
+         * @param millis Minimum slowdown, in milliseconds
+         * @param percent Minimum slowdown, in percent
+         * @return TRUE if slower by more than both
+         */
+        public boolean regressed(final long millis, final long percent) {
+            return this.change() > millis
+                && this.change() * Comparison.PERCENT
+                > percent * this.before;
+        }
+    }
+
+}
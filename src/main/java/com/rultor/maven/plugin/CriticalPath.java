@@ -0,0 +1,278 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import com.rultor.tools.Time;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import org.apache.maven.execution.ProjectDependencyGraph;
+import org.apache.maven.project.MavenProject;
+import org.xembly.Directives;
+
+/**
+ * Critical path through the reactor.
+ *
+ * <p>Measured durations of projects are laid over the dependency graph
+ * of the reactor. The longest chain of dependent projects is the
+ * critical path: no number of threads can make the build shorter than
+ * it. Slack of a project is how much longer it could take without
+ * making the critical path longer. Idle time of a worker thread is
+ * the part of the wall-clock time it didn't spend building projects.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+final class CriticalPath {
+
+    /**
+     * Step ID in snapshot.
+     */
+    public static final String ID = "critical-path";
+
+    /**
+     * Dependency graph.
+     */
+    private final transient ProjectDependencyGraph graph;
+
+    /**
+     * Measured spans of projects, by project ID.
+     */
+    private final transient Map<String, Span> spans;
+
+    /**
+     * Public ctor.
+     * @param grph Dependency graph of the reactor
+     * @param measured Spans of projects, by ID of project
+     */
+    CriticalPath(final ProjectDependencyGraph grph,
+        final Map<String, Span> measured) {
+        this.graph = grph;
+        this.spans = measured;
+    }
+
+    /**
+     * Directives for snapshot, with a summary step.
+     * @return Directives
+     * @checkstyle ExecutableStatementCount (100 lines)
+     */
+    public Directives directives() {
+        final List<MavenProject> sorted = new ArrayList<MavenProject>(0);
+        for (final MavenProject prj : this.graph.getSortedProjects()) {
+            if (this.spans.containsKey(XemblyProjects.identifier(prj))) {
+                sorted.add(prj);
+            }
+        }
+        final Map<MavenProject, Long> earliest = this.earliest(sorted);
+        long length = 0L;
+        MavenProject last = null;
+        for (final MavenProject prj : sorted) {
+            if (last == null || earliest.get(prj) > length) {
+                length = earliest.get(prj);
+                last = prj;
+            }
+        }
+        final Map<MavenProject, Long> latest = this.latest(sorted, length);
+        final List<MavenProject> path = this.path(last, earliest);
+        long first = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+        for (final Span span : this.spans.values()) {
+            first = Math.min(first, span.start());
+            end = Math.max(end, span.finish());
+        }
+        final List<String> names = new ArrayList<String>(path.size());
+        for (final MavenProject prj : path) {
+            names.add(prj.getArtifactId());
+        }
+        final Directives dirs = new Directives()
+            .xpath("/snapshot").strict(1)
+            .addIf("steps").add("step")
+            .attr("id", CriticalPath.ID)
+            .add("summary")
+            .set(
+                Logger.format(
+                    "critical path %[ms]s of %[ms]s: %s",
+                    length, end - first, CriticalPath.join(names)
+                )
+            ).up()
+            .add("start").set(new Time(first).toString()).up()
+            .add("finish").set(new Time(end).toString()).up()
+            .add("level").set(Level.INFO.toString()).up()
+            .add("duration").set(Long.toString(length)).up()
+            .add("reactor");
+        for (final MavenProject prj : sorted) {
+            final Span span = this.spans.get(XemblyProjects.identifier(prj));
+            dirs.add("project")
+                .attr("id", XemblyProjects.identifier(prj))
+                .attr("duration", Long.toString(span.duration()))
+                .attr(
+                    "slack",
+                    Long.toString(latest.get(prj) - earliest.get(prj))
+                )
+                .attr("critical", Boolean.toString(path.contains(prj)))
+                .attr("thread", span.thread())
+                .up();
+        }
+        for (final Map.Entry<String, Long> busy
+            : this.busy().entrySet()) {
+            dirs.add("thread")
+                .attr("name", busy.getKey())
+                .attr("busy", Long.toString(busy.getValue()))
+                .attr("idle", Long.toString(end - first - busy.getValue()))
+                .up();
+        }
+        return dirs;
+    }
+
+    /**
+     * Earliest possible finish of every project, assuming unlimited
+     * number of threads.
+     * @param sorted Projects, in topological order
+     * @return Map of finish times, relative to the start of the build
+     */
+    private Map<MavenProject, Long> earliest(
+        final List<MavenProject> sorted) {
+        final Map<MavenProject, Long> finish =
+            new HashMap<MavenProject, Long>(sorted.size());
+        for (final MavenProject prj : sorted) {
+            long ready = 0L;
+            for (final MavenProject upstream
+                : this.graph.getUpstreamProjects(prj, false)) {
+                if (finish.containsKey(upstream)) {
+                    ready = Math.max(ready, finish.get(upstream));
+                }
+            }
+            finish.put(
+                prj,
+                ready + this.spans.get(XemblyProjects.identifier(prj))
+                    .duration()
+            );
+        }
+        return finish;
+    }
+
+    /**
+     * Latest possible finish of every project, which doesn't make
+     * the critical path longer.
+     * @param sorted Projects, in topological order
+     * @param length Length of the critical path
+     * @return Map of finish times, relative to the start of the build
+     */
+    private Map<MavenProject, Long> latest(final List<MavenProject> sorted,
+        final long length) {
+        final Map<MavenProject, Long> finish =
+            new HashMap<MavenProject, Long>(sorted.size());
+        final List<MavenProject> reversed =
+            new ArrayList<MavenProject>(sorted);
+        Collections.reverse(reversed);
+        for (final MavenProject prj : reversed) {
+            long deadline = length;
+            for (final MavenProject downstream
+                : this.graph.getDownstreamProjects(prj, false)) {
+                if (finish.containsKey(downstream)) {
+                    deadline = Math.min(
+                        deadline,
+                        finish.get(downstream) - this.spans.get(
+                            XemblyProjects.identifier(downstream)
+                        ).duration()
+                    );
+                }
+            }
+            finish.put(prj, deadline);
+        }
+        return finish;
+    }
+
+    /**
+     * Walk the critical path back from its last project.
+     * @param last Last project on the path, or NULL if nothing measured
+     * @param earliest Earliest finish times
+     * @return Projects on the path, first to last
+     */
+    private List<MavenProject> path(final MavenProject last,
+        final Map<MavenProject, Long> earliest) {
+        final List<MavenProject> path = new ArrayList<MavenProject>(0);
+        MavenProject current = last;
+        while (current != null) {
+            path.add(current);
+            MavenProject next = null;
+            for (final MavenProject upstream
+                : this.graph.getUpstreamProjects(current, false)) {
+                if (earliest.containsKey(upstream) && (next == null
+                    || earliest.get(upstream) > earliest.get(next))) {
+                    next = upstream;
+                }
+            }
+            current = next;
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Busy time of every worker thread.
+     * @return Milliseconds spent in projects, by thread name
+     */
+    private Map<String, Long> busy() {
+        final Map<String, Long> busy = new TreeMap<String, Long>();
+        for (final Span span : this.spans.values()) {
+            Long total = busy.get(span.thread());
+            if (total == null) {
+                total = 0L;
+            }
+            busy.put(span.thread(), total + span.duration());
+        }
+        return busy;
+    }
+
+    /**
+     * Join names with arrows.
+     * @param names Names
+     * @return Text
+     */
+    private static String join(final List<String> names) {
+        final StringBuilder text = new StringBuilder(0);
+        for (final String name : names) {
+            if (text.length() > 0) {
+                text.append(" -> ");
+            }
+            text.append(name);
+        }
+        return text.toString();
+    }
+
+}
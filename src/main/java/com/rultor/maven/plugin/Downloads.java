@@ -0,0 +1,364 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import com.rultor.tools.Time;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import lombok.ToString;
+import org.xembly.Directives;
+
+/**
+ * Downloads and resolutions of artifacts, by remote repositories and
+ * by projects and mojos that triggered them.
+ *
+ * <p>Build threads tell what they are busy with, by {@link #enter(String)},
+ * so that resolutions and downloads happening in them are attributed
+ * to the project or mojo. Resolutions found in the local repository or
+ * the reactor are cache hits, those coming from remote repositories are
+ * misses. Transfers are counted by repository URLs, with bytes, time
+ * and throughput, no matter which thread did them.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString(of = "start")
+final class Downloads {
+
+    /**
+     * Step ID in snapshot.
+     */
+    public static final String ID = "downloads";
+
+    /**
+     * Context of threads not busy with any project.
+     */
+    private static final String NONE = "(build)";
+
+    /**
+     * What threads are busy with.
+     */
+    private final transient ConcurrentMap<Thread, String> contexts =
+        new ConcurrentHashMap<Thread, String>(0);
+
+    /**
+     * Downloads in progress, by thread and artifact.
+     */
+    private final transient ConcurrentMap<String, Long> pending =
+        new ConcurrentHashMap<String, Long>(0);
+
+    /**
+     * Statistics by projects and mojos.
+     */
+    private final transient ConcurrentMap<String, Downloads.Stats> origins =
+        new ConcurrentHashMap<String, Downloads.Stats>(0);
+
+    /**
+     * Statistics by repositories.
+     */
+    private final transient ConcurrentMap<String, Downloads.Stats> repos =
+        new ConcurrentHashMap<String, Downloads.Stats>(0);
+
+    /**
+     * Start, in milliseconds.
+     */
+    private final transient long start = System.currentTimeMillis();
+
+    /**
+     * Current thread is busy with a project or a mojo.
+     * @param context ID of the project or mojo
+     */
+    public void enter(final String context) {
+        this.contexts.put(Thread.currentThread(), context);
+    }
+
+    /**
+     * Artifact resolved in the current thread.
+     * @param remote TRUE if it came from a remote repository
+     */
+    public void resolved(final boolean remote) {
+        final Downloads.Stats stats =
+            Downloads.stats(this.origins, this.context());
+        if (remote) {
+            stats.misses.incrementAndGet();
+        } else {
+            stats.hits.incrementAndGet();
+        }
+    }
+
+    /**
+     * Artifact download started in the current thread.
+     * @param artifact Artifact coordinates
+     */
+    public void downloading(final String artifact) {
+        this.pending.put(Downloads.key(artifact), System.currentTimeMillis());
+    }
+
+    /**
+     * Artifact download completed in the current thread.
+     * @param artifact Artifact coordinates
+     * @param bytes Size of the artifact, zero if not downloaded
+     */
+    public void downloaded(final String artifact, final long bytes) {
+        final Long begin = this.pending.remove(Downloads.key(artifact));
+        if (begin != null) {
+            Downloads.stats(this.origins, this.context()).add(
+                bytes, System.currentTimeMillis() - begin, bytes > 0L
+            );
+        }
+    }
+
+    /**
+     * Transfer from or to a repository completed, in any thread.
+     * @param url URL of the repository
+     * @param bytes Bytes transferred
+     * @param millis Time spent
+     * @param success TRUE if succeeded
+     * @checkstyle ParameterNumber (3 lines)
+     */
+    public void transferred(final String url, final long bytes,
+        final long millis, final boolean success) {
+        Downloads.stats(this.repos, url).add(bytes, millis, success);
+    }
+
+    /**
+     * Directives with the step, or empty ones if nothing was seen.
+     * @return Directives
+     */
+    public Directives directives() {
+        final Directives dirs = new Directives();
+        if (!this.origins.isEmpty() || !this.repos.isEmpty()) {
+            final Downloads.Stats total = new Downloads.Stats();
+            for (final Downloads.Stats stats : this.origins.values()) {
+                total.merge(stats);
+            }
+            final Downloads.Stats remote = new Downloads.Stats();
+            for (final Downloads.Stats stats : this.repos.values()) {
+                remote.merge(stats);
+            }
+            dirs.xpath("/snapshot").strict(1)
+                .addIf("steps").add("step")
+                .attr("id", Downloads.ID)
+                .add("summary")
+                .set(
+                    Logger.format(
+                        // @checkstyle LineLength (1 line)
+                        "%d transfer(s) of %d byte(s) in %[ms]s, %d resolution(s) from cache and %d from remote",
+                        remote.count.get(), remote.bytes.get(),
+                        remote.time.get(), total.hits.get(),
+                        total.misses.get()
+                    )
+                ).up()
+                .add("start").set(new Time(this.start).toString()).up()
+                .add("finish").set(new Time().toString()).up()
+                .add("level").set(Level.INFO.toString()).up()
+                .add("duration").set(Long.toString(total.time.get())).up()
+                .add("repositories");
+            for (final Map.Entry<String, Downloads.Stats> entry
+                : Downloads.sorted(this.repos)) {
+                final Downloads.Stats stats = entry.getValue();
+                dirs.add("repository")
+                    .attr("url", entry.getKey())
+                    .attr("transfers", Long.toString(stats.count.get()))
+                    .attr("failed", Long.toString(stats.failed.get()))
+                    .attr("bytes", Long.toString(stats.bytes.get()))
+                    .attr("time", Long.toString(stats.time.get()))
+                    .attr("throughput", Long.toString(stats.throughput()))
+                    .up();
+            }
+            dirs.up().add("origins");
+            for (final Map.Entry<String, Downloads.Stats> entry
+                : Downloads.sorted(this.origins)) {
+                final Downloads.Stats stats = entry.getValue();
+                dirs.add("origin")
+                    .attr("id", entry.getKey())
+                    .attr("downloads", Long.toString(stats.count.get()))
+                    .attr("bytes", Long.toString(stats.bytes.get()))
+                    .attr("time", Long.toString(stats.time.get()))
+                    .attr("hits", Long.toString(stats.hits.get()))
+                    .attr("misses", Long.toString(stats.misses.get()))
+                    .up();
+            }
+        }
+        return dirs;
+    }
+
+    /**
+     * Forget everything.
+     */
+    public void clear() {
+        this.contexts.clear();
+        this.pending.clear();
+        this.origins.clear();
+        this.repos.clear();
+    }
+
+    /**
+     * What the current thread is busy with.
+     * @return Context
+     */
+    private String context() {
+        String context = this.contexts.get(Thread.currentThread());
+        if (context == null) {
+            context = Downloads.NONE;
+        }
+        return context;
+    }
+
+    /**
+     * Key of an artifact downloaded by the current thread.
+     * @param artifact Artifact coordinates
+     * @return Key
+     */
+    private static String key(final String artifact) {
+        return String.format("%d %s", Thread.currentThread().getId(), artifact);
+    }
+
+    /**
+     * Find or create statistics.
+     * @param all All statistics
+     * @param name Name of the group
+     * @return Statistics
+     */
+    private static Downloads.Stats stats(
+        final ConcurrentMap<String, Downloads.Stats> all, final String name) {
+        Downloads.Stats stats = all.get(name);
+        if (stats == null) {
+            all.putIfAbsent(name, new Downloads.Stats());
+            stats = all.get(name);
+        }
+        return stats;
+    }
+
+    /**
+     * Statistics, the longest first.
+     * @param all All statistics
+     * @return Sorted entries
+     */
+    private static List<Map.Entry<String, Downloads.Stats>> sorted(
+        final Map<String, Downloads.Stats> all) {
+        final List<Map.Entry<String, Downloads.Stats>> entries =
+            new ArrayList<Map.Entry<String, Downloads.Stats>>(all.entrySet());
+        Collections.sort(
+            entries,
+            new Comparator<Map.Entry<String, Downloads.Stats>>() {
+                @Override
+                public int compare(
+                    final Map.Entry<String, Downloads.Stats> left,
+                    final Map.Entry<String, Downloads.Stats> right) {
+                    return Long.valueOf(right.getValue().time.get())
+                        .compareTo(left.getValue().time.get());
+                }
+            }
+        );
+        return entries;
+    }
+
+    /**
+     * Counters of a group.
+     */
+    private static final class Stats {
+        /**
+         * Downloads or transfers.
+         */
+        private final transient AtomicLong count = new AtomicLong();
+        /**
+         * Failed transfers.
+         */
+        private final transient AtomicLong failed = new AtomicLong();
+        /**
+         * Bytes.
+         */
+        private final transient AtomicLong bytes = new AtomicLong();
+        /**
+         * Time, in milliseconds.
+         */
+        private final transient AtomicLong time = new AtomicLong();
+        /**
+         * Resolutions from local repository or reactor.
+         */
+        private final transient AtomicLong hits = new AtomicLong();
+        /**
+         * Resolutions from remote repositories.
+         */
+        private final transient AtomicLong misses = new AtomicLong();
+        /**
+         * Add a download or a transfer.
+         * @param size Bytes
+         * @param millis Time
+         * @param success TRUE if succeeded
+         */
+        public void add(final long size, final long millis,
+            final boolean success) {
+            this.count.incrementAndGet();
+            if (!success) {
+                this.failed.incrementAndGet();
+            }
+            this.bytes.addAndGet(size);
+            this.time.addAndGet(millis);
+        }
+        /**
+         * Add all counters of another group.
+         * @param other The group
+         */
+        public void merge(final Downloads.Stats other) {
+            this.count.addAndGet(other.count.get());
+            this.failed.addAndGet(other.failed.get());
+            this.bytes.addAndGet(other.bytes.get());
+            this.time.addAndGet(other.time.get());
+            this.hits.addAndGet(other.hits.get());
+            this.misses.addAndGet(other.misses.get());
+        }
+        /**
+         * Bytes per second.
+         * @return Throughput, zero if unknown
+         */
+        public long throughput() {
+            long speed = 0L;
+            if (this.time.get() > 0L) {
+                speed = this.bytes.get() * 1000L / this.time.get();
+            }
+            return speed;
+        }
+    }
+
+}
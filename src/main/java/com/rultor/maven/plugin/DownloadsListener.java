@@ -0,0 +1,224 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenSession;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+
+/**
+ * Execution listener that attributes artifact resolutions and downloads
+ * to projects and mojos, and reports them in a step at the end.
+ *
+ * <p>The repository session is created by Maven before any plugin runs,
+ * that's why listeners set in the execution request are never used.
+ * Instead, the listener decorates transfer and repository listeners of
+ * the repository session itself and puts the originals back when
+ * the session ends. Maven 3.1 and later use Eclipse Aether, which is
+ * not visible to plugins, so the constructor throws {@link LinkageError}
+ * there.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@SuppressWarnings("PMD.TooManyMethods")
+final class DownloadsListener implements ExecutionListener {
+
+    /**
+     * Target execution origin.
+     */
+    private final transient ExecutionListener origin;
+
+    /**
+     * Where to send Xembly directives.
+     */
+    private final transient Emitter emitter;
+
+    /**
+     * The downloads.
+     */
+    private final transient Downloads downloads;
+
+    /**
+     * Identities of projects and mojos, their IDs are keys of downloads.
+     */
+    private final transient Identities ids = new Identities();
+
+    /**
+     * Repository session, where spies are installed, or NULL.
+     */
+    private final transient DefaultRepositorySystemSession repo;
+
+    /**
+     * Constructor.
+     *
+     * @param lstnr Listener to call, which closes the emitter at the end
+     * @param emtr Emitter of directives.
+     * @param session Maven session
+     */
+    DownloadsListener(final ExecutionListener lstnr, final Emitter emtr,
+        final MavenSession session) {
+        this.origin = lstnr;
+        this.emitter = emtr;
+        this.downloads = new Downloads();
+        final RepositorySystemSession rss = session.getRepositorySession();
+        if (rss instanceof DefaultRepositorySystemSession) {
+            this.repo = DefaultRepositorySystemSession.class.cast(rss);
+            this.repo.setTransferListener(
+                new TransferSpy(this.repo.getTransferListener(), this.downloads)
+            );
+            this.repo.setRepositoryListener(
+                new RepositorySpy(
+                    this.repo.getRepositoryListener(), this.downloads
+                )
+            );
+        } else {
+            this.repo = null;
+            Logger.debug(
+                this, "Downloads are not reported in repository session %s",
+                rss
+            );
+        }
+    }
+
+    @Override
+    public void sessionEnded(final ExecutionEvent event) {
+        if (this.repo != null) {
+            if (this.repo.getTransferListener() instanceof TransferSpy) {
+                this.repo.setTransferListener(
+                    TransferSpy.class.cast(this.repo.getTransferListener())
+                        .original()
+                );
+            }
+            if (this.repo.getRepositoryListener() instanceof RepositorySpy) {
+                this.repo.setRepositoryListener(
+                    RepositorySpy.class.cast(this.repo.getRepositoryListener())
+                        .original()
+                );
+            }
+        }
+        this.emitter.emit(this.downloads.directives());
+        this.downloads.clear();
+        this.ids.clear();
+        this.origin.sessionEnded(event);
+    }
+
+    @Override
+    public void projectStarted(final ExecutionEvent event) {
+        this.downloads.enter(this.ids.project(event.getProject()).id());
+        this.origin.projectStarted(event);
+    }
+
+    @Override
+    public void mojoStarted(final ExecutionEvent event) {
+        this.downloads.enter(
+            this.ids.mojo(event.getProject(), event.getMojoExecution()).id()
+        );
+        this.origin.mojoStarted(event);
+    }
+
+    @Override
+    public void mojoSucceeded(final ExecutionEvent event) {
+        this.downloads.enter(this.ids.project(event.getProject()).id());
+        this.origin.mojoSucceeded(event);
+    }
+
+    @Override
+    public void mojoFailed(final ExecutionEvent event) {
+        this.downloads.enter(this.ids.project(event.getProject()).id());
+        this.origin.mojoFailed(event);
+    }
+
+    @Override
+    public void projectDiscoveryStarted(final ExecutionEvent event) {
+        this.origin.projectDiscoveryStarted(event);
+    }
+
+    @Override
+    public void sessionStarted(final ExecutionEvent event) {
+        this.origin.sessionStarted(event);
+    }
+
+    @Override
+    public void projectSkipped(final ExecutionEvent event) {
+        this.origin.projectSkipped(event);
+    }
+
+    @Override
+    public void projectSucceeded(final ExecutionEvent event) {
+        this.origin.projectSucceeded(event);
+    }
+
+    @Override
+    public void projectFailed(final ExecutionEvent event) {
+        this.origin.projectFailed(event);
+    }
+
+    @Override
+    public void mojoSkipped(final ExecutionEvent event) {
+        this.origin.mojoSkipped(event);
+    }
+
+    @Override
+    public void forkStarted(final ExecutionEvent event) {
+        this.ids.mojo(event.getProject(), event.getMojoExecution());
+        this.origin.forkStarted(event);
+    }
+
+    @Override
+    public void forkSucceeded(final ExecutionEvent event) {
+        this.origin.forkSucceeded(event);
+    }
+
+    @Override
+    public void forkFailed(final ExecutionEvent event) {
+        this.origin.forkFailed(event);
+    }
+
+    @Override
+    public void forkedProjectStarted(final ExecutionEvent event) {
+        this.origin.forkedProjectStarted(event);
+    }
+
+    @Override
+    public void forkedProjectSucceeded(final ExecutionEvent event) {
+        this.origin.forkedProjectSucceeded(event);
+    }
+
+    @Override
+    public void forkedProjectFailed(final ExecutionEvent event) {
+        this.origin.forkedProjectFailed(event);
+    }
+
+}
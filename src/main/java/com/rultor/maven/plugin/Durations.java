@@ -0,0 +1,318 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.rultor.snapshot.XemblyLine;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xembly.Directive;
+import org.xembly.Directives;
+import org.xembly.ImpossibleModificationException;
+import org.xembly.XemblySyntaxException;
+
+/**
+ * Durations of steps in a build snapshot, read from a build log with
+ * Xembly lines or from an XML snapshot.
+ *
+ * <p>Both are read as streams, line by line or element by element,
+ * and only step IDs and their durations are kept in memory. In a log,
+ * Xembly lines are applied one by one to a skeleton of the snapshot,
+ * through the public {@link Directive} API, and whatever a line adds
+ * is cut off right after the durations of its steps are taken, so that
+ * the skeleton keeps nothing but steps with their IDs.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString
+@EqualsAndHashCode(of = "file")
+final class Durations {
+
+    /**
+     * Steps element.
+     */
+    private static final String STEPS = "steps";
+
+    /**
+     * Step element.
+     */
+    private static final String ELEMENT = "step";
+
+    /**
+     * Duration element.
+     */
+    private static final String DURATION = "duration";
+
+    /**
+     * File to read, either XML (by extension) or a log.
+     */
+    private final transient File file;
+
+    /**
+     * Public ctor.
+     * @param path File to read
+     */
+    Durations(final File path) {
+        this.file = path;
+    }
+
+    /**
+     * Read durations.
+     * @return Durations of steps in milliseconds, by step IDs
+     * @throws IOException If fails
+     */
+    public Map<String, Long> read() throws IOException {
+        final Map<String, Long> durations = new TreeMap<String, Long>();
+        if (this.file.getName().endsWith(".xml")) {
+            this.xml(durations);
+        } else {
+            this.log(durations);
+        }
+        return durations;
+    }
+
+    /**
+     * Read XML snapshot.
+     * @param durations Where to put durations
+     * @throws IOException If fails
+     */
+    private void xml(final Map<String, Long> durations) throws IOException {
+        final InputStream input = new BufferedInputStream(
+            new FileInputStream(this.file)
+        );
+        try {
+            final XMLStreamReader xml = XMLInputFactory.newInstance()
+                .createXMLStreamReader(input);
+            String step = null;
+            int depth = 0;
+            int level = 0;
+            while (xml.hasNext()) {
+                final int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    ++depth;
+                    final String name = xml.getLocalName();
+                    if (Durations.ELEMENT.equals(name)) {
+                        step = xml.getAttributeValue(null, "id");
+                        level = depth;
+                    } else if (Durations.DURATION.equals(name)
+                        && step != null && depth == level + 1) {
+                        durations.put(
+                            step, Long.parseLong(xml.getElementText().trim())
+                        );
+                        --depth;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == level) {
+                        step = null;
+                    }
+                    --depth;
+                }
+            }
+            xml.close();
+        } catch (final XMLStreamException ex) {
+            throw new IOException(
+                String.format("broken XML in %s", this.file), ex
+            );
+        } catch (final NumberFormatException ex) {
+            throw new IOException(
+                String.format("broken duration in %s", this.file), ex
+            );
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Read build log, ignoring broken Xembly lines.
+     * @param durations Where to put durations
+     * @throws IOException If fails
+     */
+    private void log(final Map<String, Long> durations) throws IOException {
+        final Document skeleton = Durations.skeleton();
+        final BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new FileInputStream(this.file), "UTF-8")
+        );
+        try {
+            while (true) {
+                final String line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                if (XemblyLine.existsIn(line)) {
+                    try {
+                        Durations.scan(
+                            new Directives(XemblyLine.parse(line).xembly()),
+                            skeleton, durations
+                        );
+                    } catch (final XemblySyntaxException ex) {
+                        continue;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Find durations of steps in one Xembly line and cut off everything
+     * it added to the skeleton, except steps and their IDs.
+     * @param dirs Directives of the line
+     * @param skeleton Skeleton of the snapshot
+     * @param durations Where to put durations
+     */
+    private static void scan(final Iterable<Directive> dirs,
+        final Document skeleton, final Map<String, Long> durations) {
+        final Collection<Node> touched = new LinkedList<Node>();
+        Collection<Node> nodes = Collections.<Node>singletonList(skeleton);
+        for (final Directive dir : dirs) {
+            try {
+                nodes = dir.exec(skeleton, nodes);
+            } catch (final ImpossibleModificationException ex) {
+                break;
+            }
+            touched.addAll(nodes);
+        }
+        final Collection<Node> tops = new LinkedHashSet<Node>(0);
+        for (final Node node : touched) {
+            final Node top = Durations.top(skeleton, node);
+            if (top != null) {
+                tops.add(top);
+            }
+        }
+        for (final Node top : tops) {
+            if (Durations.ELEMENT.equals(top.getNodeName())) {
+                Durations.strip((Element) top, durations);
+            } else {
+                top.getParentNode().removeChild(top);
+            }
+        }
+    }
+
+    /**
+     * Take the duration of a step and remove everything from it,
+     * except its ID.
+     * @param step Step element
+     * @param durations Where to put durations
+     */
+    private static void strip(final Element step,
+        final Map<String, Long> durations) {
+        final String id = step.getAttribute("id");
+        while (step.hasChildNodes()) {
+            final Node child = step.getFirstChild();
+            if (Durations.DURATION.equals(child.getNodeName())
+                && !id.isEmpty()) {
+                try {
+                    durations.put(
+                        id, Long.parseLong(child.getTextContent().trim())
+                    );
+                } catch (final NumberFormatException ex) {
+                    durations.remove(id);
+                }
+            }
+            step.removeChild(child);
+        }
+        final NamedNodeMap attrs = step.getAttributes();
+        for (int idx = attrs.getLength() - 1; idx >= 0; --idx) {
+            final Node attr = attrs.item(idx);
+            if (!"id".equals(attr.getNodeName())) {
+                step.removeAttributeNode((Attr) attr);
+            }
+        }
+    }
+
+    /**
+     * Top node, which the given node belongs to: either a step or
+     * an element of the snapshot other than steps.
+     * @param skeleton Skeleton of the snapshot
+     * @param node The node
+     * @return Top node or NULL if the node is above them or detached
+     */
+    private static Node top(final Document skeleton, final Node node) {
+        final Node root = skeleton.getDocumentElement();
+        Node top = null;
+        Node cur = node;
+        while (cur != null) {
+            final Node parent = cur.getParentNode();
+            if (parent == root && !Durations.STEPS.equals(cur.getNodeName())
+                || parent != null && parent.getParentNode() == root
+                && Durations.STEPS.equals(parent.getNodeName())) {
+                top = cur;
+                break;
+            }
+            cur = parent;
+        }
+        return top;
+    }
+
+    /**
+     * Empty skeleton of a snapshot.
+     * @return Document
+     * @throws IOException If fails
+     */
+    private static Document skeleton() throws IOException {
+        final Document doc;
+        try {
+            doc = DocumentBuilderFactory.newInstance()
+                .newDocumentBuilder().newDocument();
+        } catch (final ParserConfigurationException ex) {
+            throw new IOException(ex);
+        }
+        doc.appendChild(doc.createElement("snapshot"));
+        return doc;
+    }
+
+}
@@ -0,0 +1,267 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import com.rultor.tools.Exceptions;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import lombok.ToString;
+import org.xembly.Directives;
+
+/**
+ * Encoder of failures into bounded Xembly payloads.
+ *
+ * <p>Stack traces of causes are written without frames they share with
+ * the enclosing trace, as "... N more", and the whole stack trace and
+ * the message are cut at the given number of characters. Every stack
+ * trace has a fingerprint, a hash of exception classes and frames of
+ * all its causes, without messages. When the same stack trace fails
+ * again, for example in another module, only its class, fingerprint
+ * and message are reported. The full stack trace of every fingerprint
+ * is saved to {@code <directory>/<fingerprint>.txt}, when the directory
+ * is set.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString(of = { "dir", "cap" })
+final class Failures {
+
+    /**
+     * Default maximum length of stack trace and message, in characters.
+     */
+    static final int CAP = 16384;
+
+    /**
+     * Length of fingerprint, in bytes.
+     */
+    private static final int LENGTH = 8;
+
+    /**
+     * Marker of truncated text.
+     */
+    private static final String CUT = "\n\t... truncated";
+
+    /**
+     * Directory for full stack traces, or NULL.
+     */
+    private final transient File dir;
+
+    /**
+     * Maximum length of stack trace and message, in characters.
+     */
+    private final transient int cap;
+
+    /**
+     * Fingerprints already reported.
+     */
+    private final transient ConcurrentMap<String, Boolean> seen =
+        new ConcurrentHashMap<String, Boolean>(0);
+
+    /**
+     * Public ctor, without full stack traces.
+     */
+    Failures() {
+        this(null, Failures.CAP);
+    }
+
+    /**
+     * Public ctor.
+     * @param folder Directory for full stack traces, NULL for none
+     * @param max Maximum length of stack trace and message
+     */
+    Failures(final File folder, final int max) {
+        this.dir = folder;
+        this.cap = max;
+    }
+
+    /**
+     * Directives adding {@code exception} element to the current node,
+     * and leaving the pointer at it.
+     * @param error The problem
+     * @return Directives
+     */
+    public Directives exception(final Throwable error) {
+        final String print = Failures.fingerprint(error);
+        final Directives dirs = new Directives()
+            .add("exception")
+            .add("class").set(error.getClass().getCanonicalName()).up()
+            .add("fingerprint").set(print).up();
+        if (this.seen.putIfAbsent(print, Boolean.TRUE) == null) {
+            dirs.add("stacktrace").set(this.stacktrace(error)).up();
+            if (this.dir != null) {
+                final File file = new File(
+                    this.dir, String.format("%s.txt", print)
+                );
+                try {
+                    Failures.save(error, file);
+                    dirs.add("file").set(file.getAbsolutePath()).up();
+                } catch (final IOException ex) {
+                    Logger.warn(this, "Stack trace %s not saved: %s", file, ex);
+                }
+            }
+        }
+        return dirs.add("cause")
+            .set(this.cut(Exceptions.message(error)))
+            .up();
+    }
+
+    /**
+     * Stack trace, without common frames of causes, cut.
+     * @param error The problem
+     * @return Stack trace
+     */
+    private String stacktrace(final Throwable error) {
+        final StringBuilder text = new StringBuilder(0);
+        final Set<Throwable> done = Collections.newSetFromMap(
+            new IdentityHashMap<Throwable, Boolean>(0)
+        );
+        StackTraceElement[] enclosing = new StackTraceElement[0];
+        Throwable cause = error;
+        while (cause != null && done.add(cause)
+            && text.length() < this.cap) {
+            if (cause != error) {
+                text.append("\nCaused by: ");
+            }
+            text.append(cause);
+            final StackTraceElement[] frames = cause.getStackTrace();
+            int mine = frames.length - 1;
+            int theirs = enclosing.length - 1;
+            while (mine >= 0 && theirs >= 0
+                && frames[mine].equals(enclosing[theirs])) {
+                --mine;
+                --theirs;
+            }
+            for (int idx = 0; idx <= mine; ++idx) {
+                text.append("\n\tat ").append(frames[idx]);
+            }
+            if (mine < frames.length - 1) {
+                text.append("\n\t... ")
+                    .append(frames.length - 1 - mine)
+                    .append(" more");
+            }
+            enclosing = frames;
+            cause = cause.getCause();
+        }
+        return this.cut(text.toString());
+    }
+
+    /**
+     * Cut text to the maximum length.
+     * @param text Text
+     * @return Cut text
+     */
+    private String cut(final String text) {
+        final String cut;
+        if (text.length() > this.cap) {
+            cut = new StringBuilder(this.cap + Failures.CUT.length())
+                .append(text, 0, this.cap)
+                .append(Failures.CUT)
+                .toString();
+        } else {
+            cut = text;
+        }
+        return cut;
+    }
+
+    /**
+     * Save full stack trace.
+     * @param error The problem
+     * @param file File to write
+     * @throws IOException If fails
+     */
+    private static void save(final Throwable error, final File file)
+        throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException(String.format("can't create %s", parent));
+        }
+        final PrintWriter out = new PrintWriter(
+            new OutputStreamWriter(new FileOutputStream(file), "UTF-8")
+        );
+        try {
+            error.printStackTrace(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Fingerprint of a stack trace: classes and frames of all causes.
+     * @param error The problem
+     * @return Hex hash
+     */
+    private static String fingerprint(final Throwable error) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        final Set<Throwable> done = Collections.newSetFromMap(
+            new IdentityHashMap<Throwable, Boolean>(0)
+        );
+        Throwable cause = error;
+        try {
+            while (cause != null && done.add(cause)) {
+                digest.update(cause.getClass().getName().getBytes("UTF-8"));
+                for (final StackTraceElement frame : cause.getStackTrace()) {
+                    digest.update(frame.toString().getBytes("UTF-8"));
+                }
+                cause = cause.getCause();
+            }
+        } catch (final UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+        final byte[] hash = digest.digest();
+        final StringBuilder hex = new StringBuilder(Failures.LENGTH * 2);
+        for (int idx = 0; idx < Failures.LENGTH; ++idx) {
+            hex.append(String.format("%02x", hash[idx]));
+        }
+        return hex.toString();
+    }
+
+}
@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import com.rultor.tools.Time;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.ToString;
+import org.xembly.Directives;
+
+/**
+ * Steps with expected duration, progress of the build and its ETA,
+ * calculated from the {@link History} of previous builds.
+ *
+ * <p>When a step starts, it gets expected duration, percent of the build
+ * done and estimated time of the build completion. Percent done is
+ * the expected duration of all completed steps, divided by the total
+ * expected duration of the previous build. ETA extrapolates the speed
+ * of the build so far to the work left, which accounts for parallel
+ * builds. Both are calculated from two numbers, kept up to date
+ * incrementally when steps complete.
+ *
+ * <p>Measured durations of succeeded steps are recorded to the history,
+ * which is saved when reporting is closed.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString(of = { "origin", "history" })
+final class ForecastSteps implements Steps {
+
+    /**
+     * Percent of the whole.
+     */
+    private static final long PERCENT = 100L;
+
+    /**
+     * Original steps.
+     */
+    private final transient Steps origin;
+
+    /**
+     * Where to send Xembly directives.
+     */
+    private final transient Emitter emitter;
+
+    /**
+     * History of previous builds.
+     */
+    private final transient History history;
+
+    /**
+     * Total expected duration of the build, in milliseconds.
+     */
+    private final transient long total;
+
+    /**
+     * Expected duration of completed steps, in milliseconds.
+     */
+    private final transient AtomicLong done = new AtomicLong();
+
+    /**
+     * When the build started.
+     */
+    private final transient long begin;
+
+    /**
+     * Public ctor.
+     * @param steps Original steps
+     * @param emtr Emitter of directives
+     * @param hist History of previous builds
+     */
+    ForecastSteps(final Steps steps, final Emitter emtr, final History hist) {
+        this.origin = steps;
+        this.emitter = emtr;
+        this.history = hist;
+        this.total = hist.total();
+        this.begin = System.currentTimeMillis();
+    }
+
+    @Override
+    public void started(final Identity step) {
+        this.origin.started(step);
+        if (this.total > 0L) {
+            this.emitter.emit(step.id(), this.forecast(step));
+        }
+    }
+
+    @Override
+    public Span succeeded(final Identity step) {
+        final Span span = this.origin.succeeded(step);
+        if (span != null) {
+            this.history.record(step.id(), span.duration());
+        }
+        this.complete(step);
+        return span;
+    }
+
+    @Override
+    public void skipped(final Identity step) {
+        this.origin.skipped(step);
+        this.complete(step);
+    }
+
+    @Override
+    public Span failed(final Identity step, final Throwable error) {
+        final Span span = this.origin.failed(step, error);
+        this.complete(step);
+        return span;
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.history.save();
+        } catch (final IOException ex) {
+            Logger.warn(this, "History %s is not saved: %s", this.history, ex);
+        } finally {
+            this.origin.close();
+        }
+    }
+
+    /**
+     * Step completed, one way or another.
+     * @param step Identity of the step
+     */
+    private void complete(final Identity step) {
+        this.done.addAndGet(this.history.expected(step.id()));
+    }
+
+    /**
+     * Forecast for a step just started.
+     * @param step Identity of the step
+     * @return Directives
+     */
+    private Directives forecast(final Identity step) {
+        final long now = System.currentTimeMillis();
+        final long finished = Math.min(this.done.get(), this.total);
+        final long left;
+        if (finished == 0L) {
+            left = this.total;
+        } else {
+            left = (now - this.begin) * (this.total - finished) / finished;
+        }
+        final long percent = finished * ForecastSteps.PERCENT / this.total;
+        final Directives dirs = new Directives()
+            .xpath("/snapshot/steps")
+            .xpath(step.xpath());
+        final long expected = this.history.expected(step.id());
+        if (expected > 0L) {
+            dirs.add("expected").set(Long.toString(expected)).up();
+        }
+        return dirs
+            .add("progress").set(Long.toString(percent)).up()
+            .add("eta").set(new Time(now + left).toString()).up()
+            .xpath("summary").set(
+                String.format(
+                    "%s running, %d%% of build done, %s left...",
+                    step.label(), percent, Logger.format("%[ms]s", left)
+                )
+            );
+    }
+
+}
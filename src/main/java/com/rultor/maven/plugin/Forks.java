@@ -0,0 +1,287 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import com.rultor.tools.Time;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import lombok.ToString;
+import org.xembly.Directives;
+
+/**
+ * Forked lifecycles, reported inside steps which own them.
+ *
+ * <p>Maven runs a forked lifecycle before the mojo which requested it
+ * is started, so forks can't be added to the step when they start.
+ * Instead, they are collected in memory and added to the owner step,
+ * a mojo or a project, as {@code fork} elements when the owner
+ * completes. Every fork has its start, finish, duration and durations
+ * of forked projects; projects which didn't complete are reported
+ * without durations, as {@code incomplete}. The total time spent
+ * in forks is reported as a separate step, {@link #ID}, at the end
+ * of the build.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString(of = { "count", "total" })
+final class Forks {
+
+    /**
+     * ID of the step with total time of forks.
+     */
+    static final String ID = "forks";
+
+    /**
+     * Forks in progress, by mojos which requested them.
+     */
+    private final transient ConcurrentMap<Identity, Forks.Fork> running =
+        new ConcurrentHashMap<Identity, Forks.Fork>(0);
+
+    /**
+     * Completed forks, by owner steps.
+     */
+    private final transient ConcurrentMap<Identity, List<Forks.Fork>> done =
+        new ConcurrentHashMap<Identity, List<Forks.Fork>>(0);
+
+    /**
+     * Where to send Xembly directives.
+     */
+    private final transient Emitter emitter;
+
+    /**
+     * Number of completed forks.
+     */
+    private transient int count;
+
+    /**
+     * Total duration of completed forks, in milliseconds.
+     */
+    private transient long total;
+
+    /**
+     * Start of the first fork.
+     */
+    private transient long first = Long.MAX_VALUE;
+
+    /**
+     * Finish of the last fork.
+     */
+    private transient long last;
+
+    /**
+     * Public ctor.
+     * @param emtr Emitter of directives
+     */
+    Forks(final Emitter emtr) {
+        this.emitter = emtr;
+    }
+
+    /**
+     * Fork started.
+     * @param mojo Mojo which requested it
+     */
+    public void started(final Identity mojo) {
+        this.running.put(
+            mojo, new Forks.Fork(mojo.label(), System.currentTimeMillis())
+        );
+    }
+
+    /**
+     * Project in a fork started.
+     * @param mojo Mojo which requested the fork
+     * @param project ID of the project
+     */
+    public void projectStarted(final Identity mojo, final String project) {
+        final Forks.Fork fork = this.running.get(mojo);
+        if (fork != null) {
+            synchronized (fork) {
+                fork.starts.put(project, System.currentTimeMillis());
+            }
+        }
+    }
+
+    /**
+     * Project in a fork completed, one way or another.
+     * @param mojo Mojo which requested the fork
+     * @param project ID of the project
+     */
+    public void projectCompleted(final Identity mojo, final String project) {
+        final Forks.Fork fork = this.running.get(mojo);
+        if (fork != null) {
+            synchronized (fork) {
+                final Long start = fork.starts.get(project);
+                if (start != null) {
+                    fork.durations.put(
+                        project, System.currentTimeMillis() - start
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * Fork completed, one way or another.
+     * @param mojo Mojo which requested it
+     * @param owner Step that will report it, the mojo or its project
+     */
+    public void completed(final Identity mojo, final Identity owner) {
+        final Forks.Fork fork = this.running.remove(mojo);
+        if (fork != null) {
+            fork.finish = System.currentTimeMillis();
+            this.done.putIfAbsent(owner, new LinkedList<Forks.Fork>());
+            final List<Forks.Fork> forks = this.done.get(owner);
+            synchronized (forks) {
+                forks.add(fork);
+            }
+            synchronized (this) {
+                ++this.count;
+                this.total += fork.finish - fork.start;
+                this.first = Math.min(this.first, fork.start);
+                this.last = Math.max(this.last, fork.finish);
+            }
+        }
+    }
+
+    /**
+     * Owner step completed, report its forks, if any.
+     * @param owner Owner step, already in the snapshot
+     */
+    public void report(final Identity owner) {
+        final List<Forks.Fork> forks = this.done.remove(owner);
+        if (forks != null) {
+            final Directives dirs = new Directives();
+            synchronized (forks) {
+                for (final Forks.Fork fork : forks) {
+                    dirs.xpath("/snapshot/steps")
+                        .xpath(owner.xpath())
+                        .add("fork")
+                        .attr("mojo", fork.mojo)
+                        .add("start").set(new Time(fork.start).toString())
+                        .up()
+                        .add("finish").set(new Time(fork.finish).toString())
+                        .up()
+                        .add("duration")
+                        .set(Long.toString(fork.finish - fork.start))
+                        .up();
+                    for (final String project : fork.starts.keySet()) {
+                        dirs.add("project").attr("id", project);
+                        final Long duration = fork.durations.get(project);
+                        if (duration == null) {
+                            dirs.attr("status", "incomplete");
+                        } else {
+                            dirs.attr("duration", duration.toString());
+                        }
+                        dirs.up();
+                    }
+                }
+            }
+            this.emitter.emit(owner.id(), dirs);
+        }
+    }
+
+    /**
+     * Report total time spent in forks, if there were any.
+     */
+    public void close() {
+        synchronized (this) {
+            if (this.count > 0) {
+                this.emitter.emit(
+                    new Directives()
+                        .xpath("/snapshot").strict(1)
+                        .addIf("steps").add("step")
+                        .attr("id", Forks.ID)
+                        .add("summary")
+                        .set(
+                            Logger.format(
+                                "%d forked lifecycle(s) took %[ms]s",
+                                this.count, this.total
+                            )
+                        ).up()
+                        .add("start").set(new Time(this.first).toString())
+                        .up()
+                        .add("finish").set(new Time(this.last).toString())
+                        .up()
+                        .add("level").set(Level.INFO.toString()).up()
+                        .add("duration").set(Long.toString(this.total))
+                );
+            }
+        }
+        this.running.clear();
+        this.done.clear();
+    }
+
+    /**
+     * Forked lifecycle.
+     */
+    private static final class Fork {
+        /**
+         * Label of the mojo which requested it.
+         */
+        private final transient String mojo;
+        /**
+         * Start time, in milliseconds.
+         */
+        private final transient long start;
+        /**
+         * Start times of forked projects, in milliseconds.
+         */
+        private final transient Map<String, Long> starts =
+            new LinkedHashMap<String, Long>(0);
+        /**
+         * Durations of completed forked projects, in milliseconds.
+         */
+        private final transient Map<String, Long> durations =
+            new HashMap<String, Long>(0);
+        /**
+         * Finish time, in milliseconds.
+         */
+        private transient long finish;
+        /**
+         * Ctor.
+         * @param label Label of the mojo
+         * @param time Start time
+         */
+        Fork(final String label, final long time) {
+            this.mojo = label;
+            this.start = time;
+        }
+    }
+
+}
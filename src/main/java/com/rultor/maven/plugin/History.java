@@ -0,0 +1,240 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import lombok.ToString;
+
+/**
+ * Durations of steps measured in previous builds, stored in a text file.
+ *
+ * <p>Every line of the file is a step: its expected duration in
+ * milliseconds, how many builds ago it was seen last time, and its ID.
+ * Expected duration is an exponentially weighted moving average of
+ * measured durations, where the latest build has weight {@link #ALPHA}.
+ * Steps not seen for {@link #AGE} builds are forgotten.
+ *
+ * <p>The file is read once, in constructor. Durations measured in this
+ * build are kept in memory and written to the file by {@link #save()},
+ * through a temporary file, so that a concurrent build never reads
+ * a half-written history.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@ToString(of = "file")
+final class History {
+
+    /**
+     * Weight of the latest build in expected duration.
+     */
+    static final double ALPHA = 0.3;
+
+    /**
+     * How many builds a step is remembered without being seen.
+     */
+    static final int AGE = 10;
+
+    /**
+     * Encoding of the file.
+     */
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * File with history.
+     */
+    private final transient File file;
+
+    /**
+     * Expected durations of steps, loaded from the file.
+     */
+    private final transient Map<String, Long> past;
+
+    /**
+     * How many builds ago steps were seen, loaded from the file.
+     */
+    private final transient Map<String, Integer> ages;
+
+    /**
+     * Durations measured in this build.
+     */
+    private final transient ConcurrentMap<String, Long> recent =
+        new ConcurrentHashMap<String, Long>(0);
+
+    /**
+     * Public ctor.
+     * @param path File with history, may be absent
+     * @throws IOException If fails to read it
+     */
+    History(final File path) throws IOException {
+        this.file = path;
+        this.past = new ConcurrentHashMap<String, Long>(0);
+        this.ages = new ConcurrentHashMap<String, Integer>(0);
+        if (path.exists()) {
+            this.load();
+        }
+    }
+
+    /**
+     * Expected duration of a step.
+     * @param step ID of the step
+     * @return Duration in milliseconds, zero if unknown
+     */
+    public long expected(final String step) {
+        final Long millis = this.past.get(step);
+        final long expected;
+        if (millis == null) {
+            expected = 0L;
+        } else {
+            expected = millis;
+        }
+        return expected;
+    }
+
+    /**
+     * Total expected duration of all steps seen in the previous build.
+     * @return Duration in milliseconds, zero if there was no build
+     */
+    public long total() {
+        long total = 0L;
+        for (final Map.Entry<String, Long> entry : this.past.entrySet()) {
+            if (this.ages.get(entry.getKey()) == 0) {
+                total += entry.getValue();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Record duration of a step measured in this build.
+     * @param step ID of the step
+     * @param millis Duration in milliseconds
+     */
+    public void record(final String step, final long millis) {
+        this.recent.put(step, millis);
+    }
+
+    /**
+     * Save history with durations measured in this build.
+     * @throws IOException If fails
+     */
+    public void save() throws IOException {
+        final Map<String, String> lines = new TreeMap<String, String>();
+        for (final Map.Entry<String, Long> entry : this.past.entrySet()) {
+            final int age = this.ages.get(entry.getKey()) + 1;
+            if (age < History.AGE) {
+                lines.put(
+                    entry.getKey(),
+                    String.format("%d %d", entry.getValue(), age)
+                );
+            }
+        }
+        for (final Map.Entry<String, Long> entry : this.recent.entrySet()) {
+            final long before = this.expected(entry.getKey());
+            long millis = entry.getValue();
+            if (before > 0L) {
+                millis = Math.round(
+                    before + History.ALPHA * (millis - before)
+                );
+            }
+            lines.put(entry.getKey(), String.format("%d 0", millis));
+        }
+        final File dir = this.file.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException(String.format("can't create %s", dir));
+        }
+        final File temp = File.createTempFile("history", ".tmp", dir);
+        final PrintWriter out = new PrintWriter(
+            new OutputStreamWriter(
+                new FileOutputStream(temp), History.ENCODING
+            )
+        );
+        try {
+            for (final Map.Entry<String, String> line : lines.entrySet()) {
+                out.printf("%s %s\n", line.getValue(), line.getKey());
+            }
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(this.file)
+            && !(this.file.delete() && temp.renameTo(this.file))) {
+            throw new IOException(
+                String.format("can't rename %s to %s", temp, this.file)
+            );
+        }
+    }
+
+    /**
+     * Load the file, ignoring broken lines.
+     * @throws IOException If fails
+     */
+    private void load() throws IOException {
+        final BufferedReader reader = new BufferedReader(
+            new InputStreamReader(
+                new FileInputStream(this.file), History.ENCODING
+            )
+        );
+        try {
+            while (true) {
+                final String line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                final String[] parts = line.split(" ", 3);
+                if (parts.length < 3) {
+                    continue;
+                }
+                try {
+                    this.past.put(parts[2], Long.parseLong(parts[0]));
+                    this.ages.put(parts[2], Integer.parseInt(parts[1]));
+                } catch (final NumberFormatException ex) {
+                    this.past.remove(parts[2]);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+}
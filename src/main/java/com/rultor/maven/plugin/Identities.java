@@ -0,0 +1,271 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Cache of step identities, weakly keyed by projects and mojo
+ * executions.
+ *
+ * <p>Every project and every mojo execution gets its {@link Identity}
+ * once, on first event, and then it's reused. The cache is split into
+ * stripes, each is a {@link WeakHashMap} guarded by its own monitor,
+ * so that projects and executions, which are not used by Maven any
+ * more, don't stay in memory.
+ *
+ * <p>IDs of mojos include coordinates of their projects, since the same
+ * goal runs in many modules, often at the same time. Maven creates
+ * separate executions for forked lifecycles, and they may have the
+ * same coordinates as executions of the main lifecycle. That's why
+ * executions forked by a mojo get its coordinates after {@code @},
+ * when the identity of the mojo is created, which happens on
+ * {@code forkStarted}, before any forked execution starts. These IDs
+ * don't depend on the order of events, and stay the same from build
+ * to build, even with many threads. An ID which was already given
+ * to another execution of the same project, like the same fork
+ * requested twice, gets a numeric suffix, like {@code #2}, in the order
+ * of execution within the project, since a project is built
+ * by one thread.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class Identities {
+
+    /**
+     * Number of stripes, power of two.
+     */
+    private static final int STRIPES = 16;
+
+    /**
+     * Stripes of the cache.
+     */
+    private final transient List<Map<Object, Identity>> stripes;
+
+    /**
+     * Next number.
+     */
+    private final transient AtomicInteger next = new AtomicInteger();
+
+    /**
+     * How many times every ID was given.
+     */
+    private final transient ConcurrentMap<String, AtomicInteger> given =
+        new ConcurrentHashMap<String, AtomicInteger>(0);
+
+    /**
+     * Public ctor.
+     */
+    Identities() {
+        this.stripes = new ArrayList<Map<Object, Identity>>(
+            Identities.STRIPES
+        );
+        for (int idx = 0; idx < Identities.STRIPES; ++idx) {
+            this.stripes.add(new WeakHashMap<Object, Identity>(0));
+        }
+    }
+
+    /**
+     * Identity of a project.
+     * @param project The project
+     * @return Identity
+     */
+    public Identity project(final MavenProject project) {
+        Identity ident = this.find(project);
+        if (ident == null) {
+            ident = this.store(
+                project,
+                XemblyProjects.identifier(project),
+                project.getArtifactId()
+            );
+        }
+        return ident;
+    }
+
+    /**
+     * Identity of a mojo execution.
+     * @param project Project the mojo is executed in
+     * @param mojo The execution
+     * @return Identity
+     */
+    public Identity mojo(final MavenProject project, final MojoExecution mojo) {
+        Identity ident = this.find(mojo);
+        if (ident == null) {
+            final String prefix = XemblyProjects.identifier(project);
+            ident = this.store(mojo, Identities.id(prefix, mojo, ""));
+            this.forked(prefix, mojo, ident);
+        }
+        return ident;
+    }
+
+    /**
+     * Give identities to executions forked by a mojo, unless they
+     * have them already, with IDs derived from the mojo.
+     * @param prefix ID of the project
+     * @param mojo The mojo
+     * @param owner Identity of the mojo
+     */
+    private void forked(final String prefix, final MojoExecution mojo,
+        final Identity owner) {
+        final String suffix = owner.id().substring(prefix.length() + 1);
+        for (final List<MojoExecution> execs
+            : mojo.getForkedExecutions().values()) {
+            for (final MojoExecution exec : execs) {
+                if (this.find(exec) == null) {
+                    this.forked(
+                        prefix, exec,
+                        this.store(exec, Identities.id(prefix, exec, suffix))
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget all identities, when the session ends.
+     */
+    public void clear() {
+        for (final Map<Object, Identity> stripe : this.stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+        this.given.clear();
+    }
+
+    /**
+     * Create and cache identity of a mojo execution.
+     * @param mojo The execution
+     * @param id ID of the step
+     * @return Identity
+     */
+    private Identity store(final MojoExecution mojo, final String id) {
+        return this.store(
+            mojo, id,
+            String.format("%s:%s", mojo.getArtifactId(), mojo.getGoal())
+        );
+    }
+
+    /**
+     * ID of a mojo execution.
+     * @param prefix ID of the project
+     * @param mojo The execution
+     * @param owner ID of the mojo which forked it, relative to the
+     *  project, or empty if it's not forked
+     * @return ID
+     */
+    private static String id(final String prefix, final MojoExecution mojo,
+        final String owner) {
+        final StringBuilder id = new StringBuilder(0)
+            .append(prefix).append('/')
+            .append(mojo.getGroupId()).append(':')
+            .append(mojo.getArtifactId()).append(':')
+            .append(mojo.getGoal()).append(':')
+            .append(mojo.getExecutionId());
+        if (!owner.isEmpty()) {
+            id.append('@').append(owner);
+        }
+        return id.toString();
+    }
+
+    /**
+     * Find cached identity.
+     * @param key Key
+     * @return Identity or NULL
+     */
+    private Identity find(final Object key) {
+        final Map<Object, Identity> stripe = this.stripe(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    /**
+     * Create and cache identity, unless another thread did it first.
+     * @param key Key
+     * @param id ID of the step
+     * @param label Label of the step
+     * @return Identity
+     */
+    private Identity store(final Object key, final String id,
+        final String label) {
+        final Map<Object, Identity> stripe = this.stripe(key);
+        synchronized (stripe) {
+            Identity ident = stripe.get(key);
+            if (ident == null) {
+                ident = new Identity(
+                    this.next.getAndIncrement(), this.unique(id), label
+                );
+                stripe.put(key, ident);
+            }
+            return ident;
+        }
+    }
+
+    /**
+     * Make ID unique, adding a suffix if it was given already.
+     * @param id ID of the step
+     * @return Unique ID
+     */
+    private String unique(final String id) {
+        final AtomicInteger count =
+            this.given.putIfAbsent(id, new AtomicInteger(1));
+        final String unique;
+        if (count == null) {
+            unique = id;
+        } else {
+            unique = String.format("%s#%d", id, count.incrementAndGet());
+        }
+        return unique;
+    }
+
+    /**
+     * Stripe of the key.
+     * @param key Key
+     * @return Stripe
+     */
+    private Map<Object, Identity> stripe(final Object key) {
+        final int hash = key.hashCode();
+        return this.stripes.get(
+            (hash ^ (hash >>> 16)) & (Identities.STRIPES - 1)
+        );
+    }
+
+}
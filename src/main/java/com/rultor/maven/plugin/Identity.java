@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+/**
+ * Identity of a build step: its number, its ID and label in snapshot.
+ *
+ * <p>All strings are calculated once, when the identity is created by
+ * {@link Identities}, and are reused by every event of the step.
+ * Numbers are small and dense, they are used as indexes in
+ * {@link Timings}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class Identity {
+
+    /**
+     * Number.
+     */
+    private final transient int num;
+
+    /**
+     * ID in snapshot.
+     */
+    private final transient String ident;
+
+    /**
+     * Human readable label.
+     */
+    private final transient String lbl;
+
+    /**
+     * XPath of the step, relative to steps.
+     */
+    private final transient String path;
+
+    /**
+     * Summary of running step.
+     */
+    private final transient String run;
+
+    /**
+     * Summary of skipped step.
+     */
+    private final transient String skip;
+
+    /**
+     * Public ctor.
+     * @param number Number of the step
+     * @param id Unique ID of the step
+     * @param label Human readable label
+     */
+    Identity(final int number, final String id, final String label) {
+        this.num = number;
+        this.ident = id;
+        this.lbl = label;
+        this.path = Identity.xpath(id);
+        this.run = String.format("%s running...", label);
+        this.skip = String.format("%s skipped", label);
+    }
+
+    @Override
+    public String toString() {
+        return this.ident;
+    }
+
+    /**
+     * Number of the step.
+     * @return Number
+     */
+    public int number() {
+        return this.num;
+    }
+
+    /**
+     * ID of the step.
+     * @return ID
+     */
+    public String id() {
+        return this.ident;
+    }
+
+    /**
+     * Label of the step.
+     * @return Label
+     */
+    public String label() {
+        return this.lbl;
+    }
+
+    /**
+     * XPath of the step element, relative to {@code /snapshot/steps}.
+     * @return XPath
+     */
+    public String xpath() {
+        return this.path;
+    }
+
+    /**
+     * Summary of the step while it's running.
+     * @return Summary
+     */
+    public String running() {
+        return this.run;
+    }
+
+    /**
+     * Summary of the step when it's skipped.
+     * @return Summary
+     */
+    public String skipped() {
+        return this.skip;
+    }
+
+    /**
+     * XPath of a step element by its ID, relative to
+     * {@code /snapshot/steps}, for steps without identities.
+     * @param id ID of the step
+     * @return XPath
+     */
+    public static String xpath(final String id) {
+        return String.format("step[@id=%s]", Identity.literal(id));
+    }
+
+    /**
+     * XPath string literal.
+     * @param text Text
+     * @return Literal, in quotes
+     */
+    private static String literal(final String text) {
+        final String literal;
+        if (text.indexOf('\'') < 0) {
+            literal = String.format("'%s'", text);
+        } else {
+            literal = String.format("\"%s\"", text);
+        }
+        return literal;
+    }
+
+}
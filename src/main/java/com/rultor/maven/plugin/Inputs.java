@@ -0,0 +1,782 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.ToString;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Resource;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Fingerprints of inputs of projects: POM, sources, resources and
+ * dependencies.
+ *
+ * <p>A fingerprint is a SHA-1 of relative paths and SHA-1 hashes of all
+ * input files, coordinates of declared dependencies, sizes and times of
+ * files of resolved ones and fingerprints of upstream projects of
+ * the reactor. Hashes of files are cached together with their sizes
+ * and modification times, so only changed files are read again.
+ * Directories are walked and files are read in parallel, by one pool
+ * of as many threads as there are processors, shared by all projects
+ * and closed by {@link #close()}, so that parallel builds don't get
+ * a pool per project. Large files are memory-mapped. Sources generated
+ * during the build, in {@code generated-*} directories of the build
+ * directory, are not inputs.
+ *
+ * <p>Every project has its own text file in the directory: its first
+ * line is the fingerprint of the last successful build, the rest are
+ * cached hashes, one file per line: size, modification time, hash and
+ * path. It is written through a temporary file, like {@link History}.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@ToString(of = "dir")
+final class Inputs {
+
+    /**
+     * Encoding of files.
+     */
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * Files larger than this are memory-mapped, in bytes.
+     */
+    private static final long MAPPED = 1L << 20;
+
+    /**
+     * Size of a memory-mapped region, in bytes.
+     */
+    private static final long CHUNK = 1L << 26;
+
+    /**
+     * Fingerprint of a project never built successfully.
+     */
+    private static final String NONE = "-";
+
+    /**
+     * Directory with files of projects.
+     */
+    private final transient File dir;
+
+    /**
+     * Threads walking directories and reading files.
+     */
+    private final transient ThreadPoolExecutor svc;
+
+    /**
+     * Projects fingerprinted in this build, by project ID.
+     */
+    private final transient ConcurrentMap<String, Inputs.Print> prints =
+        new ConcurrentHashMap<String, Inputs.Print>(0);
+
+    /**
+     * Complete fingerprints of projects built successfully in this build,
+     * by project ID.
+     */
+    private final transient ConcurrentMap<String, String> done =
+        new ConcurrentHashMap<String, String>(0);
+
+    /**
+     * Public ctor.
+     * @param path Directory with files of projects, may be absent
+     */
+    Inputs(final File path) {
+        this.dir = path;
+        final int threads = Runtime.getRuntime().availableProcessors();
+        this.svc = new ThreadPoolExecutor(
+            threads, threads, 1L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread =
+                        new Thread(runnable, "rultor-inputs");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }
+        );
+        this.svc.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Fingerprint inputs of a project when it starts: POM, sources,
+     * resources and declared dependencies.
+     * @param project The project
+     * @return Fingerprint of the sources, never unchanged
+     * @throws IOException If fails to read files
+     */
+    public Inputs.Print fingerprint(final MavenProject project)
+        throws IOException {
+        final Inputs.Print print = this.scan(project);
+        this.prints.put(XemblyProjects.identifier(project), print);
+        return print;
+    }
+
+    /**
+     * Project completed, add its resolved dependencies to the fingerprint
+     * and save its cached hashes.
+     *
+     * <p>Maven resolves dependencies right before the mojos requiring
+     * them, so they are known only when the project is completed.
+     * Projects of the reactor are represented by their own fingerprints,
+     * since their artifacts are rebuilt every time. If any of them is
+     * not known, the fingerprint is incomplete and never unchanged.
+     * @param project The project
+     * @param upstream Projects of the reactor it depends on
+     * @param success TRUE if it was built successfully
+     * @return Fingerprint
+     * @throws IOException If fails to read or write
+     */
+    public Inputs.Print completed(final MavenProject project,
+        final Collection<MavenProject> upstream, final boolean success)
+        throws IOException {
+        final String id = XemblyProjects.identifier(project);
+        Inputs.Print print = this.prints.remove(id);
+        if (print == null) {
+            print = this.scan(project);
+        }
+        final long start = System.currentTimeMillis();
+        final MessageDigest digest = Inputs.sha();
+        Inputs.update(digest, "", print.hash);
+        final Map<String, String> reactor = new TreeMap<String, String>();
+        for (final MavenProject prj : upstream) {
+            final String key = XemblyProjects.identifier(prj);
+            String hash = this.done.get(key);
+            if (hash == null) {
+                hash = Inputs.NONE;
+            }
+            reactor.put(key, hash);
+        }
+        for (final Map.Entry<String, String> entry : reactor.entrySet()) {
+            Inputs.update(digest, entry.getKey(), entry.getValue());
+        }
+        for (final String dep : Inputs.artifacts(project, reactor.keySet())) {
+            Inputs.update(digest, dep, "");
+        }
+        final Inputs.Print result = new Inputs.Print(
+            Inputs.hex(digest.digest()), print.last,
+            !reactor.containsValue(Inputs.NONE), print.files, print.hashed,
+            print.time + System.currentTimeMillis() - start, print.hashes
+        );
+        String head = result.last;
+        if (success) {
+            head = result.hash;
+            if (result.complete) {
+                this.done.put(id, result.hash);
+            }
+        }
+        Inputs.save(this.file(project), head, result.hashes);
+        return result;
+    }
+
+    /**
+     * Stop the threads, when the session ends.
+     */
+    public void close() {
+        this.svc.shutdown();
+    }
+
+    /**
+     * Fingerprint POM, sources, resources and declared dependencies.
+     * @param project The project
+     * @return Fingerprint, incomplete
+     * @throws IOException If fails to read files
+     */
+    private Inputs.Print scan(final MavenProject project) throws IOException {
+        final long start = System.currentTimeMillis();
+        final File file = this.file(project);
+        final Map<String, String[]> cache = new TreeMap<String, String[]>();
+        final String last = Inputs.load(file, cache);
+        final Collection<File> roots = Inputs.roots(project);
+        if (project.getFile() != null) {
+            roots.add(project.getFile());
+        }
+        final Map<String, String[]> hashes = new TreeMap<String, String[]>();
+        final int hashed = Inputs.hash(
+            this.svc, Inputs.walk(this.svc, project.getBasedir(), roots),
+            cache, hashes
+        );
+        final MessageDigest digest = Inputs.sha();
+        for (final Map.Entry<String, String[]> entry : hashes.entrySet()) {
+            Inputs.update(digest, entry.getKey(), entry.getValue()[2]);
+        }
+        for (final String dep : Inputs.dependencies(project)) {
+            Inputs.update(digest, dep, "");
+        }
+        return new Inputs.Print(
+            Inputs.hex(digest.digest()), last, false, hashes.size(), hashed,
+            System.currentTimeMillis() - start, hashes
+        );
+    }
+
+    /**
+     * File of the project.
+     * @param project The project
+     * @return File
+     */
+    private File file(final MavenProject project) {
+        return new File(
+            this.dir,
+            String.format(
+                "%s-%s.txt", project.getGroupId(), project.getArtifactId()
+            )
+        );
+    }
+
+    /**
+     * Directories with sources and resources, except generated ones.
+     *
+     * <p>Generated source roots are added by mojos, so a project
+     * fingerprinted when it completes would have them, and the one
+     * fingerprinted when it starts would not.
+     * @param project The project
+     * @return Directories, some of them may be absent
+     */
+    private static Collection<File> roots(final MavenProject project) {
+        final Collection<File> all = new ArrayList<File>(0);
+        for (final Object root : project.getCompileSourceRoots()) {
+            all.add(new File(root.toString()));
+        }
+        for (final Object root : project.getTestCompileSourceRoots()) {
+            all.add(new File(root.toString()));
+        }
+        for (final Resource res : project.getResources()) {
+            all.add(new File(res.getDirectory()));
+        }
+        for (final Resource res : project.getTestResources()) {
+            all.add(new File(res.getDirectory()));
+        }
+        final Collection<File> roots = new ArrayList<File>(all.size());
+        for (final File root : all) {
+            if (!Inputs.generated(project, root)) {
+                roots.add(root);
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * Is it a directory of generated sources, {@code generated-*}
+     * in the build directory, or inside one?
+     * @param project The project
+     * @param root The directory
+     * @return TRUE if it is generated
+     */
+    private static boolean generated(final MavenProject project,
+        final File root) {
+        boolean generated = false;
+        if (project.getBuild() != null
+            && project.getBuild().getDirectory() != null) {
+            final File target = new File(project.getBuild().getDirectory())
+                .getAbsoluteFile();
+            File file = root.getAbsoluteFile();
+            while (file.getParentFile() != null) {
+                if (file.getParentFile().equals(target)) {
+                    generated = file.getName().startsWith("generated-");
+                    break;
+                }
+                file = file.getParentFile();
+            }
+        }
+        return generated;
+    }
+
+    /**
+     * Coordinates of declared dependencies.
+     * @param project The project
+     * @return Sorted lines
+     */
+    private static List<String> dependencies(final MavenProject project) {
+        final List<String> deps = new ArrayList<String>(0);
+        for (final Dependency dep : project.getDependencies()) {
+            deps.add(dep.getManagementKey() + ':' + dep.getVersion());
+        }
+        Collections.sort(deps);
+        return deps;
+    }
+
+    /**
+     * Files of resolved dependencies, except projects of the reactor.
+     * @param project The project
+     * @param reactor IDs of projects of the reactor
+     * @return Sorted lines
+     */
+    private static List<String> artifacts(final MavenProject project,
+        final Collection<String> reactor) {
+        final List<String> deps = new ArrayList<String>(0);
+        for (final Artifact artifact : project.getArtifacts()) {
+            final File file = artifact.getFile();
+            if (file != null && !reactor.contains(
+                String.format(
+                    "%s:%s", artifact.getGroupId(), artifact.getArtifactId()
+                )
+            )) {
+                deps.add(
+                    String.format(
+                        "%s %d %d", artifact.getId(), file.length(),
+                        file.lastModified()
+                    )
+                );
+            }
+        }
+        Collections.sort(deps);
+        return deps;
+    }
+
+    /**
+     * Collect files of all roots in parallel, by their paths relative
+     * to the base directory.
+     * @param svc Executor service
+     * @param base Base directory
+     * @param roots Files or directories to walk
+     * @return Files
+     * @throws IOException If fails
+     */
+    private static Map<String, File> walk(final ExecutorService svc,
+        final File base, final Collection<File> roots) throws IOException {
+        final Map<String, File> files = new TreeMap<String, File>();
+        final Collection<Future<Map<String, File>>> futures =
+            new ArrayList<Future<Map<String, File>>>(0);
+        for (final File root : roots) {
+            final File[] kids = root.listFiles();
+            if (kids == null) {
+                Inputs.walk(base, root, files);
+            } else {
+                for (final File kid : kids) {
+                    futures.add(
+                        svc.submit(
+                            new Callable<Map<String, File>>() {
+                                @Override
+                                public Map<String, File> call() {
+                                    final Map<String, File> found =
+                                        new TreeMap<String, File>();
+                                    Inputs.walk(base, kid, found);
+                                    return found;
+                                }
+                            }
+                        )
+                    );
+                }
+            }
+        }
+        for (final Future<Map<String, File>> future : futures) {
+            files.putAll(Inputs.get(future));
+        }
+        return files;
+    }
+
+    /**
+     * Collect files, by their paths relative to the base directory.
+     * @param base Base directory
+     * @param file File or directory to walk
+     * @param files Where to put them
+     */
+    private static void walk(final File base, final File file,
+        final Map<String, File> files) {
+        final File[] kids = file.listFiles();
+        if (kids == null) {
+            if (file.isFile()) {
+                files.put(Inputs.relative(base, file), file);
+            }
+        } else {
+            for (final File kid : kids) {
+                Inputs.walk(base, kid, files);
+            }
+        }
+    }
+
+    /**
+     * Find hashes of files in cache or read changed files in parallel.
+     * @param svc Executor service
+     * @param files Files, by their relative paths
+     * @param cache Cached sizes, times and hashes
+     * @param hashes Where to put sizes, times and hashes of all files
+     * @return Number of files read
+     * @throws IOException If fails
+     * @checkstyle ParameterNumber (4 lines)
+     */
+    private static int hash(final ExecutorService svc,
+        final Map<String, File> files, final Map<String, String[]> cache,
+        final Map<String, String[]> hashes) throws IOException {
+        final Map<String, Future<String[]>> futures =
+            new TreeMap<String, Future<String[]>>();
+        for (final Map.Entry<String, File> entry : files.entrySet()) {
+            final File input = entry.getValue();
+            final String size = Long.toString(input.length());
+            final String mtime = Long.toString(input.lastModified());
+            final String[] cached = cache.get(entry.getKey());
+            if (cached == null || !cached[0].equals(size)
+                || !cached[1].equals(mtime)) {
+                futures.put(
+                    entry.getKey(),
+                    svc.submit(
+                        new Callable<String[]>() {
+                            @Override
+                            public String[] call() throws IOException {
+                                return new String[] {
+                                    size, mtime, Inputs.hash(input),
+                                };
+                            }
+                        }
+                    )
+                );
+            } else {
+                hashes.put(entry.getKey(), cached);
+            }
+        }
+        for (final Map.Entry<String, Future<String[]>> entry
+            : futures.entrySet()) {
+            hashes.put(entry.getKey(), Inputs.get(entry.getValue()));
+        }
+        return futures.size();
+    }
+
+    /**
+     * Wait for a result of a task.
+     * @param future The task
+     * @param <T> Type of result
+     * @return Result
+     * @throws IOException If the task failed or the thread is interrupted
+     */
+    private static <T> T get(final Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        } catch (final ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw IOException.class.cast(ex.getCause());
+            }
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    /**
+     * Path relative to the base directory, if it is inside it.
+     * @param base Base directory, or NULL
+     * @param file The file
+     * @return Path
+     */
+    private static String relative(final File base, final File file) {
+        final String path = file.getAbsolutePath();
+        String relative = path;
+        if (base != null) {
+            final String prefix = base.getAbsolutePath() + File.separator;
+            if (path.startsWith(prefix)) {
+                relative = path.substring(prefix.length());
+            }
+        }
+        return relative.replace(File.separatorChar, '/');
+    }
+
+    /**
+     * SHA-1 of a file, memory-mapped if it is large.
+     * @param file The file
+     * @return Hex hash
+     * @throws IOException If fails
+     */
+    private static String hash(final File file) throws IOException {
+        final MessageDigest digest = Inputs.sha();
+        final FileInputStream input = new FileInputStream(file);
+        try {
+            final FileChannel channel = input.getChannel();
+            final long size = channel.size();
+            if (size > Inputs.MAPPED) {
+                for (long pos = 0L; pos < size; pos += Inputs.CHUNK) {
+                    digest.update(
+                        channel.map(
+                            FileChannel.MapMode.READ_ONLY, pos,
+                            Math.min(Inputs.CHUNK, size - pos)
+                        )
+                    );
+                }
+            } else {
+                final byte[] buf = new byte[1 << 16];
+                while (true) {
+                    final int len = input.read(buf);
+                    if (len < 0) {
+                        break;
+                    }
+                    digest.update(buf, 0, len);
+                }
+            }
+        } finally {
+            input.close();
+        }
+        return Inputs.hex(digest.digest());
+    }
+
+    /**
+     * Add a line to the digest.
+     * @param digest The digest
+     * @param name Name
+     * @param value Value
+     * @throws IOException If fails
+     */
+    private static void update(final MessageDigest digest, final String name,
+        final String value) throws IOException {
+        digest.update(
+            String.format("%s %s\n", name, value).getBytes(Inputs.ENCODING)
+        );
+    }
+
+    /**
+     * New SHA-1 digest.
+     * @return Digest
+     */
+    private static MessageDigest sha() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Bytes in hex.
+     * @param bytes Bytes
+     * @return Hex
+     */
+    private static String hex(final byte[] bytes) {
+        final StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (final byte bte : bytes) {
+            hex.append(String.format("%02x", bte));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Load the file of a project, ignoring broken lines.
+     * @param file The file, may be absent
+     * @param cache Where to put cached hashes
+     * @return Fingerprint of the last successful build
+     * @throws IOException If fails
+     */
+    private static String load(final File file,
+        final Map<String, String[]> cache) throws IOException {
+        String last = Inputs.NONE;
+        if (file.exists()) {
+            final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(
+                    new FileInputStream(file), Inputs.ENCODING
+                )
+            );
+            try {
+                final String head = reader.readLine();
+                if (head != null) {
+                    last = head;
+                }
+                while (true) {
+                    final String line = reader.readLine();
+                    if (line == null) {
+                        break;
+                    }
+                    final String[] parts = line.split(" ", 4);
+                    if (parts.length == 4) {
+                        cache.put(
+                            parts[3],
+                            new String[] {parts[0], parts[1], parts[2]}
+                        );
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Save the file of a project.
+     * @param file The file
+     * @param head Fingerprint of the last successful build
+     * @param hashes Cached hashes
+     * @throws IOException If fails
+     */
+    private static void save(final File file, final String head,
+        final Map<String, String[]> hashes) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException(String.format("can't create %s", parent));
+        }
+        final File temp = File.createTempFile("inputs", ".tmp", parent);
+        final PrintWriter out = new PrintWriter(
+            new OutputStreamWriter(
+                new FileOutputStream(temp), Inputs.ENCODING
+            )
+        );
+        try {
+            out.printf("%s\n", head);
+            for (final Map.Entry<String, String[]> line : hashes.entrySet()) {
+                final String[] parts = line.getValue();
+                out.printf(
+                    "%s %s %s %s\n", parts[0], parts[1], parts[2],
+                    line.getKey()
+                );
+            }
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)
+            && !(file.delete() && temp.renameTo(file))) {
+            throw new IOException(
+                String.format("can't rename %s to %s", temp, file)
+            );
+        }
+    }
+
+    /**
+     * Fingerprint of a project.
+     */
+    @ToString(of = { "hash", "files", "hashed", "time" })
+    public static final class Print {
+        /**
+         * Fingerprint.
+         */
+        private final transient String hash;
+        /**
+         * Fingerprint of the last successful build.
+         */
+        private final transient String last;
+        /**
+         * Fingerprints of all upstream projects are known.
+         */
+        private final transient boolean complete;
+        /**
+         * Number of input files.
+         */
+        private final transient int files;
+        /**
+         * Number of files actually read.
+         */
+        private final transient int hashed;
+        /**
+         * Time spent, in milliseconds.
+         */
+        private final transient long time;
+        /**
+         * Hashes of files.
+         */
+        private final transient Map<String, String[]> hashes;
+        /**
+         * Ctor.
+         * @param fprint Fingerprint
+         * @param before Fingerprint of the last successful build
+         * @param full Fingerprints of all upstream projects are known
+         * @param total Number of input files
+         * @param read Number of files actually read
+         * @param millis Time spent
+         * @param cache Hashes of files
+         * @checkstyle ParameterNumber (4 lines)
+         */
+        Print(final String fprint, final String before, final boolean full,
+            final int total, final int read, final long millis,
+            final Map<String, String[]> cache) {
+            this.hash = fprint;
+            this.last = before;
+            this.complete = full;
+            this.files = total;
+            this.hashed = read;
+            this.time = millis;
+            this.hashes = cache;
+        }
+        /**
+         * Fingerprint.
+         * @return Hex SHA-1
+         */
+        public String hash() {
+            return this.hash;
+        }
+        /**
+         * Inputs are the same as in the last successful build?
+         * @return TRUE if unchanged and complete
+         */
+        public boolean unchanged() {
+            return this.complete && this.hash.equals(this.last);
+        }
+        /**
+         * Number of input files.
+         * @return Number
+         */
+        public int files() {
+            return this.files;
+        }
+        /**
+         * Number of files actually read, not found in cache.
+         * @return Number
+         */
+        public int hashed() {
+            return this.hashed;
+        }
+        /**
+         * Time spent on fingerprinting.
+         * @return Milliseconds
+         */
+        public long time() {
+            return this.time;
+        }
+    }
+
+}
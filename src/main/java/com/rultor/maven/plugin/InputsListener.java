@@ -0,0 +1,321 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import com.rultor.tools.Time;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.project.MavenProject;
+import org.xembly.Directives;
+
+/**
+ * Fingerprints {@link Inputs} of projects when they start and complete,
+ * and reports projects rebuilt with the same inputs as in their last
+ * successful build.
+ *
+ * <p>Every project step gets an {@code inputs} element with the
+ * fingerprint, numbers of files and time spent on it. At the end,
+ * step {@code inputs} tells how much time was spent on projects
+ * rebuilt needlessly, which a build cache would save.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@SuppressWarnings("PMD.TooManyMethods")
+final class InputsListener implements ExecutionListener {
+
+    /**
+     * Step ID in snapshot.
+     */
+    public static final String ID = "inputs";
+
+    /**
+     * Start times of projects in progress.
+     */
+    private final transient ConcurrentMap<String, Long> running =
+        new ConcurrentHashMap<String, Long>(0);
+
+    /**
+     * Projects seen.
+     */
+    private final transient AtomicInteger projects = new AtomicInteger();
+
+    /**
+     * Projects rebuilt with unchanged inputs.
+     */
+    private final transient AtomicInteger needless = new AtomicInteger();
+
+    /**
+     * Time spent in projects rebuilt with unchanged inputs.
+     */
+    private final transient AtomicLong wasted = new AtomicLong();
+
+    /**
+     * Time spent on fingerprinting.
+     */
+    private final transient AtomicLong spent = new AtomicLong();
+
+    /**
+     * Start of the first project.
+     */
+    private final transient AtomicLong first = new AtomicLong();
+
+    /**
+     * Target execution origin.
+     */
+    private final transient ExecutionListener origin;
+
+    /**
+     * Where to send Xembly directives.
+     */
+    private final transient Emitter emitter;
+
+    /**
+     * Inputs.
+     */
+    private final transient Inputs inputs;
+
+    /**
+     * Constructor.
+     *
+     * @param lstnr Listener to call, which reports projects as steps
+     * @param emtr Emitter of directives.
+     * @param inpts Inputs
+     */
+    InputsListener(final ExecutionListener lstnr, final Emitter emtr,
+        final Inputs inpts) {
+        this.origin = lstnr;
+        this.emitter = emtr;
+        this.inputs = inpts;
+    }
+
+    @Override
+    public void projectDiscoveryStarted(final ExecutionEvent event) {
+        this.origin.projectDiscoveryStarted(event);
+    }
+
+    @Override
+    public void sessionStarted(final ExecutionEvent event) {
+        this.origin.sessionStarted(event);
+    }
+
+    @Override
+    public void sessionEnded(final ExecutionEvent event) {
+        if (this.projects.get() > 0) {
+            this.emitter.emit(
+                new Directives()
+                    .xpath("/snapshot").strict(1)
+                    .addIf("steps").add("step")
+                    .attr("id", InputsListener.ID)
+                    .add("summary")
+                    .set(
+                        Logger.format(
+                            // @checkstyle LineLength (1 line)
+                            "%d of %d project(s) rebuilt with unchanged inputs in %[ms]s, fingerprinting took %[ms]s",
+                            this.needless.get(), this.projects.get(),
+                            this.wasted.get(), this.spent.get()
+                        )
+                    ).up()
+                    .add("start")
+                    .set(new Time(this.first.get()).toString()).up()
+                    .add("finish").set(new Time().toString()).up()
+                    .add("level").set(Level.INFO.toString()).up()
+                    .add("duration")
+                    .set(Long.toString(this.wasted.get())).up()
+                    .add("needless")
+                    .set(Integer.toString(this.needless.get())).up()
+                    .add("fingerprinting")
+                    .set(Long.toString(this.spent.get())).up()
+            );
+        }
+        this.running.clear();
+        this.inputs.close();
+        this.origin.sessionEnded(event);
+    }
+
+    @Override
+    public void projectSkipped(final ExecutionEvent event) {
+        this.origin.projectSkipped(event);
+    }
+
+    @Override
+    public void projectStarted(final ExecutionEvent event) {
+        final MavenProject project = event.getProject();
+        try {
+            this.inputs.fingerprint(project);
+            this.first.compareAndSet(0L, System.currentTimeMillis());
+            this.running.put(
+                XemblyProjects.identifier(project),
+                System.currentTimeMillis()
+            );
+        } catch (final IOException ex) {
+            Logger.warn(
+                this, "inputs of %s are not fingerprinted: %s",
+                XemblyProjects.identifier(project), ex
+            );
+        }
+        this.origin.projectStarted(event);
+    }
+
+    @Override
+    public void projectSucceeded(final ExecutionEvent event) {
+        this.origin.projectSucceeded(event);
+        this.completed(event, true);
+    }
+
+    @Override
+    public void projectFailed(final ExecutionEvent event) {
+        this.origin.projectFailed(event);
+        this.completed(event, false);
+    }
+
+    @Override
+    public void mojoSkipped(final ExecutionEvent event) {
+        this.origin.mojoSkipped(event);
+    }
+
+    @Override
+    public void mojoStarted(final ExecutionEvent event) {
+        this.origin.mojoStarted(event);
+    }
+
+    @Override
+    public void mojoSucceeded(final ExecutionEvent event) {
+        this.origin.mojoSucceeded(event);
+    }
+
+    @Override
+    public void mojoFailed(final ExecutionEvent event) {
+        this.origin.mojoFailed(event);
+    }
+
+    @Override
+    public void forkStarted(final ExecutionEvent event) {
+        this.origin.forkStarted(event);
+    }
+
+    @Override
+    public void forkSucceeded(final ExecutionEvent event) {
+        this.origin.forkSucceeded(event);
+    }
+
+    @Override
+    public void forkFailed(final ExecutionEvent event) {
+        this.origin.forkFailed(event);
+    }
+
+    @Override
+    public void forkedProjectStarted(final ExecutionEvent event) {
+        this.origin.forkedProjectStarted(event);
+    }
+
+    @Override
+    public void forkedProjectSucceeded(final ExecutionEvent event) {
+        this.origin.forkedProjectSucceeded(event);
+    }
+
+    @Override
+    public void forkedProjectFailed(final ExecutionEvent event) {
+        this.origin.forkedProjectFailed(event);
+    }
+
+    /**
+     * Project completed, report its inputs and remember them.
+     *
+     * <p>Projects started before the listener, like the one injecting
+     * it, are fingerprinted now, to be known to their downstream
+     * projects, but not reported.
+     * @param event The event
+     * @param success TRUE if it succeeded
+     */
+    private void completed(final ExecutionEvent event,
+        final boolean success) {
+        final MavenProject project = event.getProject();
+        final String id = XemblyProjects.identifier(project);
+        final Long start = this.running.remove(id);
+        Collection<MavenProject> upstream = Collections.emptyList();
+        if (event.getSession() != null
+            && event.getSession().getProjectDependencyGraph() != null) {
+            upstream = event.getSession().getProjectDependencyGraph()
+                .getUpstreamProjects(project, true);
+        }
+        try {
+            final Inputs.Print print =
+                this.inputs.completed(project, upstream, success);
+            if (start != null) {
+                this.report(id, start, print);
+            }
+        } catch (final IOException ex) {
+            Logger.warn(
+                this, "inputs of %s are not fingerprinted: %s", id, ex
+            );
+        }
+    }
+
+    /**
+     * Report inputs of a completed project.
+     * @param id ID of the project
+     * @param start When it started
+     * @param print Its fingerprint
+     */
+    private void report(final String id, final long start,
+        final Inputs.Print print) {
+        this.projects.incrementAndGet();
+        this.spent.addAndGet(print.time());
+        if (print.unchanged()) {
+            this.needless.incrementAndGet();
+            this.wasted.addAndGet(System.currentTimeMillis() - start);
+        }
+        this.emitter.emit(
+            id,
+            new Directives()
+                .xpath("/snapshot/steps")
+                .xpath(Identity.xpath(id))
+                .add("inputs")
+                .attr("fingerprint", print.hash())
+                .attr("files", Integer.toString(print.files()))
+                .attr("hashed", Integer.toString(print.hashed()))
+                .attr("time", Long.toString(print.time()))
+                .attr("unchanged", Boolean.toString(print.unchanged()))
+        );
+    }
+
+}
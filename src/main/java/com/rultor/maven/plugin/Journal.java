@@ -0,0 +1,277 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import lombok.ToString;
+
+/**
+ * Append-only binary journal of build events, in a memory-mapped file.
+ *
+ * <p>The file starts with a header of {@link #HEADER} bytes: magic
+ * number, format version, record size, number of records (written on
+ * close, zero before that), wall-clock time in milliseconds and
+ * {@link System#nanoTime()} at the moment the journal was opened.
+ * Then go fixed-size records of {@link #RECORD} bytes: event type,
+ * step, thread (all three are numbers of strings in the dictionary)
+ * and the value of {@link System#nanoTime()} of the event. A record
+ * with zero type is not written yet.
+ *
+ * <p>Strings are interned into a dictionary, which is a text file
+ * next to the journal with ".dict" suffix, one string per line, the
+ * first line has number one.
+ *
+ * <p>Writers reserve records by atomic increment of a counter and fill
+ * them in their own regions of the file, without any locks. The file is
+ * mapped by chunks, a new chunk is mapped when the first record in
+ * it is reserved.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@ToString(of = "file")
+final class Journal {
+
+    /**
+     * Magic number, "RLTR".
+     */
+    public static final int MAGIC = 0x524c5452;
+
+    /**
+     * Version of the format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Size of the header.
+     */
+    public static final int HEADER = 32;
+
+    /**
+     * Size of a record.
+     */
+    public static final int RECORD = 24;
+
+    /**
+     * Position of the number of records in the header.
+     */
+    public static final int COUNT = 12;
+
+    /**
+     * Records per mapped chunk.
+     */
+    private static final int PER_CHUNK = 1 << 15;
+
+    /**
+     * Maximum number of chunks.
+     */
+    private static final int CHUNKS = 1 << 12;
+
+    /**
+     * Journal file.
+     */
+    private final transient File file;
+
+    /**
+     * The file, opened.
+     */
+    private final transient RandomAccessFile raf;
+
+    /**
+     * Mapped chunks.
+     */
+    private final transient AtomicReferenceArray<MappedByteBuffer> chunks =
+        new AtomicReferenceArray<MappedByteBuffer>(Journal.CHUNKS);
+
+    /**
+     * Number of records reserved.
+     */
+    private final transient AtomicLong reserved = new AtomicLong();
+
+    /**
+     * Interned strings.
+     */
+    private final transient ConcurrentMap<String, Integer> names =
+        new ConcurrentHashMap<String, Integer>(0);
+
+    /**
+     * Dictionary writer.
+     */
+    private final transient Writer dict;
+
+    /**
+     * Public ctor.
+     * @param path Journal file to create
+     * @throws IOException If fails
+     */
+    Journal(final File path) throws IOException {
+        this.file = path;
+        if (path.getParentFile() != null) {
+            path.getParentFile().mkdirs();
+        }
+        this.raf = new RandomAccessFile(path, "rw");
+        this.raf.setLength(0L);
+        final ByteBuffer header = ByteBuffer.allocate(Journal.HEADER);
+        header.putInt(Journal.MAGIC)
+            .putInt(Journal.VERSION)
+            .putInt(Journal.RECORD)
+            .putInt(0)
+            .putLong(System.currentTimeMillis())
+            .putLong(System.nanoTime());
+        header.flip();
+        this.raf.getChannel().write(header, 0L);
+        this.dict = new OutputStreamWriter(
+            new FileOutputStream(Journal.dictionary(path)), "UTF-8"
+        );
+    }
+
+    /**
+     * Dictionary file of the journal.
+     * @param path Journal file
+     * @return Dictionary file
+     */
+    public static File dictionary(final File path) {
+        return new File(
+            path.getParentFile(), String.format("%s.dict", path.getName())
+        );
+    }
+
+    /**
+     * Append a record.
+     * @param type Type of event
+     * @param step Step identifier
+     * @param thread Thread name
+     * @param nanos Time of the event, {@link System#nanoTime()}
+     * @throws IOException If fails
+     */
+    public void append(final String type, final String step,
+        final String thread, final long nanos) throws IOException {
+        final long number = this.reserved.getAndIncrement();
+        final int chunk = (int) (number / Journal.PER_CHUNK);
+        if (chunk >= Journal.CHUNKS) {
+            throw new IOException(
+                String.format("journal %s is full", this.file)
+            );
+        }
+        final MappedByteBuffer buf = this.chunk(chunk);
+        final int pos = (int) (number % Journal.PER_CHUNK) * Journal.RECORD;
+        buf.putInt(pos + 4, this.intern(step));
+        buf.putInt(pos + 8, this.intern(thread));
+        buf.putLong(pos + 16, nanos);
+        buf.putInt(pos, this.intern(type));
+    }
+
+    /**
+     * Flush everything and close the file.
+     * @throws IOException If fails
+     */
+    public void close() throws IOException {
+        for (int idx = 0; idx < Journal.CHUNKS; ++idx) {
+            final MappedByteBuffer buf = this.chunks.get(idx);
+            if (buf == null) {
+                break;
+            }
+            buf.force();
+        }
+        final ByteBuffer count = ByteBuffer.allocate(4);
+        count.putInt(
+            (int) Math.min(
+                this.reserved.get(), (long) Journal.PER_CHUNK * Journal.CHUNKS
+            )
+        );
+        count.flip();
+        this.raf.getChannel().write(count, Journal.COUNT);
+        this.raf.close();
+        synchronized (this.dict) {
+            this.dict.close();
+        }
+    }
+
+    /**
+     * Get a mapped chunk, mapping it if necessary.
+     * @param idx Number of the chunk
+     * @return Mapped buffer
+     * @throws IOException If fails
+     */
+    private MappedByteBuffer chunk(final int idx) throws IOException {
+        MappedByteBuffer buf = this.chunks.get(idx);
+        if (buf == null) {
+            synchronized (this.chunks) {
+                buf = this.chunks.get(idx);
+                if (buf == null) {
+                    final long size = (long) Journal.PER_CHUNK * Journal.RECORD;
+                    buf = this.raf.getChannel().map(
+                        FileChannel.MapMode.READ_WRITE,
+                        Journal.HEADER + idx * size, size
+                    );
+                    this.chunks.set(idx, buf);
+                }
+            }
+        }
+        return buf;
+    }
+
+    /**
+     * Intern a string.
+     * @param text The string
+     * @return Its number in the dictionary
+     * @throws IOException If fails
+     */
+    private int intern(final String text) throws IOException {
+        Integer num = this.names.get(text);
+        if (num == null) {
+            synchronized (this.dict) {
+                num = this.names.get(text);
+                if (num == null) {
+                    num = this.names.size() + 1;
+                    this.dict.write(text.replace('\n', ' '));
+                    this.dict.write('\n');
+                    this.dict.flush();
+                    this.names.put(text, num);
+                }
+            }
+        }
+        return num;
+    }
+
+}
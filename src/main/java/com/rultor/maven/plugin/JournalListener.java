@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import java.io.IOException;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Records every event into a {@link Journal}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@SuppressWarnings("PMD.TooManyMethods")
+final class JournalListener implements ExecutionListener {
+
+    /**
+     * Step of session-wide events.
+     */
+    private static final String SESSION = "session";
+
+    /**
+     * Target execution origin.
+     */
+    private final transient ExecutionListener origin;
+
+    /**
+     * Identities of steps.
+     */
+    private final transient Identities ids = new Identities();
+
+    /**
+     * The journal.
+     */
+    private final transient Journal journal;
+
+    /**
+     * Constructor.
+     *
+     * @param lstnr Listener to call.
+     * @param jrnl Journal to record events to.
+     */
+    JournalListener(final ExecutionListener lstnr, final Journal jrnl) {
+        this.origin = lstnr;
+        this.journal = jrnl;
+    }
+
+    @Override
+    public void projectDiscoveryStarted(final ExecutionEvent event) {
+        this.record(event);
+        this.origin.projectDiscoveryStarted(event);
+    }
+
+    @Override
+    public void sessionStarted(final ExecutionEvent event) {
+        this.record(event);
+        this.origin.sessionStarted(event);
+    }
+
+    @Override
+    public void sessionEnded(final ExecutionEvent event) {
+        this.record(event);
+        try {
+            this.journal.close();
+        } catch (final IOException ex) {
+            Logger.warn(this, "failed to close %s: %s", this.journal, ex);
+        }
+        this.origin.sessionEnded(event);
+    }
+
+    @Override
+    public void projectSkipped(final ExecutionEvent event) {
+        this.record(event);
+        this.origin.projectSkipped(event);
+    }
+
+    @Override
+    public void projectStarted(final ExecutionEvent event) {
+        this.record(event);
+        this.origin.projectStarted(event);
+    }
+
+    @Override
+    public void projectSucceeded(final ExecutionEvent event) {
+        this.record(event);
+        this.origin.projectSucceeded(event);
+    }
+
+    @Override
+    public void projectFailed(final ExecutionEvent event) {
+        this.record(event);
+        this.origin.projectFailed(event);
+    }
+
+    @Override
+    public void mojoSkipped(final ExecutionEvent event) {
+        this.record(event);
+        this.origin.mojoSkipped(event);
+    }
+
+    @Override
+    public void mojoStarted(final ExecutionEvent event) {
+        this.record(event);
+        this.origin.mojoStarted(event);
+    }
+
+    @Override
+    public void mojoSucceeded(final ExecutionEvent event) {
+        this.record(event);
+        this.origin.mojoSucceeded(event);
+    }
+
+    @Override
+    public void mojoFailed(final ExecutionEvent event) {
+        this.record(event);
+        this.origin.mojoFailed(event);
+    }
+
+    @Override
+    public void forkStarted(final ExecutionEvent event) {
+        this.record(event);
+        this.origin.forkStarted(event);
+    }
+
+    @Override
+    public void forkSucceeded(final ExecutionEvent event) {
+        this.record(event);
+        this.origin.forkSucceeded(event);
+    }
+
+    @Override
+    public void forkFailed(final ExecutionEvent event) {
+        this.record(event);
+        this.origin.forkFailed(event);
+    }
+
+    @Override
+    public void forkedProjectStarted(final ExecutionEvent event) {
+        this.record(event);
+        this.origin.forkedProjectStarted(event);
+    }
+
+    @Override
+    public void forkedProjectSucceeded(final ExecutionEvent event) {
+        this.record(event);
+        this.origin.forkedProjectSucceeded(event);
+    }
+
+    @Override
+    public void forkedProjectFailed(final ExecutionEvent event) {
+        this.record(event);
+        this.origin.forkedProjectFailed(event);
+    }
+
+    /**
+     * Record the event.
+     * @param event The event
+     */
+    private void record(final ExecutionEvent event) {
+        final long now = System.nanoTime();
+        try {
+            this.journal.append(
+                event.getType().name(), this.step(event),
+                Thread.currentThread().getName(), now
+            );
+        } catch (final IOException ex) {
+            Logger.warn(this, "failed to record %s: %s", event.getType(), ex);
+        }
+    }
+
+    /**
+     * Step of the event.
+     * @param event The event
+     * @return Step identifier
+     */
+    private String step(final ExecutionEvent event) {
+        final MavenProject project = event.getProject();
+        final MojoExecution mojo = event.getMojoExecution();
+        final String step;
+        if (project == null) {
+            step = JournalListener.SESSION;
+        } else if (mojo == null) {
+            step = this.ids.project(project).id();
+        } else {
+            step = this.ids.mojo(project, mojo).id();
+        }
+        return step;
+    }
+
+}
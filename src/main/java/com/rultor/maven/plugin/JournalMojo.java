@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.aspects.Loggable;
+import com.jcabi.log.Logger;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Converts binary journal of events, recorded by {@code steps} goal
+ * with {@code -Drultor.journal=true}, to XML.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@ToString
+@Mojo(name = "journal", threadSafe = true)
+@EqualsAndHashCode(callSuper = false)
+@Loggable(Loggable.DEBUG)
+public final class JournalMojo extends AbstractMojo {
+
+    /**
+     * Binary journal to read.
+     */
+    @Parameter(
+        property = "rultor.journal.file",
+        defaultValue = "${project.build.directory}/rultor-events.bin"
+    )
+    private transient File journal;
+
+    /**
+     * XML file to write.
+     */
+    @Parameter(
+        property = "rultor.journal.xml",
+        defaultValue = "${project.build.directory}/rultor-events.xml"
+    )
+    private transient File xml;
+
+    @Override
+    public void execute() throws MojoFailureException {
+        if (!this.journal.exists()) {
+            throw new MojoFailureException(
+                String.format("journal %s is absent", this.journal)
+            );
+        }
+        try {
+            final OutputStream output = new BufferedOutputStream(
+                new FileOutputStream(this.xml)
+            );
+            try {
+                new JournalXml(this.journal).print(output);
+            } finally {
+                output.close();
+            }
+        } catch (final IOException ex) {
+            throw new MojoFailureException(
+                String.format("failed to read %s", this.journal), ex
+            );
+        }
+        Logger.info(this, "Journal %s saved to %s", this.journal, this.xml);
+    }
+
+    /**
+     * Set journal file.
+     * @param file Binary journal
+     */
+    public void setJournal(final File file) {
+        this.journal = file;
+    }
+
+    /**
+     * Set XML file.
+     * @param file XML file to create
+     */
+    public void setXml(final File file) {
+        this.xml = file;
+    }
+
+}
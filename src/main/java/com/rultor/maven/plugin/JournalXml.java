@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.rultor.tools.Time;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import lombok.ToString;
+
+/**
+ * Reader of a {@link Journal}, which prints it as XML.
+ *
+ * <p>Every record becomes an {@code event} element with the type of
+ * the event, the step, the thread, wall-clock time in milliseconds
+ * and the offset in nanoseconds from the moment the journal was opened.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString
+final class JournalXml {
+
+    /**
+     * Journal file.
+     */
+    private final transient File file;
+
+    /**
+     * Public ctor.
+     * @param path Journal file
+     */
+    JournalXml(final File path) {
+        this.file = path;
+    }
+
+    /**
+     * Print XML.
+     * @param output Where to print it
+     * @throws IOException If fails
+     * @checkstyle ExecutableStatementCount (60 lines)
+     */
+    public void print(final OutputStream output) throws IOException {
+        final List<String> names = this.names();
+        final DataInputStream input = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(this.file))
+        );
+        try {
+            if (input.readInt() != Journal.MAGIC) {
+                throw new IOException(
+                    String.format("%s is not a journal", this.file)
+                );
+            }
+            final int version = input.readInt();
+            if (input.readInt() != Journal.RECORD) {
+                throw new IOException(
+                    String.format("broken journal %s", this.file)
+                );
+            }
+            long count = input.readInt();
+            if (count == 0) {
+                count = (this.file.length() - Journal.HEADER) / Journal.RECORD;
+            }
+            final long millis = input.readLong();
+            final long nanos = input.readLong();
+            final XMLStreamWriter xml = XMLOutputFactory.newInstance()
+                .createXMLStreamWriter(output, "UTF-8");
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeStartElement("journal");
+            xml.writeAttribute("version", Integer.toString(version));
+            xml.writeAttribute("start", new Time(millis).toString());
+            for (long idx = 0; idx < count; ++idx) {
+                final int type = input.readInt();
+                final int step = input.readInt();
+                final int thread = input.readInt();
+                input.readInt();
+                final long offset = input.readLong() - nanos;
+                if (type == 0) {
+                    continue;
+                }
+                xml.writeEmptyElement("event");
+                xml.writeAttribute("type", names.get(type - 1));
+                xml.writeAttribute("step", names.get(step - 1));
+                xml.writeAttribute("thread", names.get(thread - 1));
+                xml.writeAttribute(
+                    "time", Long.toString(millis + offset / 1000000L)
+                );
+                xml.writeAttribute("nanos", Long.toString(offset));
+            }
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.close();
+        } catch (final EOFException ex) {
+            throw new IOException(
+                String.format("journal %s is truncated", this.file), ex
+            );
+        } catch (final XMLStreamException ex) {
+            throw new IOException(ex);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Load dictionary.
+     * @return All names, in order
+     * @throws IOException If fails
+     */
+    private List<String> names() throws IOException {
+        final BufferedReader reader = new BufferedReader(
+            new InputStreamReader(
+                new FileInputStream(Journal.dictionary(this.file)), "UTF-8"
+            )
+        );
+        final List<String> names = new ArrayList<String>(0);
+        try {
+            while (true) {
+                final String line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                names.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return names;
+    }
+
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.rultor.tools.Time;
+import java.util.logging.Level;
+import lombok.ToString;
+import org.xembly.Directives;
+
+/**
+ * Steps reported live: a step is added to the snapshot when it starts
+ * and patched when it finishes.
+ *
+ * @author Krzysztof Krason (Krzysztof.Krason@gmail.com)
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString(of = "emitter")
+final class LiveSteps implements Steps {
+
+    /**
+     * Start times of steps.
+     */
+    private final transient Timings times = new Timings();
+
+    /**
+     * Where to send Xembly directives.
+     */
+    private final transient Emitter emitter;
+
+    /**
+     * Encoder of failures.
+     */
+    private final transient Failures failures;
+
+    /**
+     * Public ctor.
+     * @param emtr Emitter of directives
+     */
+    LiveSteps(final Emitter emtr) {
+        this(emtr, new Failures());
+    }
+
+    /**
+     * Public ctor.
+     * @param emtr Emitter of directives
+     * @param encoder Encoder of failures
+     */
+    LiveSteps(final Emitter emtr, final Failures encoder) {
+        this.emitter = emtr;
+        this.failures = encoder;
+    }
+
+    @Override
+    public void started(final Identity step) {
+        final Time start = new Time();
+        this.times.put(step.number(), start.millis());
+        this.emitter.emit(
+            new Directives()
+                .xpath("/snapshot").strict(1)
+                .addIf("steps").add("step")
+                .attr("id", step.id())
+                .add("summary").set(step.running()).up()
+                .add("start").set(start.toString()).up()
+        );
+    }
+
+    @Override
+    public Span succeeded(final Identity step) {
+        final long start = this.times.take(step.number());
+        Span span = null;
+        if (start != 0L) {
+            final Time end = new Time();
+            this.emitter.emit(
+                step.id(),
+                new Directives()
+                    .xpath("/snapshot/steps").strict(1)
+                    .xpath(step.xpath())
+                    .xpath("summary").set(step.label()).up()
+                    .add("finish").set(end.toString()).up()
+                    .add("level").set(Level.INFO.toString()).up()
+                    .add("duration").set(Long.toString(end.millis() - start))
+            );
+            span = new Span(
+                start, end.millis(), Thread.currentThread().getName()
+            );
+        }
+        return span;
+    }
+
+    @Override
+    public void skipped(final Identity step) {
+        final String now = new Time().toString();
+        this.emitter.emit(
+            new Directives()
+                .xpath("/snapshot").strict(1)
+                .addIf("steps").add("step")
+                .attr("id", step.id())
+                .add("summary").set(step.skipped()).up()
+                .add("start").set(now).up()
+                .add("finish").set(now).up()
+                .add("level").set(Level.INFO.toString())
+        );
+    }
+
+    @Override
+    public Span failed(final Identity step, final Throwable error) {
+        final long start = this.times.take(step.number());
+        this.emitter.emit(
+            step.id(),
+            new Directives()
+                .xpath("/snapshot/steps")
+                .xpath(step.xpath())
+                .append(this.failures.exception(error))
+                .add("level").set(Level.SEVERE.toString())
+        );
+        Span span = null;
+        if (start != 0L) {
+            span = new Span(
+                start, System.currentTimeMillis(),
+                Thread.currentThread().getName()
+            );
+        }
+        return span;
+    }
+
+    @Override
+    public void close() {
+        this.times.clear();
+    }
+
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import lombok.ToString;
+import org.xembly.Directives;
+
+/**
+ * Steps with resources they used: CPU time and allocated bytes of
+ * the thread running the step, count and time of garbage collections
+ * in the JVM while it was running.
+ *
+ * <p>Usage is sampled on the thread that runs the step, when it starts
+ * and when it completes, and the difference is added to the step
+ * as {@code usage} element. A project is built by one thread, from
+ * start to end, so its usage covers all its mojos.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString(of = "origin")
+final class MeteredSteps implements Steps {
+
+    /**
+     * Original steps.
+     */
+    private final transient Steps origin;
+
+    /**
+     * Where to send Xembly directives.
+     */
+    private final transient Emitter emitter;
+
+    /**
+     * Usage when steps started.
+     */
+    private final transient ConcurrentMap<Identity, Usage> usages =
+        new ConcurrentHashMap<Identity, Usage>(0);
+
+    /**
+     * Public ctor.
+     * @param steps Original steps
+     * @param emtr Emitter of directives
+     */
+    MeteredSteps(final Steps steps, final Emitter emtr) {
+        this.origin = steps;
+        this.emitter = emtr;
+    }
+
+    @Override
+    public void started(final Identity step) {
+        this.origin.started(step);
+        this.usages.put(step, Usage.now());
+    }
+
+    @Override
+    public Span succeeded(final Identity step) {
+        final Usage usage = this.usage(step);
+        final Span span = this.origin.succeeded(step);
+        this.report(step, usage);
+        return span;
+    }
+
+    @Override
+    public void skipped(final Identity step) {
+        this.origin.skipped(step);
+    }
+
+    @Override
+    public Span failed(final Identity step, final Throwable error) {
+        final Usage usage = this.usage(step);
+        final Span span = this.origin.failed(step, error);
+        this.report(step, usage);
+        return span;
+    }
+
+    @Override
+    public void close() {
+        this.usages.clear();
+        this.origin.close();
+    }
+
+    /**
+     * Usage of a completed step.
+     * @param step Identity of the step
+     * @return Usage or NULL if the step was never started
+     */
+    private Usage usage(final Identity step) {
+        final Usage now = Usage.now();
+        final Usage before = this.usages.remove(step);
+        Usage usage = null;
+        if (before != null) {
+            usage = now.since(before);
+        }
+        return usage;
+    }
+
+    /**
+     * Add usage to the step.
+     * @param step Identity of the step
+     * @param usage Usage or NULL
+     */
+    private void report(final Identity step, final Usage usage) {
+        if (usage != null) {
+            final Directives dirs = new Directives()
+                .xpath("/snapshot/steps")
+                .xpath(step.xpath())
+                .add("usage");
+            if (usage.cpu() >= 0L) {
+                dirs.add("cpu").set(Long.toString(usage.cpu())).up();
+            }
+            if (usage.allocated() >= 0L) {
+                dirs.add("allocated")
+                    .set(Long.toString(usage.allocated())).up();
+            }
+            this.emitter.emit(
+                step.id(),
+                dirs.add("gc")
+                    .add("count").set(Long.toString(usage.collections()))
+                    .up()
+                    .add("time").set(Long.toString(usage.pauses()))
+            );
+        }
+    }
+
+}
@@ -0,0 +1,387 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Reports the build as OpenTelemetry spans, through {@link OtlpExporter}.
+ *
+ * <p>The session is the root span, started when the listener is
+ * injected. Projects are its children, mojos are children of their
+ * projects, forks are children of mojos that requested them, forked
+ * projects are children of forks, and mojos of forked projects are
+ * their children. Maven runs a forked lifecycle before the mojo which
+ * requested it is started, that's why the span of the mojo is started
+ * together with its fork, and covers both. Mojos run inside forked
+ * projects of their threads, that's why every build thread has a stack
+ * of forked projects in progress. Every span has coordinates,
+ * thread and outcome as attributes, mojos also their phases. Spans are
+ * exported when they end, so a build thread only builds a small
+ * object and puts it into a queue.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@SuppressWarnings("PMD.TooManyMethods")
+final class OtelListener implements ExecutionListener {
+
+    /**
+     * Root span of the session.
+     */
+    private final transient OtelSpan session;
+
+    /**
+     * Spans of projects in progress, by project ID.
+     */
+    private final transient ConcurrentMap<String, OtelSpan> projects =
+        new ConcurrentHashMap<String, OtelSpan>(0);
+
+    /**
+     * Spans of mojos in progress.
+     */
+    private final transient ConcurrentMap<MojoExecution, OtelSpan> mojos =
+        new ConcurrentHashMap<MojoExecution, OtelSpan>(0);
+
+    /**
+     * Spans of forks in progress, by mojos that requested them.
+     */
+    private final transient ConcurrentMap<MojoExecution, OtelSpan> forks =
+        new ConcurrentHashMap<MojoExecution, OtelSpan>(0);
+
+    /**
+     * Spans of forked projects in progress, by mojo and project.
+     */
+    private final transient ConcurrentMap<String, OtelSpan> forked =
+        new ConcurrentHashMap<String, OtelSpan>(0);
+
+    /**
+     * Spans of forked projects in progress, by threads running them,
+     * the innermost first.
+     */
+    private final transient ConcurrentMap<Thread, LinkedList<OtelSpan>>
+        scopes = new ConcurrentHashMap<Thread, LinkedList<OtelSpan>>(0);
+
+    /**
+     * Target execution origin.
+     */
+    private final transient ExecutionListener origin;
+
+    /**
+     * Exporter.
+     */
+    private final transient OtlpExporter exporter;
+
+    /**
+     * Constructor.
+     *
+     * @param lstnr Listener to call.
+     * @param exp Exporter of spans
+     * @param name Name of the session span
+     */
+    OtelListener(final ExecutionListener lstnr, final OtlpExporter exp,
+        final String name) {
+        this.origin = lstnr;
+        this.exporter = exp;
+        this.session = new OtelSpan(name)
+            .with("thread.name", Thread.currentThread().getName());
+    }
+
+    @Override
+    public void projectDiscoveryStarted(final ExecutionEvent event) {
+        this.origin.projectDiscoveryStarted(event);
+    }
+
+    @Override
+    public void sessionStarted(final ExecutionEvent event) {
+        this.origin.sessionStarted(event);
+    }
+
+    @Override
+    public void sessionEnded(final ExecutionEvent event) {
+        try {
+            this.origin.sessionEnded(event);
+        } finally {
+            this.exporter.export(
+                this.session.with("maven.outcome", "ended").end(null)
+            );
+            this.exporter.close();
+            this.projects.clear();
+            this.mojos.clear();
+            this.forks.clear();
+            this.forked.clear();
+            this.scopes.clear();
+        }
+    }
+
+    @Override
+    public void projectSkipped(final ExecutionEvent event) {
+        this.exporter.export(
+            OtelListener.project(this.session, event.getProject())
+                .with("maven.outcome", "skipped").end(null)
+        );
+        this.origin.projectSkipped(event);
+    }
+
+    @Override
+    public void projectStarted(final ExecutionEvent event) {
+        this.projects.put(
+            XemblyProjects.identifier(event.getProject()),
+            OtelListener.project(this.session, event.getProject())
+        );
+        this.origin.projectStarted(event);
+    }
+
+    @Override
+    public void projectSucceeded(final ExecutionEvent event) {
+        this.end(
+            this.projects.remove(
+                XemblyProjects.identifier(event.getProject())
+            ),
+            event
+        );
+        this.origin.projectSucceeded(event);
+    }
+
+    @Override
+    public void projectFailed(final ExecutionEvent event) {
+        this.end(
+            this.projects.remove(
+                XemblyProjects.identifier(event.getProject())
+            ),
+            event
+        );
+        this.origin.projectFailed(event);
+    }
+
+    @Override
+    public void mojoSkipped(final ExecutionEvent event) {
+        this.exporter.export(
+            this.mojo(event).with("maven.outcome", "skipped").end(null)
+        );
+        this.origin.mojoSkipped(event);
+    }
+
+    @Override
+    public void mojoStarted(final ExecutionEvent event) {
+        this.mojos.putIfAbsent(event.getMojoExecution(), this.mojo(event));
+        this.origin.mojoStarted(event);
+    }
+
+    @Override
+    public void mojoSucceeded(final ExecutionEvent event) {
+        this.end(this.mojos.remove(event.getMojoExecution()), event);
+        this.origin.mojoSucceeded(event);
+    }
+
+    @Override
+    public void mojoFailed(final ExecutionEvent event) {
+        this.end(this.mojos.remove(event.getMojoExecution()), event);
+        this.origin.mojoFailed(event);
+    }
+
+    @Override
+    public void forkStarted(final ExecutionEvent event) {
+        final MojoExecution mojo = event.getMojoExecution();
+        this.mojos.putIfAbsent(mojo, this.mojo(event));
+        this.forks.put(
+            mojo,
+            new OtelSpan(
+                this.mojos.get(mojo),
+                String.format(
+                    "fork %s:%s", mojo.getArtifactId(), mojo.getGoal()
+                )
+            ).with("thread.name", Thread.currentThread().getName())
+        );
+        this.origin.forkStarted(event);
+    }
+
+    @Override
+    public void forkSucceeded(final ExecutionEvent event) {
+        this.end(this.forks.remove(event.getMojoExecution()), event);
+        this.origin.forkSucceeded(event);
+    }
+
+    @Override
+    public void forkFailed(final ExecutionEvent event) {
+        this.end(this.forks.remove(event.getMojoExecution()), event);
+        this.origin.forkFailed(event);
+    }
+
+    @Override
+    public void forkedProjectStarted(final ExecutionEvent event) {
+        OtelSpan parent = this.forks.get(event.getMojoExecution());
+        if (parent == null) {
+            parent = this.session;
+        }
+        final OtelSpan span = OtelListener.project(parent, event.getProject());
+        this.forked.put(OtelListener.key(event), span);
+        this.scope().addFirst(span);
+        this.origin.forkedProjectStarted(event);
+    }
+
+    @Override
+    public void forkedProjectSucceeded(final ExecutionEvent event) {
+        this.leave(this.forked.remove(OtelListener.key(event)), event);
+        this.origin.forkedProjectSucceeded(event);
+    }
+
+    @Override
+    public void forkedProjectFailed(final ExecutionEvent event) {
+        this.leave(this.forked.remove(OtelListener.key(event)), event);
+        this.origin.forkedProjectFailed(event);
+    }
+
+    /**
+     * Forked project completed in the current thread.
+     * @param span Its span, or NULL if it was not started
+     * @param event Event that ended it
+     */
+    private void leave(final OtelSpan span, final ExecutionEvent event) {
+        if (span != null) {
+            this.scope().remove(span);
+        }
+        this.end(span, event);
+    }
+
+    /**
+     * Forked projects in progress in the current thread.
+     * @return Spans, the innermost first
+     */
+    private LinkedList<OtelSpan> scope() {
+        final Thread thread = Thread.currentThread();
+        LinkedList<OtelSpan> scope = this.scopes.get(thread);
+        if (scope == null) {
+            this.scopes.putIfAbsent(thread, new LinkedList<OtelSpan>());
+            scope = this.scopes.get(thread);
+        }
+        return scope;
+    }
+
+    /**
+     * End the span and export it.
+     * @param span The span, or NULL if it was not started
+     * @param event Event that ended it
+     */
+    private void end(final OtelSpan span, final ExecutionEvent event) {
+        if (span != null) {
+            final Throwable error = event.getException();
+            String outcome = "succeeded";
+            if (error != null || event.getType().name().endsWith("Failed")) {
+                outcome = "failed";
+            }
+            this.exporter.export(
+                span.with("maven.outcome", outcome).end(error)
+            );
+        }
+    }
+
+    /**
+     * New span of a mojo.
+     * @param event Event of the mojo
+     * @return Span
+     */
+    private OtelSpan mojo(final ExecutionEvent event) {
+        final MojoExecution mojo = event.getMojoExecution();
+        return new OtelSpan(
+            this.parent(event.getProject()),
+            String.format("%s:%s", mojo.getArtifactId(), mojo.getGoal())
+        )
+            .with("maven.plugin.group", mojo.getGroupId())
+            .with("maven.plugin.artifact", mojo.getArtifactId())
+            .with("maven.plugin.version", mojo.getVersion())
+            .with("maven.goal", mojo.getGoal())
+            .with("maven.execution", mojo.getExecutionId())
+            .with("maven.phase", mojo.getLifecyclePhase())
+            .with(
+                "maven.project", XemblyProjects.identifier(event.getProject())
+            )
+            .with("thread.name", Thread.currentThread().getName());
+    }
+
+    /**
+     * Span of the innermost forked project of the current thread, or of
+     * the project, or of the session if the project has no span.
+     * @param project The project
+     * @return Span
+     */
+    private OtelSpan parent(final MavenProject project) {
+        final LinkedList<OtelSpan> scope = this.scopes.get(
+            Thread.currentThread()
+        );
+        OtelSpan parent = null;
+        if (scope != null) {
+            parent = scope.peekFirst();
+        }
+        if (parent == null) {
+            parent = this.projects.get(XemblyProjects.identifier(project));
+        }
+        if (parent == null) {
+            parent = this.session;
+        }
+        return parent;
+    }
+
+    /**
+     * New span of a project.
+     * @param parent Parent span
+     * @param project The project
+     * @return Span
+     */
+    private static OtelSpan project(final OtelSpan parent,
+        final MavenProject project) {
+        return new OtelSpan(parent, XemblyProjects.identifier(project))
+            .with("maven.project.group", project.getGroupId())
+            .with("maven.project.artifact", project.getArtifactId())
+            .with("maven.project.version", project.getVersion())
+            .with("thread.name", Thread.currentThread().getName());
+    }
+
+    /**
+     * Key of a forked project.
+     * @param event Event of the forked project
+     * @return Key
+     */
+    private static String key(final ExecutionEvent event) {
+        return String.format(
+            "%s %s", System.identityHashCode(event.getMojoExecution()),
+            XemblyProjects.identifier(event.getProject())
+        );
+    }
+
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.ToString;
+
+/**
+ * Span in the OpenTelemetry sense: a named, timed operation with
+ * a parent, attributes and status.
+ *
+ * <p>The span is started in constructor, gets attributes while it
+ * runs, and is ended once. Its JSON is in the OTLP format.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString(of = { "name", "span" })
+final class OtelSpan {
+
+    /**
+     * Source of IDs.
+     */
+    private static final Random RANDOM = new Random();
+
+    /**
+     * Trace ID, 32 hex digits.
+     */
+    private final transient String trace;
+
+    /**
+     * Span ID, 16 hex digits.
+     */
+    private final transient String span;
+
+    /**
+     * Parent span ID, or empty for root.
+     */
+    private final transient String parent;
+
+    /**
+     * Name.
+     */
+    private final transient String name;
+
+    /**
+     * Start, in milliseconds.
+     */
+    private final transient long start;
+
+    /**
+     * Attributes.
+     */
+    private final transient Map<String, String> attrs =
+        new ConcurrentHashMap<String, String>(0);
+
+    /**
+     * End, in milliseconds, or zero while running.
+     */
+    private transient volatile long end;
+
+    /**
+     * Error message, or NULL if succeeded.
+     */
+    private transient volatile String error;
+
+    /**
+     * Start a root span of a new trace.
+     * @param label Name
+     */
+    OtelSpan(final String label) {
+        this(OtelSpan.hex(2), "", label);
+    }
+
+    /**
+     * Start a child span.
+     * @param owner Parent span
+     * @param label Name
+     */
+    OtelSpan(final OtelSpan owner, final String label) {
+        this(owner.trace, owner.span, label);
+    }
+
+    /**
+     * Start a span.
+     * @param tid Trace ID
+     * @param pid Parent span ID, or empty
+     * @param label Name
+     */
+    private OtelSpan(final String tid, final String pid, final String label) {
+        this.trace = tid;
+        this.span = OtelSpan.hex(1);
+        this.parent = pid;
+        this.name = label;
+        this.start = System.currentTimeMillis();
+    }
+
+    /**
+     * Set attribute.
+     * @param key Key
+     * @param value Value, ignored if NULL
+     * @return This span
+     */
+    public OtelSpan with(final String key, final String value) {
+        if (value != null) {
+            this.attrs.put(key, value);
+        }
+        return this;
+    }
+
+    /**
+     * End the span.
+     * @param failure Error or NULL if succeeded
+     * @return This span
+     */
+    public OtelSpan end(final Throwable failure) {
+        if (failure != null) {
+            this.error = String.valueOf(failure.getMessage());
+            this.attrs.put("exception.type", failure.getClass().getName());
+        }
+        this.end = System.currentTimeMillis();
+        return this;
+    }
+
+    /**
+     * Span in OTLP/JSON.
+     * @return JSON object
+     */
+    public String json() {
+        final StringBuilder json = new StringBuilder(0)
+            .append("{\"traceId\":\"").append(this.trace)
+            .append("\",\"spanId\":\"").append(this.span).append('"');
+        if (!this.parent.isEmpty()) {
+            json.append(",\"parentSpanId\":\"").append(this.parent)
+                .append('"');
+        }
+        json.append(",\"name\":").append(Trace.quote(this.name))
+            .append(",\"kind\":1,\"startTimeUnixNano\":\"")
+            .append(OtelSpan.nanos(this.start))
+            .append("\",\"endTimeUnixNano\":\"")
+            .append(OtelSpan.nanos(Math.max(this.end, this.start)))
+            .append("\",\"attributes\":[");
+        boolean first = true;
+        for (final Map.Entry<String, String> attr : this.attrs.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append("{\"key\":").append(Trace.quote(attr.getKey()))
+                .append(",\"value\":{\"stringValue\":")
+                .append(Trace.quote(attr.getValue())).append("}}");
+        }
+        json.append("],\"status\":{");
+        if (this.error == null) {
+            json.append("\"code\":1");
+        } else {
+            json.append("\"code\":2,\"message\":")
+                .append(Trace.quote(this.error));
+        }
+        return json.append("}}").toString();
+    }
+
+    /**
+     * Random ID.
+     * @param longs Length in longs
+     * @return Hex digits
+     */
+    private static String hex(final int longs) {
+        final StringBuilder hex = new StringBuilder(longs << 4);
+        for (int idx = 0; idx < longs; ++idx) {
+            hex.append(String.format("%016x", OtelSpan.RANDOM.nextLong()));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Nanoseconds from milliseconds.
+     * @param millis Milliseconds
+     * @return Nanoseconds, as text
+     */
+    private static String nanos(final long millis) {
+        return Long.toString(millis * 1000000L);
+    }
+
+}
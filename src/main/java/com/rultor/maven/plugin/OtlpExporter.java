@@ -0,0 +1,287 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.ToString;
+
+/**
+ * Exporter of {@link OtelSpan}s in OTLP/JSON, in batches, by a single
+ * background thread.
+ *
+ * <p>The target is either an OTLP/HTTP endpoint, like
+ * {@code http://localhost:4318}, where batches are posted to
+ * {@code /v1/traces}, or a file, where every batch is appended as
+ * one line. Build threads only offer spans to a bounded queue and never
+ * wait: when the queue is full, spans are dropped and counted. Failures
+ * to export are logged, but never break the build. When closed, the
+ * rest of the queue is exported, but a slow collector can't hold
+ * the end of the build longer than {@link #GRACE}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString(of = "target")
+@SuppressWarnings("PMD.DoNotUseThreads")
+final class OtlpExporter {
+
+    /**
+     * Maximum number of spans in one batch.
+     */
+    static final int BATCH = 512;
+
+    /**
+     * How long to wait for a span, before checking whether closed,
+     * in milliseconds.
+     */
+    private static final long LINGER = 200L;
+
+    /**
+     * Timeout of HTTP connection, in milliseconds.
+     */
+    private static final int TIMEOUT = 5000;
+
+    /**
+     * How long to wait for the queue to be exported when closed,
+     * in milliseconds.
+     */
+    private static final long GRACE = 10000L;
+
+    /**
+     * HTTP endpoint or file name.
+     */
+    private final transient String target;
+
+    /**
+     * Spans waiting to be exported.
+     */
+    private final transient BlockingQueue<OtelSpan> queue;
+
+    /**
+     * Spans dropped on overflow.
+     */
+    private final transient AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Batches failed to export.
+     */
+    private final transient AtomicLong failed = new AtomicLong();
+
+    /**
+     * Closed already?
+     */
+    private final transient AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Background exporter.
+     */
+    private final transient Thread worker;
+
+    /**
+     * Public ctor.
+     * @param where HTTP endpoint or file name
+     * @param capacity Maximum number of spans waiting in the queue
+     */
+    OtlpExporter(final String where, final int capacity) {
+        this.target = where;
+        this.queue = new ArrayBlockingQueue<OtelSpan>(capacity);
+        this.worker = new Thread(
+            new Runnable() {
+                @Override
+                public void run() {
+                    OtlpExporter.this.loop();
+                }
+            },
+            "rultor-otlp"
+        );
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Export an ended span, some time later.
+     * @param span The span
+     */
+    public void export(final OtelSpan span) {
+        if (this.closed.get() || !this.queue.offer(span)) {
+            this.dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Export everything in the queue and stop, waiting no longer than
+     * {@link #GRACE}; spans not exported by then are dropped.
+     */
+    public void close() {
+        if (this.closed.compareAndSet(false, true)) {
+            try {
+                this.worker.join(OtlpExporter.GRACE);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (this.worker.isAlive()) {
+                this.worker.interrupt();
+                final List<OtelSpan> rest = new ArrayList<OtelSpan>(0);
+                this.queue.drainTo(rest);
+                this.dropped.addAndGet(rest.size());
+            }
+            if (this.dropped.get() > 0L || this.failed.get() > 0L) {
+                Logger.warn(
+                    this, "%d span(s) dropped, %d batch(es) not exported",
+                    this.dropped.get(), this.failed.get()
+                );
+            }
+        }
+    }
+
+    /**
+     * Export loop, until closed and the queue is empty.
+     */
+    private void loop() {
+        final List<OtelSpan> batch = new ArrayList<OtelSpan>(0);
+        while (true) {
+            OtelSpan span = null;
+            try {
+                span = this.queue.poll(
+                    OtlpExporter.LINGER, TimeUnit.MILLISECONDS
+                );
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (span == null) {
+                if (this.closed.get() || Thread.interrupted()) {
+                    break;
+                }
+                continue;
+            }
+            batch.add(span);
+            this.queue.drainTo(batch, OtlpExporter.BATCH - 1);
+            try {
+                this.send(OtlpExporter.json(batch));
+            } catch (final IOException ex) {
+                if (this.failed.getAndIncrement() == 0L) {
+                    Logger.warn(this, "spans not exported: %s", ex);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Send a batch.
+     * @param json Batch in OTLP/JSON
+     * @throws IOException If fails
+     */
+    private void send(final String json) throws IOException {
+        final byte[] body = json.getBytes("UTF-8");
+        if (this.target.startsWith("http://")
+            || this.target.startsWith("https://")) {
+            String url = this.target;
+            if (!url.endsWith("/v1/traces")) {
+                url = String.format(
+                    "%s/v1/traces", url.replaceAll("/+$", "")
+                );
+            }
+            final HttpURLConnection conn =
+                (HttpURLConnection) new URL(url).openConnection();
+            try {
+                conn.setConnectTimeout(OtlpExporter.TIMEOUT);
+                conn.setReadTimeout(OtlpExporter.TIMEOUT);
+                conn.setRequestMethod("POST");
+                conn.setRequestProperty("Content-Type", "application/json");
+                conn.setDoOutput(true);
+                conn.setFixedLengthStreamingMode(body.length);
+                final OutputStream out = conn.getOutputStream();
+                try {
+                    out.write(body);
+                } finally {
+                    out.close();
+                }
+                final int code = conn.getResponseCode();
+                if (code < HttpURLConnection.HTTP_OK
+                    || code >= HttpURLConnection.HTTP_MULT_CHOICE) {
+                    throw new IOException(
+                        String.format("HTTP %d from %s", code, url)
+                    );
+                }
+            } finally {
+                conn.disconnect();
+            }
+        } else {
+            final File file = new File(this.target);
+            final File dir = file.getAbsoluteFile().getParentFile();
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException(String.format("can't create %s", dir));
+            }
+            final OutputStream out = new FileOutputStream(file, true);
+            try {
+                out.write(body);
+                out.write('\n');
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Batch in OTLP/JSON.
+     * @param batch Spans
+     * @return JSON object
+     */
+    private static String json(final List<OtelSpan> batch) {
+        final StringBuilder json = new StringBuilder(0).append(
+            // @checkstyle LineLength (1 line)
+            "{\"resourceSpans\":[{\"resource\":{\"attributes\":[{\"key\":\"service.name\",\"value\":{\"stringValue\":\"maven\"}}]},\"scopeSpans\":[{\"scope\":{\"name\":\"rultor-maven-plugin\"},\"spans\":["
+        );
+        for (int idx = 0; idx < batch.size(); ++idx) {
+            if (idx > 0) {
+                json.append(',');
+            }
+            json.append(batch.get(idx).json());
+        }
+        return json.append("]}]}]}").toString();
+    }
+
+}
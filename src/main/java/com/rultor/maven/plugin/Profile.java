@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.ToString;
+
+/**
+ * Stack samples of one thread, aggregated into collapsed stacks.
+ *
+ * <p>Every distinct stack is kept once, as a line of frames from the
+ * root to the leaf, separated by semicolons, with the number of times
+ * it was sampled. This is the "folded" format of flame graph tools.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@ToString(of = { "thread", "start" })
+final class Profile {
+
+    /**
+     * Sampled thread.
+     */
+    private final transient Thread thread;
+
+    /**
+     * When sampling may start, in milliseconds.
+     */
+    private final transient long start;
+
+    /**
+     * Number of samples by collapsed stacks.
+     */
+    private final transient Map<String, Integer> stacks =
+        new HashMap<String, Integer>(0);
+
+    /**
+     * Number of samples by leaf frames.
+     */
+    private final transient Map<String, Integer> leaves =
+        new HashMap<String, Integer>(0);
+
+    /**
+     * Total number of samples.
+     */
+    private transient int total;
+
+    /**
+     * Public ctor.
+     * @param sampled Thread to sample
+     * @param time When sampling may start, in milliseconds
+     */
+    Profile(final Thread sampled, final long time) {
+        this.thread = sampled;
+        this.start = time;
+    }
+
+    /**
+     * Take a sample, if it's time.
+     * @param now Current time, in milliseconds
+     */
+    public void sample(final long now) {
+        if (now >= this.start) {
+            final StackTraceElement[] trace = this.thread.getStackTrace();
+            if (trace.length > 0) {
+                final StringBuilder stack = new StringBuilder(0);
+                for (int idx = trace.length - 1; idx >= 0; --idx) {
+                    stack.append(Profile.frame(trace[idx]));
+                    if (idx > 0) {
+                        stack.append(';');
+                    }
+                }
+                synchronized (this.stacks) {
+                    Profile.increment(this.stacks, stack.toString());
+                    Profile.increment(this.leaves, Profile.frame(trace[0]));
+                    ++this.total;
+                }
+            }
+        }
+    }
+
+    /**
+     * Total number of samples.
+     * @return Number of samples
+     */
+    public int samples() {
+        synchronized (this.stacks) {
+            return this.total;
+        }
+    }
+
+    /**
+     * Frames sampled most often on top of the stack.
+     * @param max Maximum number of frames
+     * @return Frames and their samples, most often first
+     */
+    public List<Map.Entry<String, Integer>> top(final int max) {
+        final List<Map.Entry<String, Integer>> top;
+        synchronized (this.stacks) {
+            top = new ArrayList<Map.Entry<String, Integer>>(
+                this.leaves.entrySet()
+            );
+        }
+        Collections.sort(
+            top,
+            new Comparator<Map.Entry<String, Integer>>() {
+                @Override
+                public int compare(final Map.Entry<String, Integer> left,
+                    final Map.Entry<String, Integer> right) {
+                    return right.getValue().compareTo(left.getValue());
+                }
+            }
+        );
+        return top.subList(0, Math.min(max, top.size()));
+    }
+
+    /**
+     * Save collapsed stacks.
+     * @param file File to write
+     * @throws IOException If fails
+     */
+    public void save(final File file) throws IOException {
+        final File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException(String.format("can't create %s", dir));
+        }
+        final PrintWriter out = new PrintWriter(
+            new OutputStreamWriter(new FileOutputStream(file), "UTF-8")
+        );
+        try {
+            synchronized (this.stacks) {
+                for (final Map.Entry<String, Integer> stack
+                    : this.stacks.entrySet()) {
+                    out.printf("%s %d\n", stack.getKey(), stack.getValue());
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Frame name.
+     * @param frame Frame
+     * @return Class and method
+     */
+    private static String frame(final StackTraceElement frame) {
+        return String.format(
+            "%s.%s", frame.getClassName(), frame.getMethodName()
+        );
+    }
+
+    /**
+     * Increment a counter.
+     * @param counters Counters
+     * @param key Key of the counter
+     */
+    private static void increment(final Map<String, Integer> counters,
+        final String key) {
+        final Integer count = counters.get(key);
+        if (count == null) {
+            counters.put(key, 1);
+        } else {
+            counters.put(key, count + 1);
+        }
+    }
+
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import lombok.ToString;
+import org.xembly.Directives;
+
+/**
+ * Steps profiled by sampling, when they run too long.
+ *
+ * <p>One background thread wakes up every interval and takes a stack
+ * trace of every thread running a step longer than the threshold.
+ * Samples are aggregated per step in a {@link Profile}. When the step
+ * completes, its collapsed stacks are saved to
+ * {@code <directory>/<step>.folded}, ready for flame graph tools, and
+ * frames sampled most often on top of the stack are added to the step
+ * as {@code profile} element. Steps shorter than the threshold cost
+ * one map entry and are never sampled.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString(of = { "origin", "dir", "threshold" })
+@SuppressWarnings("PMD.DoNotUseThreads")
+final class ProfiledSteps implements Steps {
+
+    /**
+     * How many top frames to report.
+     */
+    private static final int TOP = 5;
+
+    /**
+     * Characters not allowed in file names.
+     */
+    private static final Pattern UNSAFE = Pattern.compile("[^\\w.#-]");
+
+    /**
+     * Original steps.
+     */
+    private final transient Steps origin;
+
+    /**
+     * Where to send Xembly directives.
+     */
+    private final transient Emitter emitter;
+
+    /**
+     * Directory for collapsed stacks.
+     */
+    private final transient File dir;
+
+    /**
+     * Threshold, in milliseconds.
+     */
+    private final transient long threshold;
+
+    /**
+     * Profiles of steps in progress.
+     */
+    private final transient ConcurrentMap<Identity, Profile> profiles =
+        new ConcurrentHashMap<Identity, Profile>(0);
+
+    /**
+     * Sampling thread.
+     */
+    private final transient ScheduledExecutorService sampler;
+
+    /**
+     * Public ctor.
+     * @param steps Original steps
+     * @param emtr Emitter of directives
+     * @param folder Directory for collapsed stacks
+     * @param limit Threshold, in milliseconds
+     * @param interval Interval between samples, in milliseconds
+     * @checkstyle ParameterNumber (4 lines)
+     */
+    ProfiledSteps(final Steps steps, final Emitter emtr, final File folder,
+        final long limit, final long interval) {
+        this.origin = steps;
+        this.emitter = emtr;
+        this.dir = folder;
+        this.threshold = limit;
+        this.sampler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread =
+                        new Thread(runnable, "rultor-profiler");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }
+        );
+        this.sampler.scheduleAtFixedRate(
+            new Runnable() {
+                @Override
+                public void run() {
+                    ProfiledSteps.this.sample();
+                }
+            },
+            interval, interval, TimeUnit.MILLISECONDS
+        );
+    }
+
+    @Override
+    public void started(final Identity step) {
+        this.origin.started(step);
+        this.profiles.put(
+            step,
+            new Profile(
+                Thread.currentThread(),
+                System.currentTimeMillis() + this.threshold
+            )
+        );
+    }
+
+    @Override
+    public Span succeeded(final Identity step) {
+        final Profile profile = this.profiles.remove(step);
+        final Span span = this.origin.succeeded(step);
+        this.report(step, profile);
+        return span;
+    }
+
+    @Override
+    public void skipped(final Identity step) {
+        this.origin.skipped(step);
+    }
+
+    @Override
+    public Span failed(final Identity step, final Throwable error) {
+        final Profile profile = this.profiles.remove(step);
+        final Span span = this.origin.failed(step, error);
+        this.report(step, profile);
+        return span;
+    }
+
+    @Override
+    public void close() {
+        this.sampler.shutdownNow();
+        this.profiles.clear();
+        this.origin.close();
+    }
+
+    /**
+     * Sample all steps running too long.
+     */
+    private void sample() {
+        final long now = System.currentTimeMillis();
+        for (final Profile profile : this.profiles.values()) {
+            profile.sample(now);
+        }
+    }
+
+    /**
+     * Save profile of a completed step and add its top frames to it.
+     * @param step Identity of the step
+     * @param profile Profile or NULL
+     */
+    private void report(final Identity step, final Profile profile) {
+        if (profile != null && profile.samples() > 0) {
+            final File file = new File(
+                this.dir,
+                String.format(
+                    "%s.folded",
+                    ProfiledSteps.UNSAFE.matcher(step.id()).replaceAll("_")
+                )
+            );
+            try {
+                profile.save(file);
+            } catch (final IOException ex) {
+                Logger.warn(this, "Profile %s is not saved: %s", file, ex);
+            }
+            final Directives dirs = new Directives()
+                .xpath("/snapshot/steps")
+                .xpath(step.xpath())
+                .add("profile")
+                .attr("samples", Integer.toString(profile.samples()))
+                .attr("file", file.getAbsolutePath());
+            for (final Map.Entry<String, Integer> frame
+                : profile.top(ProfiledSteps.TOP)) {
+                dirs.add("frame")
+                    .attr("samples", Integer.toString(frame.getValue()))
+                    .set(frame.getKey())
+                    .up();
+            }
+            this.emitter.emit(step.id(), dirs);
+        }
+    }
+
+}
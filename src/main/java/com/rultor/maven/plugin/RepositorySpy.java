@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import org.sonatype.aether.RepositoryEvent;
+import org.sonatype.aether.RepositoryListener;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.repository.RemoteRepository;
+
+/**
+ * Repository listener that counts resolutions and downloads
+ * in {@link Downloads}.
+ *
+ * <p>Maven fires these events in the thread that needs the artifact,
+ * that's why they are attributed to the project or mojo this thread
+ * is busy with. All events go to the original listener, if there is one.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@SuppressWarnings("PMD.TooManyMethods")
+final class RepositorySpy implements RepositoryListener {
+
+    /**
+     * Original listener or NULL.
+     */
+    private final transient RepositoryListener origin;
+
+    /**
+     * Downloads to feed.
+     */
+    private final transient Downloads downloads;
+
+    /**
+     * Constructor.
+     * @param lstnr Original listener or NULL
+     * @param dwnlds Downloads
+     */
+    RepositorySpy(final RepositoryListener lstnr, final Downloads dwnlds) {
+        this.origin = lstnr;
+        this.downloads = dwnlds;
+    }
+
+    /**
+     * Original listener.
+     * @return Listener or NULL
+     */
+    public RepositoryListener original() {
+        return this.origin;
+    }
+
+    @Override
+    public void artifactResolved(final RepositoryEvent event) {
+        if (event.getException() == null) {
+            this.downloads.resolved(
+                event.getRepository() instanceof RemoteRepository
+            );
+        }
+        if (this.origin != null) {
+            this.origin.artifactResolved(event);
+        }
+    }
+
+    @Override
+    public void artifactDownloading(final RepositoryEvent event) {
+        this.downloads.downloading(RepositorySpy.name(event.getArtifact()));
+        if (this.origin != null) {
+            this.origin.artifactDownloading(event);
+        }
+    }
+
+    @Override
+    public void artifactDownloaded(final RepositoryEvent event) {
+        long bytes = 0L;
+        if (event.getException() == null && event.getFile() != null) {
+            bytes = event.getFile().length();
+        }
+        this.downloads.downloaded(
+            RepositorySpy.name(event.getArtifact()), bytes
+        );
+        if (this.origin != null) {
+            this.origin.artifactDownloaded(event);
+        }
+    }
+
+    @Override
+    public void artifactDescriptorInvalid(final RepositoryEvent event) {
+        if (this.origin != null) {
+            this.origin.artifactDescriptorInvalid(event);
+        }
+    }
+
+    @Override
+    public void artifactDescriptorMissing(final RepositoryEvent event) {
+        if (this.origin != null) {
+            this.origin.artifactDescriptorMissing(event);
+        }
+    }
+
+    @Override
+    public void metadataInvalid(final RepositoryEvent event) {
+        if (this.origin != null) {
+            this.origin.metadataInvalid(event);
+        }
+    }
+
+    @Override
+    public void artifactResolving(final RepositoryEvent event) {
+        if (this.origin != null) {
+            this.origin.artifactResolving(event);
+        }
+    }
+
+    @Override
+    public void metadataResolving(final RepositoryEvent event) {
+        if (this.origin != null) {
+            this.origin.metadataResolving(event);
+        }
+    }
+
+    @Override
+    public void metadataResolved(final RepositoryEvent event) {
+        if (this.origin != null) {
+            this.origin.metadataResolved(event);
+        }
+    }
+
+    @Override
+    public void metadataDownloading(final RepositoryEvent event) {
+        if (this.origin != null) {
+            this.origin.metadataDownloading(event);
+        }
+    }
+
+    @Override
+    public void metadataDownloaded(final RepositoryEvent event) {
+        if (this.origin != null) {
+            this.origin.metadataDownloaded(event);
+        }
+    }
+
+    @Override
+    public void artifactInstalling(final RepositoryEvent event) {
+        if (this.origin != null) {
+            this.origin.artifactInstalling(event);
+        }
+    }
+
+    @Override
+    public void artifactInstalled(final RepositoryEvent event) {
+        if (this.origin != null) {
+            this.origin.artifactInstalled(event);
+        }
+    }
+
+    @Override
+    public void metadataInstalling(final RepositoryEvent event) {
+        if (this.origin != null) {
+            this.origin.metadataInstalling(event);
+        }
+    }
+
+    @Override
+    public void metadataInstalled(final RepositoryEvent event) {
+        if (this.origin != null) {
+            this.origin.metadataInstalled(event);
+        }
+    }
+
+    @Override
+    public void artifactDeploying(final RepositoryEvent event) {
+        if (this.origin != null) {
+            this.origin.artifactDeploying(event);
+        }
+    }
+
+    @Override
+    public void artifactDeployed(final RepositoryEvent event) {
+        if (this.origin != null) {
+            this.origin.artifactDeployed(event);
+        }
+    }
+
+    @Override
+    public void metadataDeploying(final RepositoryEvent event) {
+        if (this.origin != null) {
+            this.origin.metadataDeploying(event);
+        }
+    }
+
+    @Override
+    public void metadataDeployed(final RepositoryEvent event) {
+        if (this.origin != null) {
+            this.origin.metadataDeployed(event);
+        }
+    }
+
+    /**
+     * Coordinates of an artifact.
+     * @param artifact The artifact or NULL
+     * @return Coordinates
+     */
+    private static String name(final Artifact artifact) {
+        final String name;
+        if (artifact == null) {
+            name = "";
+        } else {
+            name = artifact.toString();
+        }
+        return name;
+    }
+
+}
@@ -0,0 +1,269 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.rultor.tools.Time;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import lombok.ToString;
+import org.xembly.Directives;
+
+/**
+ * Mojos of a multi-module build, rolled up into their projects.
+ *
+ * <p>Every mojo is timed, but reported as a step of its own only if its
+ * project ran longer than the threshold, or failed, or if the mojo is
+ * among the slowest ones in the whole build. All mojos of a project are
+ * also listed in the project step, as {@code mojo} elements of
+ * {@code mojos}, with their durations. This gives per-goal detail where
+ * it matters, without a step for every mojo of every module.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString(of = { "threshold", "top" })
+final class Rollup {
+
+    /**
+     * Where to send Xembly directives.
+     */
+    private final transient Emitter emitter;
+
+    /**
+     * Projects running longer, in milliseconds, get their mojos reported.
+     */
+    private final transient long threshold;
+
+    /**
+     * How many slowest mojos to report.
+     */
+    private final transient int top;
+
+    /**
+     * Start times of mojos in progress.
+     */
+    private final transient ConcurrentMap<Identity, Long> starts =
+        new ConcurrentHashMap<Identity, Long>(0);
+
+    /**
+     * Completed mojos, by projects in progress.
+     */
+    private final transient ConcurrentMap<Identity, List<Rollup.Mojo>> mojos =
+        new ConcurrentHashMap<Identity, List<Rollup.Mojo>>(0);
+
+    /**
+     * Slowest mojos so far, the fastest of them first.
+     */
+    private final transient PriorityQueue<Rollup.Mojo> slowest;
+
+    /**
+     * Public ctor.
+     * @param emtr Emitter of directives
+     * @param limit Threshold of projects, in milliseconds
+     * @param max How many slowest mojos to report, zero for none
+     */
+    Rollup(final Emitter emtr, final long limit, final int max) {
+        this.emitter = emtr;
+        this.threshold = limit;
+        this.top = max;
+        this.slowest = new PriorityQueue<Rollup.Mojo>(
+            Math.max(max, 1),
+            new Comparator<Rollup.Mojo>() {
+                @Override
+                public int compare(final Rollup.Mojo left,
+                    final Rollup.Mojo right) {
+                    return Long.valueOf(left.duration())
+                        .compareTo(right.duration());
+                }
+            }
+        );
+    }
+
+    /**
+     * Mojo started.
+     * @param mojo Identity of the mojo
+     */
+    public void started(final Identity mojo) {
+        this.starts.put(mojo, System.currentTimeMillis());
+    }
+
+    /**
+     * Mojo completed, one way or another.
+     * @param project Identity of its project
+     * @param mojo Identity of the mojo
+     */
+    public void completed(final Identity project, final Identity mojo) {
+        final Long start = this.starts.remove(mojo);
+        if (start != null) {
+            final Rollup.Mojo done = new Rollup.Mojo(
+                mojo, start, System.currentTimeMillis()
+            );
+            this.mojos.putIfAbsent(project, new LinkedList<Rollup.Mojo>());
+            final List<Rollup.Mojo> list = this.mojos.get(project);
+            synchronized (list) {
+                list.add(done);
+            }
+            if (this.top > 0) {
+                synchronized (this.slowest) {
+                    this.slowest.offer(done);
+                    if (this.slowest.size() > this.top) {
+                        this.slowest.poll();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Project completed, roll up its mojos.
+     * @param project Identity of the project, already in the snapshot
+     * @param span Span of the project or NULL if it failed
+     */
+    public void report(final Identity project, final Span span) {
+        final List<Rollup.Mojo> list = this.mojos.remove(project);
+        if (list != null) {
+            final boolean detailed = span == null
+                || span.duration() >= this.threshold;
+            final Directives dirs = new Directives()
+                .xpath("/snapshot/steps")
+                .xpath(project.xpath())
+                .add("mojos");
+            final Collection<Rollup.Mojo> steps =
+                new ArrayList<Rollup.Mojo>(0);
+            synchronized (list) {
+                for (final Rollup.Mojo mojo : list) {
+                    dirs.add("mojo")
+                        .attr("id", mojo.identity.id())
+                        .attr("duration", Long.toString(mojo.duration()))
+                        .set(mojo.identity.label())
+                        .up();
+                    if (detailed) {
+                        steps.add(mojo);
+                    }
+                }
+            }
+            this.emitter.emit(
+                project.id(), dirs.append(Rollup.steps(steps))
+            );
+        }
+    }
+
+    /**
+     * Report slowest mojos, which are not reported yet.
+     */
+    public void close() {
+        final Collection<Rollup.Mojo> steps;
+        synchronized (this.slowest) {
+            steps = new ArrayList<Rollup.Mojo>(this.slowest);
+            this.slowest.clear();
+        }
+        if (!steps.isEmpty()) {
+            this.emitter.emit(Rollup.steps(steps));
+        }
+        this.starts.clear();
+        this.mojos.clear();
+    }
+
+    /**
+     * Directives adding mojos as steps, if they are not added yet.
+     * @param mojos Mojos
+     * @return Directives
+     */
+    private static Directives steps(final Collection<Rollup.Mojo> mojos) {
+        final Directives dirs = new Directives();
+        for (final Rollup.Mojo mojo : mojos) {
+            if (mojo.reported) {
+                continue;
+            }
+            mojo.reported = true;
+            dirs.xpath("/snapshot").strict(1)
+                .addIf("steps").add("step")
+                .attr("id", mojo.identity.id())
+                .add("summary").set(mojo.identity.label()).up()
+                .add("start").set(new Time(mojo.start).toString()).up()
+                .add("finish").set(new Time(mojo.finish).toString()).up()
+                .add("level").set(Level.INFO.toString()).up()
+                .add("duration").set(Long.toString(mojo.duration()));
+        }
+        return dirs;
+    }
+
+    /**
+     * Completed mojo.
+     */
+    private static final class Mojo {
+        /**
+         * Identity.
+         */
+        private final transient Identity identity;
+        /**
+         * Start time, in milliseconds.
+         */
+        private final transient long start;
+        /**
+         * Finish time, in milliseconds.
+         */
+        private final transient long finish;
+        /**
+         * Already reported as a step?
+         */
+        private transient volatile boolean reported;
+        /**
+         * Ctor.
+         * @param ident Identity
+         * @param begin Start time
+         * @param end Finish time
+         */
+        Mojo(final Identity ident, final long begin, final long end) {
+            this.identity = ident;
+            this.start = begin;
+            this.finish = end;
+        }
+        /**
+         * Duration.
+         * @return Milliseconds
+         */
+        public long duration() {
+            return this.finish - this.start;
+        }
+    }
+
+}
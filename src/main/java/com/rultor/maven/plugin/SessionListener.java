@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+
+/**
+ * Outermost listener of the chain injected into one build session.
+ *
+ * <p>It marks the request as already having the chain, so that it is
+ * injected once per session, no matter how many times the mojo runs or
+ * how long the mojo instance lives (a build daemon keeps it between
+ * sessions). When the session ends, the original listener is put back
+ * into the request, and the whole chain with all its state becomes
+ * garbage.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@SuppressWarnings("PMD.TooManyMethods")
+final class SessionListener implements ExecutionListener {
+
+    /**
+     * Request of the session.
+     */
+    private final transient MavenExecutionRequest request;
+
+    /**
+     * Listener of the request before injection.
+     */
+    private final transient ExecutionListener original;
+
+    /**
+     * Injected chain, which calls the original listener.
+     */
+    private final transient ExecutionListener origin;
+
+    /**
+     * Constructor.
+     *
+     * @param req Request of the session
+     * @param before Listener of the request before injection
+     * @param chain Injected chain, which calls the original listener
+     */
+    SessionListener(final MavenExecutionRequest req,
+        final ExecutionListener before, final ExecutionListener chain) {
+        this.request = req;
+        this.original = before;
+        this.origin = chain;
+    }
+
+    /**
+     * Listener of the request before injection.
+     * @return Listener
+     */
+    public ExecutionListener original() {
+        return this.original;
+    }
+
+    @Override
+    public void projectDiscoveryStarted(final ExecutionEvent event) {
+        this.origin.projectDiscoveryStarted(event);
+    }
+
+    @Override
+    public void sessionStarted(final ExecutionEvent event) {
+        this.origin.sessionStarted(event);
+    }
+
+    @Override
+    public void sessionEnded(final ExecutionEvent event) {
+        try {
+            this.origin.sessionEnded(event);
+        } finally {
+            if (this.request.getExecutionListener() == this) {
+                this.request.setExecutionListener(this.original);
+            }
+        }
+    }
+
+    @Override
+    public void projectSkipped(final ExecutionEvent event) {
+        this.origin.projectSkipped(event);
+    }
+
+    @Override
+    public void projectStarted(final ExecutionEvent event) {
+        this.origin.projectStarted(event);
+    }
+
+    @Override
+    public void projectSucceeded(final ExecutionEvent event) {
+        this.origin.projectSucceeded(event);
+    }
+
+    @Override
+    public void projectFailed(final ExecutionEvent event) {
+        this.origin.projectFailed(event);
+    }
+
+    @Override
+    public void mojoSkipped(final ExecutionEvent event) {
+        this.origin.mojoSkipped(event);
+    }
+
+    @Override
+    public void mojoStarted(final ExecutionEvent event) {
+        this.origin.mojoStarted(event);
+    }
+
+    @Override
+    public void mojoSucceeded(final ExecutionEvent event) {
+        this.origin.mojoSucceeded(event);
+    }
+
+    @Override
+    public void mojoFailed(final ExecutionEvent event) {
+        this.origin.mojoFailed(event);
+    }
+
+    @Override
+    public void forkStarted(final ExecutionEvent event) {
+        this.origin.forkStarted(event);
+    }
+
+    @Override
+    public void forkSucceeded(final ExecutionEvent event) {
+        this.origin.forkSucceeded(event);
+    }
+
+    @Override
+    public void forkFailed(final ExecutionEvent event) {
+        this.origin.forkFailed(event);
+    }
+
+    @Override
+    public void forkedProjectStarted(final ExecutionEvent event) {
+        this.origin.forkedProjectStarted(event);
+    }
+
+    @Override
+    public void forkedProjectSucceeded(final ExecutionEvent event) {
+        this.origin.forkedProjectSucceeded(event);
+    }
+
+    @Override
+    public void forkedProjectFailed(final ExecutionEvent event) {
+        this.origin.forkedProjectFailed(event);
+    }
+
+}
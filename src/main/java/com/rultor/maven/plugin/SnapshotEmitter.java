@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import lombok.ToString;
+import org.xembly.Directives;
+
+/**
+ * Emitter that also builds the snapshot in memory and saves it to
+ * an XML file, when closed and, optionally, periodically.
+ *
+ * <p>Every portion of directives is applied to a {@link SnapshotTree}
+ * right away, to the step it modifies only, so it costs the same
+ * at the end of a big build as at the beginning. The file is written
+ * through a temporary file and renamed, so that readers never see
+ * a half-written snapshot. Checkpoints, if requested, are saved by
+ * a background thread.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@ToString(of = { "origin", "file" })
+@SuppressWarnings("PMD.DoNotUseThreads")
+final class SnapshotEmitter implements Emitter {
+
+    /**
+     * Original emitter.
+     */
+    private final transient Emitter origin;
+
+    /**
+     * Snapshot in memory.
+     */
+    private final transient SnapshotTree tree = new SnapshotTree();
+
+    /**
+     * File to save it to.
+     */
+    private final transient File file;
+
+    /**
+     * Thread that saves checkpoints, or NULL if there are no checkpoints.
+     */
+    private final transient ScheduledExecutorService worker;
+
+    /**
+     * Public ctor.
+     * @param emtr Original emitter
+     * @param path File to save the snapshot to
+     * @param interval Interval between checkpoints in milliseconds,
+     *  zero to save only when closed
+     */
+    SnapshotEmitter(final Emitter emtr, final File path, final long interval) {
+        this.origin = emtr;
+        this.file = path;
+        if (interval > 0L) {
+            this.worker = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread =
+                            new Thread(runnable, "rultor-snapshot");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }
+            );
+            this.worker.scheduleWithFixedDelay(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        SnapshotEmitter.this.save();
+                    }
+                },
+                interval, interval, TimeUnit.MILLISECONDS
+            );
+        } else {
+            this.worker = null;
+        }
+    }
+
+    @Override
+    public void emit(final Directives dirs) {
+        this.tree.apply(dirs);
+        this.origin.emit(dirs);
+    }
+
+    @Override
+    public void emit(final String step, final Directives dirs) {
+        this.tree.apply(step, dirs);
+        this.origin.emit(step, dirs);
+    }
+
+    @Override
+    public void close() {
+        if (this.worker != null) {
+            this.worker.shutdownNow();
+        }
+        this.save();
+        this.origin.close();
+    }
+
+    /**
+     * Save the snapshot.
+     */
+    private void save() {
+        try {
+            this.tree.save(this.file);
+        } catch (final IOException ex) {
+            Logger.warn(this, "Snapshot %s is not saved: %s", this.file, ex);
+        }
+    }
+
+}
@@ -0,0 +1,337 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import lombok.ToString;
+import org.w3c.dom.Attr;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xembly.Directive;
+import org.xembly.ImpossibleModificationException;
+import org.xembly.Xembler;
+
+/**
+ * Snapshot, built in memory from Xembly directives, step by step.
+ *
+ * <p>Every step lives in a small document of its own, which looks like
+ * a snapshot with this one step, and documents are indexed by IDs
+ * of their steps. Directives modifying a step, emitted with its ID,
+ * are applied by {@link Xembler} to the document of this step only,
+ * so their XPath queries never see the rest of the snapshot, and
+ * a portion costs the same, no matter how many steps are there
+ * already. Directives without an ID are applied to an empty snapshot.
+ * Steps added by directives are moved to documents of their own,
+ * other elements are ignored. The whole snapshot is serialized
+ * to XML only when it's saved or printed.
+ *
+ * <p>The class is thread-safe, different steps are modified
+ * in parallel.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString(of = "index")
+final class SnapshotTree {
+
+    /**
+     * Documents of steps, in the order steps were added.
+     */
+    private final transient List<Document> order =
+        new ArrayList<Document>(0);
+
+    /**
+     * Documents of steps, by IDs of steps (guarded by the order).
+     */
+    private final transient Map<String, Document> index =
+        new HashMap<String, Document>(0);
+
+    /**
+     * Modified since last saved?
+     */
+    private final transient AtomicBoolean dirty = new AtomicBoolean();
+
+    /**
+     * DOM implementation.
+     */
+    private final transient DOMImplementation dom;
+
+    /**
+     * Public ctor.
+     */
+    SnapshotTree() {
+        try {
+            this.dom = DocumentBuilderFactory.newInstance()
+                .newDocumentBuilder().getDOMImplementation();
+        } catch (final ParserConfigurationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Apply directives, which add steps.
+     * @param dirs Directives
+     */
+    public void apply(final Collection<Directive> dirs) {
+        this.apply("", dirs);
+    }
+
+    /**
+     * Apply directives, which modify the given step.
+     * @param step ID of the step
+     * @param dirs Directives
+     */
+    public void apply(final String step, final Collection<Directive> dirs) {
+        Document doc;
+        synchronized (this.order) {
+            doc = this.index.get(step);
+        }
+        final boolean fresh = doc == null;
+        if (fresh) {
+            doc = this.skeleton();
+        }
+        final Collection<Document> added = new ArrayList<Document>(0);
+        synchronized (doc) {
+            try {
+                new Xembler(dirs).apply(doc);
+            } catch (final ImpossibleModificationException ex) {
+                Logger.warn(this, "Directives are not applied: %s", ex);
+            }
+            final List<Element> steps =
+                SnapshotTree.children(SnapshotTree.steps(doc));
+            if (fresh && !steps.isEmpty()) {
+                added.add(doc);
+            }
+            for (final Element element
+                : steps.subList(Math.min(1, steps.size()), steps.size())) {
+                final Document own = this.skeleton();
+                SnapshotTree.steps(own).appendChild(own.adoptNode(element));
+                added.add(own);
+            }
+        }
+        synchronized (this.order) {
+            for (final Document add : added) {
+                this.order.add(add);
+                this.index.put(SnapshotTree.id(add), add);
+            }
+        }
+        this.dirty.set(true);
+    }
+
+    /**
+     * Save it as XML, if it was modified since last saved.
+     * @param file File to write
+     * @throws IOException If fails
+     */
+    public void save(final File file) throws IOException {
+        synchronized (this) {
+            if (this.dirty.getAndSet(false)) {
+                boolean saved = false;
+                try {
+                    this.write(file);
+                    saved = true;
+                } finally {
+                    if (!saved) {
+                        this.dirty.set(true);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Print it as XML.
+     * @param output Where to print
+     * @throws IOException If fails
+     */
+    public void print(final OutputStream output) throws IOException {
+        final Collection<Document> docs;
+        synchronized (this.order) {
+            docs = new ArrayList<Document>(this.order);
+        }
+        try {
+            final XMLStreamWriter xml = XMLOutputFactory.newInstance()
+                .createXMLStreamWriter(output, "UTF-8");
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeStartElement("snapshot");
+            if (!docs.isEmpty()) {
+                xml.writeStartElement("steps");
+                for (final Document doc : docs) {
+                    synchronized (doc) {
+                        for (final Element step
+                            : SnapshotTree.children(SnapshotTree.steps(doc))) {
+                            SnapshotTree.print(step, xml);
+                        }
+                    }
+                }
+                xml.writeEndElement();
+            }
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.close();
+        } catch (final XMLStreamException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    /**
+     * Write it to the file, through a temporary file.
+     * @param file File to write
+     * @throws IOException If fails
+     */
+    private void write(final File file) throws IOException {
+        final File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException(String.format("can't create %s", dir));
+        }
+        final File temp = File.createTempFile("snapshot", ".tmp", dir);
+        final OutputStream output = new BufferedOutputStream(
+            new FileOutputStream(temp)
+        );
+        try {
+            this.print(output);
+        } finally {
+            output.close();
+        }
+        if (!temp.renameTo(file)
+            && !(file.delete() && temp.renameTo(file))) {
+            throw new IOException(
+                String.format("can't rename %s to %s", temp, file)
+            );
+        }
+    }
+
+    /**
+     * Empty snapshot document.
+     * @return Document with empty {@code /snapshot/steps}
+     */
+    private Document skeleton() {
+        final Document doc = this.dom.createDocument(null, "snapshot", null);
+        doc.getDocumentElement().appendChild(doc.createElement("steps"));
+        return doc;
+    }
+
+    /**
+     * Element {@code /snapshot/steps} of the document.
+     * @param doc Document
+     * @return Element, created if it was removed
+     */
+    private static Element steps(final Document doc) {
+        final Element root = doc.getDocumentElement();
+        Element steps = null;
+        for (final Element child : SnapshotTree.children(root)) {
+            if ("steps".equals(child.getNodeName())) {
+                steps = child;
+                break;
+            }
+        }
+        if (steps == null) {
+            steps = doc.createElement("steps");
+            root.appendChild(steps);
+        }
+        return steps;
+    }
+
+    /**
+     * ID of the only step in the document.
+     * @param doc Document
+     * @return ID
+     */
+    private static String id(final Document doc) {
+        return SnapshotTree.children(SnapshotTree.steps(doc)).get(0)
+            .getAttribute("id");
+    }
+
+    /**
+     * Child elements.
+     * @param node Parent node
+     * @return Elements
+     */
+    private static List<Element> children(final Node node) {
+        final NodeList nodes = node.getChildNodes();
+        final List<Element> elements =
+            new ArrayList<Element>(nodes.getLength());
+        for (int idx = 0; idx < nodes.getLength(); ++idx) {
+            if (nodes.item(idx).getNodeType() == Node.ELEMENT_NODE) {
+                elements.add((Element) nodes.item(idx));
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Print one element.
+     * @param node Element
+     * @param xml Where to print
+     * @throws XMLStreamException If fails
+     */
+    private static void print(final Node node, final XMLStreamWriter xml)
+        throws XMLStreamException {
+        xml.writeStartElement(node.getNodeName());
+        final NamedNodeMap attrs = node.getAttributes();
+        for (int idx = 0; idx < attrs.getLength(); ++idx) {
+            final Attr attr = (Attr) attrs.item(idx);
+            xml.writeAttribute(attr.getName(), attr.getValue());
+        }
+        final NodeList children = node.getChildNodes();
+        for (int idx = 0; idx < children.getLength(); ++idx) {
+            final Node child = children.item(idx);
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                SnapshotTree.print(child, xml);
+            } else if (child.getNodeType() == Node.TEXT_NODE) {
+                xml.writeCharacters(child.getNodeValue());
+            }
+        }
+        xml.writeEndElement();
+    }
+
+}
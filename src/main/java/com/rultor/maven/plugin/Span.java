@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Measured interval of a build step, executed by some thread.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@ToString
+@EqualsAndHashCode
+final class Span {
+
+    /**
+     * Start, in milliseconds.
+     */
+    private final transient long begin;
+
+    /**
+     * Finish, in milliseconds.
+     */
+    private final transient long end;
+
+    /**
+     * Name of the thread.
+     */
+    private final transient String worker;
+
+    /**
+     * Public ctor.
+     * @param start Start time, in milliseconds
+     * @param finish Finish time, in milliseconds
+     * @param thread Name of the thread
+     */
+    Span(final long start, final long finish, final String thread) {
+        this.begin = start;
+        this.end = finish;
+        this.worker = thread;
+    }
+
+    /**
+     * Start time.
+     * @return Milliseconds
+     */
+    public long start() {
+        return this.begin;
+    }
+
+    /**
+     * Finish time.
+     * @return Milliseconds
+     */
+    public long finish() {
+        return this.end;
+    }
+
+    /**
+     * Duration.
+     * @return Milliseconds
+     */
+    public long duration() {
+        return this.end - this.begin;
+    }
+
+    /**
+     * Thread name.
+     * @return Name of the thread
+     */
+    public String thread() {
+        return this.worker;
+    }
+
+}
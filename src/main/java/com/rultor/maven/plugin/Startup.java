@@ -0,0 +1,250 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import com.rultor.tools.Time;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import lombok.ToString;
+import org.apache.maven.project.MavenProject;
+import org.xembly.Directives;
+
+/**
+ * Latency of the reactor, from the start of the JVM to the start of
+ * the first project.
+ *
+ * <p>The plugin is injected by a goal of the first project, when project
+ * discovery and the session have already started, so these events are
+ * usually not seen. Then the start of the Maven execution request is
+ * the start of discovery (loading and building models of all projects,
+ * sorting them in reactor order), and the moment of injection is the
+ * start of the first project. If the events are seen, their times are
+ * used instead, and the time between the session start and the first
+ * project is reported as scheduling.
+ *
+ * <p>Maven doesn't tell how long the model of every project took to
+ * build, that's why the average is reported together with what makes
+ * models expensive: active profiles, managed dependencies (imported
+ * BOMs contribute here) and dependencies of every project.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString(of = { "boot", "request" })
+final class Startup {
+
+    /**
+     * Step ID in snapshot.
+     */
+    public static final String ID = "startup";
+
+    /**
+     * Start of the JVM, in milliseconds.
+     */
+    private final transient long boot;
+
+    /**
+     * Start of the execution request, or zero if unknown.
+     */
+    private final transient long request;
+
+    /**
+     * Injection of the plugin, in milliseconds.
+     */
+    private final transient long injected;
+
+    /**
+     * Projects of the reactor.
+     */
+    private final transient Collection<MavenProject> projects;
+
+    /**
+     * Start of project discovery, or zero if not seen.
+     */
+    private final transient AtomicLong discovery = new AtomicLong();
+
+    /**
+     * Start of the session, or zero if not seen.
+     */
+    private final transient AtomicLong session = new AtomicLong();
+
+    /**
+     * Start of the first project, or zero if not seen.
+     */
+    private final transient AtomicLong first = new AtomicLong();
+
+    /**
+     * Public ctor.
+     * @param jvm Start of the JVM
+     * @param req Start of the execution request, or zero if unknown
+     * @param now Injection of the plugin
+     * @param prjs Projects of the reactor
+     * @checkstyle ParameterNumber (3 lines)
+     */
+    Startup(final long jvm, final long req, final long now,
+        final Collection<MavenProject> prjs) {
+        this.boot = jvm;
+        this.request = req;
+        this.injected = now;
+        this.projects = new ArrayList<MavenProject>(prjs);
+    }
+
+    /**
+     * Project discovery started.
+     * @param time When
+     */
+    public void discovered(final long time) {
+        this.discovery.compareAndSet(0L, time);
+    }
+
+    /**
+     * Session started.
+     * @param time When
+     */
+    public void started(final long time) {
+        this.session.compareAndSet(0L, time);
+    }
+
+    /**
+     * Project started.
+     * @param time When
+     */
+    public void project(final long time) {
+        this.first.compareAndSet(0L, time);
+    }
+
+    /**
+     * Directives with the step.
+     * @return Directives
+     */
+    public Directives directives() {
+        long begin = this.boot;
+        if (this.request > 0L) {
+            begin = this.request;
+        }
+        final long discovered = Startup.either(this.discovery.get(), begin);
+        final long started = this.session.get();
+        long launched = this.injected;
+        if (started > 0L) {
+            launched = Startup.either(this.first.get(), launched);
+        }
+        final long models = Startup.either(started, launched) - discovered;
+        final long start = Math.min(this.boot, discovered);
+        final Directives dirs = new Directives()
+            .xpath("/snapshot").strict(1)
+            .addIf("steps").add("step")
+            .attr("id", Startup.ID)
+            .add("summary")
+            .set(
+                Logger.format(
+                    "%d project(s) in reactor, %[ms]s of discovery",
+                    this.projects.size(), models
+                )
+            ).up()
+            .add("start").set(new Time(start).toString()).up()
+            .add("finish").set(new Time(launched).toString()).up()
+            .add("level").set(Level.INFO.toString()).up()
+            .add("duration").set(Long.toString(launched - start)).up()
+            .add("startup");
+        if (discovered > this.boot) {
+            Startup.phase(dirs, "boot", this.boot, discovered);
+        }
+        Startup.phase(dirs, "discovery", discovered, discovered + models);
+        if (started > 0L) {
+            Startup.phase(dirs, "scheduling", started, launched);
+        }
+        dirs.up().add("projects")
+            .attr("count", Integer.toString(this.projects.size()))
+            .attr(
+                "average",
+                Long.toString(models / Math.max(1, this.projects.size()))
+            );
+        for (final MavenProject project : this.projects) {
+            int managed = 0;
+            if (project.getDependencyManagement() != null) {
+                managed = project.getDependencyManagement()
+                    .getDependencies().size();
+            }
+            dirs.add("project")
+                .attr("id", XemblyProjects.identifier(project))
+                .attr(
+                    "profiles",
+                    Integer.toString(project.getActiveProfiles().size())
+                )
+                .attr("managed", Integer.toString(managed))
+                .attr(
+                    "dependencies",
+                    Integer.toString(project.getDependencies().size())
+                )
+                .up();
+        }
+        return dirs;
+    }
+
+    /**
+     * Add a phase.
+     * @param dirs Directives to add to
+     * @param name Name of the phase
+     * @param start Its start
+     * @param finish Its finish
+     * @checkstyle ParameterNumber (3 lines)
+     */
+    private static void phase(final Directives dirs, final String name,
+        final long start, final long finish) {
+        dirs.add("phase")
+            .attr("id", name)
+            .attr("start", new Time(start).toString())
+            .attr("duration", Long.toString(Math.max(0L, finish - start)))
+            .up();
+    }
+
+    /**
+     * Time, if known, or the default.
+     * @param time Time or zero
+     * @param dflt Default
+     * @return Time
+     */
+    private static long either(final long time, final long dflt) {
+        long either = dflt;
+        if (time > 0L) {
+            either = time;
+        }
+        return either;
+    }
+
+}
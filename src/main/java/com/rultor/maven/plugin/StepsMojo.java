@@ -31,6 +31,10 @@ package com.rultor.maven.plugin;
 
 import com.jcabi.aspects.Loggable;
 import com.jcabi.log.Logger;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import org.apache.maven.execution.ExecutionListener;
@@ -61,6 +65,14 @@ import org.apache.maven.project.MavenProject;
 @Loggable(Loggable.DEBUG)
 public final class StepsMojo extends AbstractMojo {
 
+    /**
+     * Sonatype Aether of Maven 3.0.x is visible, which is required
+     * for {@link DownloadsListener}.
+     */
+    private static final boolean AETHER = StepsMojo.visible(
+        "org.sonatype.aether.util.DefaultRepositorySystemSession"
+    );
+
     /**
      * Maven session, to be injected by Maven itself.
      */
@@ -82,14 +94,290 @@ public final class StepsMojo extends AbstractMojo {
     private transient boolean skip;
 
     /**
-     * Listener already injected.
-     * @since 0.3
+     * Emit Xembly from a background thread, not from build threads.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.async", defaultValue = "false")
+    private transient boolean async;
+
+    /**
+     * Capacity of the queue in asynchronous mode.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.async.capacity", defaultValue = "4096")
+    private transient int capacity;
+
+    /**
+     * What to do when the queue is full in asynchronous mode,
+     * either "block" or "drop".
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.async.overflow", defaultValue = "block")
+    private transient String overflow;
+
+    /**
+     * Report every step by one Xembly line, when it is completed.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.compact", defaultValue = "false")
+    private transient boolean compact;
+
+    /**
+     * How often to report steps in progress in compact mode, in seconds,
+     * zero to never report them.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.heartbeat", defaultValue = "60")
+    private transient int heartbeat;
+
+    /**
+     * Record all events into a binary journal.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.journal", defaultValue = "false")
+    private transient boolean journal;
+
+    /**
+     * Binary journal of events.
+     * @since 1.0
+     */
+    @Parameter(
+        property = "rultor.journal.file",
+        defaultValue = "${project.build.directory}/rultor-events.bin"
+    )
+    private transient File events;
+
+    /**
+     * Remember durations of steps and forecast progress of the build
+     * from them.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.history", defaultValue = "false")
+    private transient boolean history;
+
+    /**
+     * File with durations of steps in previous builds.
+     * @since 1.0
+     */
+    @Parameter(
+        property = "rultor.history.file",
+        // @checkstyle LineLength (1 line)
+        defaultValue = "${user.home}/.m2/rultor/${project.groupId}/${project.artifactId}.txt"
+    )
+    private transient File durations;
+
+    /**
+     * Report CPU time, allocated bytes and garbage collections
+     * of every step.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.usage", defaultValue = "false")
+    private transient boolean usage;
+
+    /**
+     * Profile steps running longer than the threshold.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.profile", defaultValue = "false")
+    private transient boolean profile;
+
+    /**
+     * Profile steps running longer than this, in seconds.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.profile.threshold", defaultValue = "30")
+    private transient int threshold;
+
+    /**
+     * Interval between stack samples of profiled steps, in milliseconds.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.profile.interval", defaultValue = "20")
+    private transient int interval;
+
+    /**
+     * Directory for collapsed stacks of profiled steps.
+     * @since 1.0
+     */
+    @Parameter(
+        property = "rultor.profile.dir",
+        defaultValue = "${project.build.directory}/rultor-profiles"
+    )
+    private transient File profiles;
+
+    /**
+     * Watch steps for hanging.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.watchdog", defaultValue = "true")
+    private transient boolean watchdog;
+
+    /**
+     * Warn about steps running longer than this, in seconds.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.watchdog.soft", defaultValue = "600")
+    private transient int soft;
+
+    /**
+     * Alarm about steps running longer than this, in seconds.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.watchdog.hard", defaultValue = "1800")
+    private transient int hard;
+
+    /**
+     * Directory for thread dumps of hanging steps.
+     * @since 1.0
+     */
+    @Parameter(
+        property = "rultor.watchdog.dir",
+        defaultValue = "${project.build.directory}"
+    )
+    private transient File dumps;
+
+    /**
+     * Maximum length of stack traces and messages of failures,
+     * in characters.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.failure.cap", defaultValue = "16384")
+    private transient int cap;
+
+    /**
+     * Directory for full stack traces of failures.
+     * @since 1.0
+     */
+    @Parameter(
+        property = "rultor.failure.dir",
+        defaultValue = "${project.build.directory}/rultor-failures"
+    )
+    private transient File failures;
+
+    /**
+     * Build the snapshot in memory and save it to a file.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.snapshot", defaultValue = "true")
+    private transient boolean snapshot;
+
+    /**
+     * File with the snapshot, saved at the end of the build.
+     * @since 1.0
+     */
+    @Parameter(
+        property = "rultor.snapshot.file",
+        defaultValue = "${project.build.directory}/rultor-snapshot.xml"
+    )
+    private transient File xml;
+
+    /**
+     * How often to save the snapshot during the build, in seconds,
+     * zero to save it only at the end.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.snapshot.checkpoint", defaultValue = "0")
+    private transient int checkpoint;
+
+    /**
+     * Write Chrome trace-event file of the build.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.trace", defaultValue = "false")
+    private transient boolean trace;
+
+    /**
+     * Chrome trace-event file.
+     * @since 1.0
+     */
+    @Parameter(
+        property = "rultor.trace.file",
+        defaultValue = "${project.build.directory}/rultor-trace.json"
+    )
+    private transient File timeline;
+
+    /**
+     * OTLP/HTTP endpoint, like {@code http://localhost:4318}, or file
+     * to export spans of the build to, nothing if empty.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.otlp", defaultValue = "")
+    private transient String otlp;
+
+    /**
+     * Maximum number of spans waiting for export.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.otlp.capacity", defaultValue = "4096")
+    private transient int spans;
+
+    /**
+     * Projects of a multi-module build running longer than this, in
+     * seconds, get their mojos reported as steps.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.detail.threshold", defaultValue = "60")
+    private transient int detail;
+
+    /**
+     * How many slowest mojos of a multi-module build to report as steps.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.detail.top", defaultValue = "10")
+    private transient int top;
+
+    /**
+     * Report durations of mojos by phases and plugins at the end.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.breakdown", defaultValue = "true")
+    private transient boolean breakdown;
+
+    /**
+     * Report tests of test mojos from their XML reports.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.tests", defaultValue = "true")
+    private transient boolean tests;
+
+    /**
+     * Report artifact resolutions and downloads by repositories,
+     * projects and mojos at the end.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.downloads", defaultValue = "true")
+    private transient boolean downloads;
+
+    /**
+     * Report latency of the reactor startup at the end.
+     * @since 1.0
      */
-    private transient boolean injected;
+    @Parameter(property = "rultor.startup", defaultValue = "true")
+    private transient boolean startup;
+
+    /**
+     * Fingerprint inputs of projects of a multi-module build and report
+     * projects rebuilt with unchanged inputs.
+     * @since 1.0
+     */
+    @Parameter(property = "rultor.inputs", defaultValue = "false")
+    private transient boolean fingerprint;
+
+    /**
+     * Directory with fingerprints and cached hashes of inputs.
+     * @since 1.0
+     */
+    @Parameter(
+        property = "rultor.inputs.dir",
+        // @checkstyle LineLength (1 line)
+        defaultValue = "${user.home}/.m2/rultor/${project.groupId}/${project.artifactId}-inputs"
+    )
+    private transient File prints;
 
     @Override
     public void execute() {
-        if (this.injected) {
+        if (this.session.getRequest().getExecutionListener()
+            instanceof SessionListener) {
             Logger.info(this, "Xembly listener already injected");
         } else if (this.skip) {
             Logger.info(this, "Execution skipped, use -Drultor.skip=false");
@@ -122,14 +410,174 @@ public final class StepsMojo extends AbstractMojo {
      */
     private void inject() {
         final MavenExecutionRequest request = this.session.getRequest();
-        ExecutionListener listener = request.getExecutionListener();
+        final ExecutionListener original = request.getExecutionListener();
+        ExecutionListener listener = original;
+        final Emitter emitter = this.emitter();
+        final Steps steps = this.steps(emitter);
         if (this.project.getModules().isEmpty()) {
-            listener = new XemblyMojos(listener);
+            listener = new XemblyMojos(listener, emitter, steps, this.tests);
         } else {
-            listener = new XemblyProjects(listener);
+            listener = new XemblyProjects(
+                listener, emitter, steps,
+                TimeUnit.SECONDS.toMillis(this.detail), this.top,
+                this.tests
+            );
+            if (this.fingerprint) {
+                listener = new InputsListener(
+                    listener, emitter, new Inputs(this.prints)
+                );
+            }
+        }
+        if (this.breakdown) {
+            listener = new BreakdownListener(listener, emitter);
+        }
+        if (this.startup) {
+            long requested = 0L;
+            if (request.getStartTime() != null) {
+                requested = request.getStartTime().getTime();
+            }
+            listener = new StartupListener(
+                listener, emitter,
+                new Startup(
+                    ManagementFactory.getRuntimeMXBean().getStartTime(),
+                    requested, System.currentTimeMillis(),
+                    this.session.getProjects()
+                )
+            );
+        }
+        if (this.downloads && StepsMojo.AETHER) {
+            try {
+                listener = new DownloadsListener(
+                    listener, emitter, this.session
+                );
+            } catch (final LinkageError ex) {
+                Logger.debug(
+                    this, "Downloads are not reported by this Maven: %s", ex
+                );
+            }
+        } else if (this.downloads) {
+            Logger.debug(
+                this, "Downloads are not reported, Sonatype Aether is absent"
+            );
+        }
+        if (this.journal) {
+            try {
+                listener = new JournalListener(
+                    listener, new Journal(this.events)
+                );
+            } catch (final IOException ex) {
+                Logger.warn(
+                    this, "Journal %s is not created: %s", this.events, ex
+                );
+            }
+        }
+        if (this.trace) {
+            try {
+                listener = new TraceListener(
+                    listener, new Trace(this.timeline)
+                );
+            } catch (final IOException ex) {
+                Logger.warn(
+                    this, "Trace %s is not created: %s", this.timeline, ex
+                );
+            }
+        }
+        if (this.otlp != null && !this.otlp.isEmpty()) {
+            listener = new OtelListener(
+                listener, new OtlpExporter(this.otlp, this.spans),
+                XemblyProjects.identifier(this.project)
+            );
+        }
+        request.setExecutionListener(
+            new SessionListener(request, original, listener)
+        );
+    }
+
+    /**
+     * Make steps.
+     * @param emitter Emitter of Xembly directives
+     * @return Steps
+     * @since 1.0
+     */
+    private Steps steps(final Emitter emitter) {
+        final Failures encoder = new Failures(this.failures, this.cap);
+        Steps steps;
+        if (this.compact) {
+            steps = new CompactSteps(
+                emitter, TimeUnit.SECONDS.toMillis(this.heartbeat), encoder
+            );
+        } else {
+            steps = new LiveSteps(emitter, encoder);
+            if (this.history) {
+                try {
+                    steps = new ForecastSteps(
+                        steps, emitter, new History(this.durations)
+                    );
+                } catch (final IOException ex) {
+                    Logger.warn(
+                        this, "History %s is not read: %s",
+                        this.durations, ex
+                    );
+                }
+            }
+        }
+        if (this.usage) {
+            steps = new MeteredSteps(steps, emitter);
+        }
+        if (this.profile) {
+            steps = new ProfiledSteps(
+                steps, emitter, this.profiles,
+                TimeUnit.SECONDS.toMillis(this.threshold), this.interval
+            );
+        }
+        if (this.watchdog) {
+            steps = new WatchedSteps(
+                steps, emitter, this.dumps,
+                TimeUnit.SECONDS.toMillis(this.soft),
+                TimeUnit.SECONDS.toMillis(this.hard)
+            );
+        }
+        return steps;
+    }
+
+    /**
+     * Make an emitter.
+     * @return Emitter of Xembly directives
+     * @since 1.0
+     */
+    private Emitter emitter() {
+        Emitter emitter = new SyncEmitter();
+        if (this.snapshot) {
+            emitter = new SnapshotEmitter(
+                emitter, this.xml,
+                TimeUnit.SECONDS.toMillis(this.checkpoint)
+            );
+        }
+        if (this.async) {
+            emitter = new AsyncEmitter(
+                emitter, this.capacity,
+                AsyncEmitter.Overflow.parse(this.overflow)
+            );
+        }
+        return emitter;
+    }
+
+    /**
+     * The class is visible to the plugin?
+     * @param name Name of the class
+     * @return TRUE if it can be loaded
+     */
+    private static boolean visible(final String name) {
+        boolean visible;
+        try {
+            Class.forName(name, false, StepsMojo.class.getClassLoader());
+            visible = true;
+        } catch (final ClassNotFoundException ex) {
+            visible = false;
+        } catch (final LinkageError ex) {
+            visible = false;
         }
-        request.setExecutionListener(listener);
-        this.injected = true;
+        return visible;
     }
 
 }
@@ -0,0 +1,416 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.xembly.Directives;
+
+/**
+ * Tests run by surefire and failsafe, from their XML reports.
+ *
+ * <p>When a test mojo completes, its {@code TEST-*.xml} reports written
+ * since the mojo started are parsed with StAX, in parallel, and
+ * the step gets a {@code tests} element with totals, the slowest
+ * test classes and the slowest test methods.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+final class TestReports {
+
+    /**
+     * How many slowest classes and methods to report.
+     */
+    private static final int TOP = 10;
+
+    /**
+     * Tolerance of file modification times, in milliseconds.
+     */
+    private static final long SKEW = 2000L;
+
+    /**
+     * Where to send Xembly directives.
+     */
+    private final transient Emitter emitter;
+
+    /**
+     * Parse reports at all?
+     */
+    private final transient boolean enabled;
+
+    /**
+     * Start times of test mojos in progress.
+     */
+    private final transient ConcurrentMap<MojoExecution, Long> starts =
+        new ConcurrentHashMap<MojoExecution, Long>(0);
+
+    /**
+     * Public ctor.
+     * @param emtr Emitter of directives
+     */
+    TestReports(final Emitter emtr) {
+        this(emtr, true);
+    }
+
+    /**
+     * Public ctor.
+     * @param emtr Emitter of directives
+     * @param enable Parse reports at all?
+     */
+    TestReports(final Emitter emtr, final boolean enable) {
+        this.emitter = emtr;
+        this.enabled = enable;
+    }
+
+    /**
+     * Mojo started.
+     * @param mojo The mojo
+     */
+    public void started(final MojoExecution mojo) {
+        if (this.enabled && TestReports.directory(mojo) != null) {
+            this.starts.put(mojo, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Mojo completed, report its tests in the step.
+     * @param step The step to report tests in
+     * @param project Project of the mojo
+     * @param mojo The mojo
+     */
+    public void report(final Identity step, final MavenProject project,
+        final MojoExecution mojo) {
+        final Long start = this.starts.remove(mojo);
+        if (start != null) {
+            final File dir = new File(
+                project.getBuild().getDirectory(), TestReports.directory(mojo)
+            );
+            final File[] files = dir.listFiles(
+                new FileFilter() {
+                    @Override
+                    public boolean accept(final File file) {
+                        return file.getName().startsWith("TEST-")
+                            && file.getName().endsWith(".xml")
+                            && file.lastModified()
+                            >= start - TestReports.SKEW;
+                    }
+                }
+            );
+            if (files != null && files.length > 0) {
+                this.emitter.emit(
+                    step.id(),
+                    new Directives()
+                        .xpath("/snapshot/steps")
+                        .xpath(step.xpath())
+                        .append(TestReports.directives(files))
+                );
+            }
+        }
+    }
+
+    /**
+     * Forget mojos in progress.
+     */
+    public void close() {
+        this.starts.clear();
+    }
+
+    /**
+     * Directory of reports, relative to build directory.
+     * @param mojo The mojo
+     * @return Directory or NULL if it is not a test mojo
+     */
+    private static String directory(final MojoExecution mojo) {
+        final String dir;
+        if ("maven-surefire-plugin".equals(mojo.getArtifactId())
+            && "test".equals(mojo.getGoal())) {
+            dir = "surefire-reports";
+        } else if ("maven-failsafe-plugin".equals(mojo.getArtifactId())
+            && "integration-test".equals(mojo.getGoal())) {
+            dir = "failsafe-reports";
+        } else {
+            dir = null;
+        }
+        return dir;
+    }
+
+    /**
+     * Directives with tests from reports.
+     * @param files Report files
+     * @return Directives, leaving the pointer where it was
+     */
+    private static Directives directives(final File[] files) {
+        final List<TestReports.Test> suites =
+            new ArrayList<TestReports.Test>(files.length);
+        final List<TestReports.Test> cases = new ArrayList<TestReports.Test>(0);
+        final ExecutorService svc = Executors.newFixedThreadPool(
+            Math.min(files.length, Runtime.getRuntime().availableProcessors())
+        );
+        try {
+            final List<Future<List<TestReports.Test>>> futures =
+                new ArrayList<Future<List<TestReports.Test>>>(files.length);
+            for (final File file : files) {
+                futures.add(
+                    svc.submit(
+                        new Callable<List<TestReports.Test>>() {
+                            @Override
+                            public List<TestReports.Test> call()
+                                throws IOException {
+                                return TestReports.parse(file);
+                            }
+                        }
+                    )
+                );
+            }
+            for (final Future<List<TestReports.Test>> future : futures) {
+                try {
+                    final List<TestReports.Test> tests = future.get();
+                    if (!tests.isEmpty()) {
+                        suites.add(tests.get(0));
+                        cases.addAll(tests.subList(1, tests.size()));
+                    }
+                } catch (final ExecutionException ex) {
+                    Logger.warn(
+                        TestReports.class, "test report is skipped: %s",
+                        ex.getCause()
+                    );
+                }
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            svc.shutdown();
+        }
+        int failed = 0;
+        int skipped = 0;
+        long time = 0L;
+        for (final TestReports.Test test : cases) {
+            time += test.time;
+            if (TestReports.Test.FAILED.equals(test.status)) {
+                ++failed;
+            } else if (TestReports.Test.SKIPPED.equals(test.status)) {
+                ++skipped;
+            }
+        }
+        final Directives dirs = new Directives().add("tests")
+            .attr("classes", Integer.toString(suites.size()))
+            .attr("total", Integer.toString(cases.size()))
+            .attr("failed", Integer.toString(failed))
+            .attr("skipped", Integer.toString(skipped))
+            .attr("time", Long.toString(time));
+        for (final TestReports.Test suite : TestReports.slowest(suites)) {
+            dirs.add("class")
+                .attr("name", suite.suite)
+                .attr("time", Long.toString(suite.time))
+                .up();
+        }
+        for (final TestReports.Test test : TestReports.slowest(cases)) {
+            dirs.add("test")
+                .attr("class", test.suite)
+                .attr("name", test.name)
+                .attr("time", Long.toString(test.time))
+                .attr("status", test.status)
+                .up();
+        }
+        return dirs.up();
+    }
+
+    /**
+     * The slowest tests.
+     * @param tests All tests
+     * @return The slowest of them, the slowest first
+     */
+    private static Collection<TestReports.Test> slowest(
+        final List<TestReports.Test> tests) {
+        Collections.sort(
+            tests,
+            new Comparator<TestReports.Test>() {
+                @Override
+                public int compare(final TestReports.Test left,
+                    final TestReports.Test right) {
+                    return Long.valueOf(right.time).compareTo(left.time);
+                }
+            }
+        );
+        return tests.subList(0, Math.min(tests.size(), TestReports.TOP));
+    }
+
+    /**
+     * Parse one report.
+     * @param file The report
+     * @return The suite first, then its test cases
+     * @throws IOException If fails
+     */
+    private static List<TestReports.Test> parse(final File file)
+        throws IOException {
+        final List<TestReports.Test> tests =
+            new ArrayList<TestReports.Test>(0);
+        final InputStream input = new BufferedInputStream(
+            new FileInputStream(file)
+        );
+        try {
+            final XMLStreamReader xml = XMLInputFactory.newInstance()
+                .createXMLStreamReader(input);
+            TestReports.Test test = null;
+            while (xml.hasNext()) {
+                final int event = xml.next();
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                final String name = xml.getLocalName();
+                if ("testsuite".equals(name) && tests.isEmpty()) {
+                    tests.add(
+                        new TestReports.Test(
+                            xml.getAttributeValue(null, "name"), "",
+                            TestReports.millis(
+                                xml.getAttributeValue(null, "time")
+                            )
+                        )
+                    );
+                } else if ("testcase".equals(name)) {
+                    test = new TestReports.Test(
+                        xml.getAttributeValue(null, "classname"),
+                        xml.getAttributeValue(null, "name"),
+                        TestReports.millis(
+                            xml.getAttributeValue(null, "time")
+                        )
+                    );
+                    tests.add(test);
+                } else if (test != null
+                    && ("failure".equals(name) || "error".equals(name))) {
+                    test.status = TestReports.Test.FAILED;
+                } else if (test != null && "skipped".equals(name)) {
+                    test.status = TestReports.Test.SKIPPED;
+                }
+            }
+            xml.close();
+        } catch (final XMLStreamException ex) {
+            throw new IOException(
+                String.format("broken XML in %s", file), ex
+            );
+        } finally {
+            input.close();
+        }
+        return tests;
+    }
+
+    /**
+     * Milliseconds from seconds in report.
+     * @param seconds Seconds, like {@code 1,234.5}, or NULL
+     * @return Milliseconds, zero if broken
+     */
+    private static long millis(final String seconds) {
+        long millis = 0L;
+        if (seconds != null) {
+            try {
+                millis = Math.round(
+                    Double.parseDouble(seconds.replace(",", "")) * 1000.0d
+                );
+            } catch (final NumberFormatException ex) {
+                millis = 0L;
+            }
+        }
+        return millis;
+    }
+
+    /**
+     * Test suite or test case.
+     */
+    private static final class Test {
+        /**
+         * Status of passed test.
+         */
+        public static final String PASSED = "passed";
+        /**
+         * Status of failed test.
+         */
+        public static final String FAILED = "failed";
+        /**
+         * Status of skipped test.
+         */
+        public static final String SKIPPED = "skipped";
+        /**
+         * Class name.
+         */
+        private final transient String suite;
+        /**
+         * Method name, empty for suites.
+         */
+        private final transient String name;
+        /**
+         * Time, in milliseconds.
+         */
+        private final transient long time;
+        /**
+         * Status.
+         */
+        private transient String status = TestReports.Test.PASSED;
+        /**
+         * Ctor.
+         * @param cls Class name
+         * @param method Method name
+         * @param millis Time
+         */
+        Test(final String cls, final String method, final long millis) {
+            this.suite = String.valueOf(cls);
+            this.name = String.valueOf(method);
+            this.time = millis;
+        }
+    }
+
+}
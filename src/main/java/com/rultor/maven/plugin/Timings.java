@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Table of primitive time values, indexed by {@link Identity#number()}.
+ *
+ * <p>The table consists of pages, which are allocated on demand, when
+ * the first number in a page is used. Zero means "no value". Numbers
+ * above {@link #CAPACITY} are not stored. No locks, no boxing.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class Timings {
+
+    /**
+     * Maximum number of values.
+     */
+    public static final int CAPACITY = 1 << 22;
+
+    /**
+     * Bits of number inside page.
+     */
+    private static final int SHIFT = 10;
+
+    /**
+     * Page size.
+     */
+    private static final int PAGE = 1 << Timings.SHIFT;
+
+    /**
+     * Pages.
+     */
+    private final transient AtomicReferenceArray<AtomicLongArray> pages =
+        new AtomicReferenceArray<AtomicLongArray>(
+            Timings.CAPACITY >> Timings.SHIFT
+        );
+
+    /**
+     * Save value.
+     * @param number Number of the step
+     * @param value The value, not zero
+     */
+    public void put(final int number, final long value) {
+        if (number >= 0 && number < Timings.CAPACITY) {
+            this.page(number).set(number & (Timings.PAGE - 1), value);
+        }
+    }
+
+    /**
+     * Get value.
+     * @param number Number of the step
+     * @return The value or zero if absent
+     */
+    public long get(final int number) {
+        long value = 0L;
+        if (number >= 0 && number < Timings.CAPACITY) {
+            final AtomicLongArray page = this.pages.get(
+                number >> Timings.SHIFT
+            );
+            if (page != null) {
+                value = page.get(number & (Timings.PAGE - 1));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Remove value.
+     * @param number Number of the step
+     * @return The value or zero if absent
+     */
+    public long take(final int number) {
+        long value = 0L;
+        if (number >= 0 && number < Timings.CAPACITY) {
+            final AtomicLongArray page = this.pages.get(
+                number >> Timings.SHIFT
+            );
+            if (page != null) {
+                value = page.getAndSet(number & (Timings.PAGE - 1), 0L);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Forget everything.
+     */
+    public void clear() {
+        for (int idx = 0; idx < this.pages.length(); ++idx) {
+            this.pages.set(idx, null);
+        }
+    }
+
+    /**
+     * Get page, allocating it if necessary.
+     * @param number Number of the step
+     * @return Page
+     */
+    private AtomicLongArray page(final int number) {
+        final int idx = number >> Timings.SHIFT;
+        AtomicLongArray page = this.pages.get(idx);
+        if (page == null) {
+            this.pages.compareAndSet(
+                idx, null, new AtomicLongArray(Timings.PAGE)
+            );
+            page = this.pages.get(idx);
+        }
+        return page;
+    }
+
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import lombok.ToString;
+
+/**
+ * Chrome trace-event file, written while the build goes.
+ *
+ * <p>Events are appended to a JSON array, one per line, as soon as
+ * they happen; the array is closed by {@link #close()}. Tools like
+ * {@code chrome://tracing} and Perfetto read files without the closing
+ * bracket too, so a file of a build that crashed is still usable.
+ * Every thread is a lane, named after the thread. Spans are pairs of
+ * begin and end events on the same thread, so they nest naturally.
+ * Times are in microseconds since the file was created.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString(of = "file")
+final class Trace {
+
+    /**
+     * Hexadecimal digits.
+     */
+    private static final String HEX = "0123456789abcdef";
+
+    /**
+     * File.
+     */
+    private final transient File file;
+
+    /**
+     * Writer.
+     */
+    private final transient Writer out;
+
+    /**
+     * Start, in nanoseconds.
+     */
+    private final transient long start;
+
+    /**
+     * Threads already named.
+     */
+    private final transient Set<Long> threads = new HashSet<Long>(0);
+
+    /**
+     * Any events written?
+     */
+    private transient boolean started;
+
+    /**
+     * Public ctor.
+     * @param path File to write
+     * @throws IOException If fails
+     */
+    Trace(final File path) throws IOException {
+        this.file = path;
+        final File dir = path.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException(String.format("can't create %s", dir));
+        }
+        this.out = new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(path), "UTF-8")
+        );
+        this.out.write('[');
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * Span started, on the current thread.
+     * @param cat Category
+     * @param name Name
+     * @throws IOException If fails
+     */
+    public void begin(final String cat, final String name)
+        throws IOException {
+        this.write(cat, name, "\"ph\":\"B\"");
+    }
+
+    /**
+     * Span finished, on the current thread.
+     * @param cat Category
+     * @param name Name
+     * @throws IOException If fails
+     */
+    public void end(final String cat, final String name) throws IOException {
+        this.write(cat, name, "\"ph\":\"E\"");
+    }
+
+    /**
+     * Something happened, on the current thread.
+     * @param cat Category
+     * @param name Name
+     * @param message Details
+     * @throws IOException If fails
+     */
+    public void instant(final String cat, final String name,
+        final String message) throws IOException {
+        this.write(
+            cat, name,
+            String.format(
+                "\"ph\":\"i\",\"s\":\"t\",\"args\":{\"message\":%s}",
+                Trace.quote(message)
+            )
+        );
+    }
+
+    /**
+     * Write everything to disk.
+     * @throws IOException If fails
+     */
+    public void flush() throws IOException {
+        synchronized (this.out) {
+            this.out.flush();
+        }
+    }
+
+    /**
+     * Close the array and the file.
+     * @throws IOException If fails
+     */
+    public void close() throws IOException {
+        synchronized (this.out) {
+            this.out.write("\n]\n");
+            this.out.close();
+        }
+    }
+
+    /**
+     * Write an event.
+     * @param cat Category
+     * @param name Name
+     * @param rest Phase and other properties
+     * @throws IOException If fails
+     */
+    private void write(final String cat, final String name,
+        final String rest) throws IOException {
+        final long micros = TimeUnit.NANOSECONDS.toMicros(
+            System.nanoTime() - this.start
+        );
+        final Thread thread = Thread.currentThread();
+        final long tid = thread.getId();
+        synchronized (this.out) {
+            if (this.threads.add(tid)) {
+                this.line(
+                    String.format(
+                        // @checkstyle LineLength (1 line)
+                        "{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":%d,\"args\":{\"name\":%s}}",
+                        tid, Trace.quote(thread.getName())
+                    )
+                );
+            }
+            this.line(
+                String.format(
+                    // @checkstyle LineLength (1 line)
+                    "{\"name\":%s,\"cat\":\"%s\",%s,\"ts\":%d,\"pid\":1,\"tid\":%d}",
+                    Trace.quote(name), cat, rest, micros, tid
+                )
+            );
+        }
+    }
+
+    /**
+     * Write a line of the array.
+     * @param json JSON object
+     * @throws IOException If fails
+     */
+    private void line(final String json) throws IOException {
+        if (this.started) {
+            this.out.write(',');
+        }
+        this.out.write('\n');
+        this.out.write(json);
+        this.started = true;
+    }
+
+    /**
+     * JSON string literal.
+     * @param text Text
+     * @return Literal, in quotes
+     */
+    static String quote(final String text) {
+        final StringBuilder literal = new StringBuilder(text.length() + 2);
+        literal.append('"');
+        for (int idx = 0; idx < text.length(); ++idx) {
+            final char chr = text.charAt(idx);
+            if (chr == '"' || chr == '\\') {
+                literal.append('\\').append(chr);
+            } else if (chr < ' ') {
+                literal.append("\\u00")
+                    .append(Trace.HEX.charAt(chr >> 4))
+                    .append(Trace.HEX.charAt(chr & 0xf));
+            } else {
+                literal.append(chr);
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+}
@@ -0,0 +1,367 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Writes projects, mojos and forks into a Chrome {@link Trace}.
+ *
+ * <p>Projects are outer spans, forks and mojos are nested in them,
+ * failures and skipped steps are instant events. Spans which were
+ * never started in this thread, like the project of {@code rultor:steps}
+ * and the mojo itself, are not ended either, so that every {@code E}
+ * event has its {@code B}. When the trace can't be written, the
+ * listener reports it once and stops tracing.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@SuppressWarnings("PMD.TooManyMethods")
+final class TraceListener implements ExecutionListener {
+
+    /**
+     * Category of projects.
+     */
+    private static final String PROJECT = "project";
+
+    /**
+     * Category of mojos.
+     */
+    private static final String MOJO = "mojo";
+
+    /**
+     * Category of forks.
+     */
+    private static final String FORK = "fork";
+
+    /**
+     * Category of failures.
+     */
+    private static final String FAILURE = "failure";
+
+    /**
+     * Target execution origin.
+     */
+    private final transient ExecutionListener origin;
+
+    /**
+     * The trace.
+     */
+    private final transient Trace trace;
+
+    /**
+     * Spans started and not ended yet, by threads, categories and names.
+     */
+    private final transient Set<String> open = Collections.newSetFromMap(
+        new ConcurrentHashMap<String, Boolean>(0)
+    );
+
+    /**
+     * Tracing failed and stopped.
+     */
+    private transient volatile boolean broken;
+
+    /**
+     * Constructor.
+     *
+     * @param lstnr Listener to call.
+     * @param trc Trace to write to.
+     */
+    TraceListener(final ExecutionListener lstnr, final Trace trc) {
+        this.origin = lstnr;
+        this.trace = trc;
+    }
+
+    @Override
+    public void projectDiscoveryStarted(final ExecutionEvent event) {
+        this.origin.projectDiscoveryStarted(event);
+    }
+
+    @Override
+    public void sessionStarted(final ExecutionEvent event) {
+        this.origin.sessionStarted(event);
+    }
+
+    @Override
+    public void sessionEnded(final ExecutionEvent event) {
+        this.open.clear();
+        if (!this.broken) {
+            try {
+                this.trace.close();
+            } catch (final IOException ex) {
+                Logger.warn(this, "failed to close %s: %s", this.trace, ex);
+            }
+        }
+        this.origin.sessionEnded(event);
+    }
+
+    @Override
+    public void projectSkipped(final ExecutionEvent event) {
+        this.instant(
+            TraceListener.PROJECT, TraceListener.project(event), "skipped"
+        );
+        this.origin.projectSkipped(event);
+    }
+
+    @Override
+    public void projectStarted(final ExecutionEvent event) {
+        this.begin(TraceListener.PROJECT, TraceListener.project(event));
+        this.origin.projectStarted(event);
+    }
+
+    @Override
+    public void projectSucceeded(final ExecutionEvent event) {
+        this.end(TraceListener.PROJECT, TraceListener.project(event));
+        this.flush();
+        this.origin.projectSucceeded(event);
+    }
+
+    @Override
+    public void projectFailed(final ExecutionEvent event) {
+        this.failure(event, TraceListener.project(event));
+        this.end(TraceListener.PROJECT, TraceListener.project(event));
+        this.flush();
+        this.origin.projectFailed(event);
+    }
+
+    @Override
+    public void mojoSkipped(final ExecutionEvent event) {
+        this.instant(TraceListener.MOJO, TraceListener.mojo(event), "skipped");
+        this.origin.mojoSkipped(event);
+    }
+
+    @Override
+    public void mojoStarted(final ExecutionEvent event) {
+        this.begin(TraceListener.MOJO, TraceListener.mojo(event));
+        this.origin.mojoStarted(event);
+    }
+
+    @Override
+    public void mojoSucceeded(final ExecutionEvent event) {
+        this.end(TraceListener.MOJO, TraceListener.mojo(event));
+        this.origin.mojoSucceeded(event);
+    }
+
+    @Override
+    public void mojoFailed(final ExecutionEvent event) {
+        this.failure(event, TraceListener.mojo(event));
+        this.end(TraceListener.MOJO, TraceListener.mojo(event));
+        this.origin.mojoFailed(event);
+    }
+
+    @Override
+    public void forkStarted(final ExecutionEvent event) {
+        this.begin(TraceListener.FORK, TraceListener.fork(event));
+        this.origin.forkStarted(event);
+    }
+
+    @Override
+    public void forkSucceeded(final ExecutionEvent event) {
+        this.end(TraceListener.FORK, TraceListener.fork(event));
+        this.origin.forkSucceeded(event);
+    }
+
+    @Override
+    public void forkFailed(final ExecutionEvent event) {
+        this.failure(event, TraceListener.fork(event));
+        this.end(TraceListener.FORK, TraceListener.fork(event));
+        this.origin.forkFailed(event);
+    }
+
+    @Override
+    public void forkedProjectStarted(final ExecutionEvent event) {
+        this.begin(TraceListener.FORK, TraceListener.project(event));
+        this.origin.forkedProjectStarted(event);
+    }
+
+    @Override
+    public void forkedProjectSucceeded(final ExecutionEvent event) {
+        this.end(TraceListener.FORK, TraceListener.project(event));
+        this.origin.forkedProjectSucceeded(event);
+    }
+
+    @Override
+    public void forkedProjectFailed(final ExecutionEvent event) {
+        this.failure(event, TraceListener.project(event));
+        this.end(TraceListener.FORK, TraceListener.project(event));
+        this.origin.forkedProjectFailed(event);
+    }
+
+    /**
+     * Span started.
+     * @param cat Category
+     * @param name Name
+     */
+    private void begin(final String cat, final String name) {
+        this.open.add(TraceListener.key(cat, name));
+        if (!this.broken) {
+            try {
+                this.trace.begin(cat, name);
+            } catch (final IOException ex) {
+                this.fail(ex);
+            }
+        }
+    }
+
+    /**
+     * Span finished.
+     * @param cat Category
+     * @param name Name
+     */
+    private void end(final String cat, final String name) {
+        if (this.open.remove(TraceListener.key(cat, name))
+            && !this.broken) {
+            try {
+                this.trace.end(cat, name);
+            } catch (final IOException ex) {
+                this.fail(ex);
+            }
+        }
+    }
+
+    /**
+     * Something happened.
+     * @param cat Category
+     * @param name Name
+     * @param message Details
+     */
+    private void instant(final String cat, final String name,
+        final String message) {
+        if (!this.broken) {
+            try {
+                this.trace.instant(cat, name, message);
+            } catch (final IOException ex) {
+                this.fail(ex);
+            }
+        }
+    }
+
+    /**
+     * Failure of the event.
+     * @param event The event
+     * @param name Name of what failed
+     */
+    private void failure(final ExecutionEvent event, final String name) {
+        final Throwable error = event.getException();
+        final String message;
+        if (error == null) {
+            message = "failed";
+        } else {
+            message = error.toString();
+        }
+        this.instant(TraceListener.FAILURE, name, message);
+    }
+
+    /**
+     * Write everything to disk.
+     */
+    private void flush() {
+        if (!this.broken) {
+            try {
+                this.trace.flush();
+            } catch (final IOException ex) {
+                this.fail(ex);
+            }
+        }
+    }
+
+    /**
+     * Stop tracing.
+     * @param error Why
+     */
+    private void fail(final IOException error) {
+        if (!this.broken) {
+            this.broken = true;
+            Logger.warn(this, "tracing to %s stopped: %s", this.trace, error);
+        }
+    }
+
+    /**
+     * Key of a span in the current thread.
+     * @param cat Category
+     * @param name Name
+     * @return Key
+     */
+    private static String key(final String cat, final String name) {
+        return String.format(
+            "%d %s %s", Thread.currentThread().getId(), cat, name
+        );
+    }
+
+    /**
+     * Name of the project of the event.
+     * @param event The event
+     * @return Name
+     */
+    private static String project(final ExecutionEvent event) {
+        final MavenProject project = event.getProject();
+        final String name;
+        if (project == null) {
+            name = "session";
+        } else {
+            name = XemblyProjects.identifier(project);
+        }
+        return name;
+    }
+
+    /**
+     * Name of the mojo of the event.
+     * @param event The event
+     * @return Name
+     */
+    private static String mojo(final ExecutionEvent event) {
+        final MojoExecution mojo = event.getMojoExecution();
+        return String.format(
+            "%s:%s (%s)", mojo.getArtifactId(), mojo.getGoal(),
+            mojo.getExecutionId()
+        );
+    }
+
+    /**
+     * Name of the fork of the event.
+     * @param event The event
+     * @return Name
+     */
+    private static String fork(final ExecutionEvent event) {
+        return String.format("fork of %s", TraceListener.mojo(event));
+    }
+
+}
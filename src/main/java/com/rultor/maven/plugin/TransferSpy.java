@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import org.sonatype.aether.transfer.TransferCancelledException;
+import org.sonatype.aether.transfer.TransferEvent;
+import org.sonatype.aether.transfer.TransferListener;
+import org.sonatype.aether.transfer.TransferResource;
+
+/**
+ * Transfer listener that counts transfers in {@link Downloads}.
+ *
+ * <p>All events go to the original listener, if there is one, to keep
+ * Maven console progress intact.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class TransferSpy implements TransferListener {
+
+    /**
+     * Original listener or NULL.
+     */
+    private final transient TransferListener origin;
+
+    /**
+     * Downloads to feed.
+     */
+    private final transient Downloads downloads;
+
+    /**
+     * Constructor.
+     * @param lstnr Original listener or NULL
+     * @param dwnlds Downloads
+     */
+    TransferSpy(final TransferListener lstnr, final Downloads dwnlds) {
+        this.origin = lstnr;
+        this.downloads = dwnlds;
+    }
+
+    /**
+     * Original listener.
+     * @return Listener or NULL
+     */
+    public TransferListener original() {
+        return this.origin;
+    }
+
+    @Override
+    public void transferInitiated(final TransferEvent event)
+        throws TransferCancelledException {
+        if (this.origin != null) {
+            this.origin.transferInitiated(event);
+        }
+    }
+
+    @Override
+    public void transferStarted(final TransferEvent event)
+        throws TransferCancelledException {
+        if (this.origin != null) {
+            this.origin.transferStarted(event);
+        }
+    }
+
+    @Override
+    public void transferProgressed(final TransferEvent event)
+        throws TransferCancelledException {
+        if (this.origin != null) {
+            this.origin.transferProgressed(event);
+        }
+    }
+
+    @Override
+    public void transferCorrupted(final TransferEvent event)
+        throws TransferCancelledException {
+        if (this.origin != null) {
+            this.origin.transferCorrupted(event);
+        }
+    }
+
+    @Override
+    public void transferSucceeded(final TransferEvent event) {
+        this.completed(event, true);
+        if (this.origin != null) {
+            this.origin.transferSucceeded(event);
+        }
+    }
+
+    @Override
+    public void transferFailed(final TransferEvent event) {
+        this.completed(event, false);
+        if (this.origin != null) {
+            this.origin.transferFailed(event);
+        }
+    }
+
+    /**
+     * Transfer completed.
+     * @param event The event
+     * @param success TRUE if succeeded
+     */
+    private void completed(final TransferEvent event, final boolean success) {
+        final TransferResource resource = event.getResource();
+        long millis = 0L;
+        if (resource.getTransferStartTime() > 0L) {
+            millis = System.currentTimeMillis()
+                - resource.getTransferStartTime();
+        }
+        this.downloads.transferred(
+            resource.getRepositoryUrl(), event.getTransferredBytes(),
+            millis, success
+        );
+    }
+
+}
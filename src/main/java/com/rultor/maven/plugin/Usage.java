@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Resources used by the current thread and the JVM so far: CPU time
+ * and allocated bytes of the thread, count and time of garbage
+ * collections in the JVM.
+ *
+ * <p>Allocated bytes are available only in JVMs with
+ * {@code com.sun.management.ThreadMXBean}, which is found by reflection,
+ * once. Values not supported by the JVM are negative. Garbage
+ * collections are not attributed to threads, they are counted for the
+ * whole JVM.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+@ToString
+@EqualsAndHashCode
+final class Usage {
+
+    /**
+     * Threads.
+     */
+    private static final ThreadMXBean THREADS =
+        ManagementFactory.getThreadMXBean();
+
+    /**
+     * Garbage collectors.
+     */
+    private static final List<GarbageCollectorMXBean> COLLECTORS =
+        ManagementFactory.getGarbageCollectorMXBeans();
+
+    /**
+     * Method {@code getThreadAllocatedBytes(long)} or NULL if the JVM
+     * doesn't have it.
+     */
+    private static final Method ALLOCATED = Usage.allocator();
+
+    /**
+     * CPU time of the thread, in nanoseconds.
+     */
+    private final transient long cpu;
+
+    /**
+     * Bytes allocated by the thread.
+     */
+    private final transient long bytes;
+
+    /**
+     * Number of garbage collections.
+     */
+    private final transient long gcs;
+
+    /**
+     * Time of garbage collections, in milliseconds.
+     */
+    private final transient long pauses;
+
+    /**
+     * Public ctor.
+     * @param nanos CPU time of the thread, in nanoseconds
+     * @param allocated Bytes allocated by the thread
+     * @param count Number of garbage collections
+     * @param millis Time of garbage collections, in milliseconds
+     * @checkstyle ParameterNumber (3 lines)
+     */
+    Usage(final long nanos, final long allocated, final long count,
+        final long millis) {
+        this.cpu = nanos;
+        this.bytes = allocated;
+        this.gcs = count;
+        this.pauses = millis;
+    }
+
+    /**
+     * Usage by the current thread, so far.
+     * @return Usage
+     */
+    public static Usage now() {
+        long cpu = -1L;
+        if (Usage.THREADS.isCurrentThreadCpuTimeSupported()) {
+            cpu = Usage.THREADS.getCurrentThreadCpuTime();
+        }
+        long allocated = -1L;
+        if (Usage.ALLOCATED != null) {
+            try {
+                allocated = (Long) Usage.ALLOCATED.invoke(
+                    Usage.THREADS, Thread.currentThread().getId()
+                );
+            } catch (final IllegalAccessException ex) {
+                throw new IllegalStateException(ex);
+            } catch (final InvocationTargetException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        long count = 0L;
+        long millis = 0L;
+        for (final GarbageCollectorMXBean bean : Usage.COLLECTORS) {
+            count += Math.max(bean.getCollectionCount(), 0L);
+            millis += Math.max(bean.getCollectionTime(), 0L);
+        }
+        return new Usage(cpu, allocated, count, millis);
+    }
+
+    /**
+     * Usage since the given one.
+     * @param before Usage before
+     * @return Difference, negative where not supported
+     */
+    public Usage since(final Usage before) {
+        return new Usage(
+            Usage.delta(this.cpu, before.cpu),
+            Usage.delta(this.bytes, before.bytes),
+            this.gcs - before.gcs,
+            this.pauses - before.pauses
+        );
+    }
+
+    /**
+     * CPU time.
+     * @return Milliseconds, negative if not supported
+     */
+    public long cpu() {
+        long millis = -1L;
+        if (this.cpu >= 0L) {
+            millis = TimeUnit.NANOSECONDS.toMillis(this.cpu);
+        }
+        return millis;
+    }
+
+    /**
+     * Allocated bytes.
+     * @return Bytes, negative if not supported
+     */
+    public long allocated() {
+        return this.bytes;
+    }
+
+    /**
+     * Number of garbage collections.
+     * @return Count
+     */
+    public long collections() {
+        return this.gcs;
+    }
+
+    /**
+     * Time of garbage collections.
+     * @return Milliseconds
+     */
+    public long pauses() {
+        return this.pauses;
+    }
+
+    /**
+     * Difference of two values, negative if any of them is unknown.
+     * @param after Value after
+     * @param before Value before
+     * @return Difference
+     */
+    private static long delta(final long after, final long before) {
+        long delta = -1L;
+        if (after >= 0L && before >= 0L) {
+            delta = after - before;
+        }
+        return delta;
+    }
+
+    /**
+     * Find method of allocated bytes, and turn it on.
+     * @return Method or NULL if absent
+     */
+    private static Method allocator() {
+        Method method = null;
+        try {
+            final Class<?> type =
+                Class.forName("com.sun.management.ThreadMXBean");
+            if (type.isInstance(Usage.THREADS)) {
+                method = type.getMethod(
+                    "getThreadAllocatedBytes", long.class
+                );
+                final Method supported = type.getMethod(
+                    "isThreadAllocatedMemorySupported"
+                );
+                if (!(Boolean) supported.invoke(Usage.THREADS)) {
+                    method = null;
+                }
+            }
+        } catch (final ClassNotFoundException ex) {
+            method = null;
+        } catch (final NoSuchMethodException ex) {
+            method = null;
+        } catch (final IllegalAccessException ex) {
+            method = null;
+        } catch (final InvocationTargetException ex) {
+            method = null;
+        }
+        return method;
+    }
+
+}
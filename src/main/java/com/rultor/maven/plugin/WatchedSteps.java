@@ -0,0 +1,363 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.jcabi.log.Logger;
+import com.rultor.tools.Time;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import lombok.ToString;
+import org.xembly.Directives;
+
+/**
+ * Steps watched for hanging.
+ *
+ * <p>One background thread wakes up regularly and checks how long
+ * every step in progress is running. When a step passes the soft
+ * threshold, and then the hard one, a warning step is added to the
+ * snapshot, with stack and lock of the thread running the step and
+ * threads deadlocked in the JVM, if any. Stacks of all threads are
+ * saved to {@code <directory>/rultor-watchdog-<number>-<level>.txt}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+@ToString(of = { "origin", "dir", "soft", "hard" })
+@SuppressWarnings("PMD.DoNotUseThreads")
+final class WatchedSteps implements Steps {
+
+    /**
+     * How many frames of the running thread to report.
+     */
+    private static final int FRAMES = 16;
+
+    /**
+     * Longest interval between checks, in milliseconds.
+     */
+    private static final long PERIOD = 10000L;
+
+    /**
+     * Original steps.
+     */
+    private final transient Steps origin;
+
+    /**
+     * Where to send Xembly directives.
+     */
+    private final transient Emitter emitter;
+
+    /**
+     * Directory for thread dumps.
+     */
+    private final transient File dir;
+
+    /**
+     * Soft threshold, in milliseconds.
+     */
+    private final transient long soft;
+
+    /**
+     * Hard threshold, in milliseconds.
+     */
+    private final transient long hard;
+
+    /**
+     * Steps in progress.
+     */
+    private final transient ConcurrentMap<Identity, WatchedSteps.Watch>
+        watches = new ConcurrentHashMap<Identity, WatchedSteps.Watch>(0);
+
+    /**
+     * Watchdog thread.
+     */
+    private final transient ScheduledExecutorService watchdog;
+
+    /**
+     * Public ctor.
+     * @param steps Original steps
+     * @param emtr Emitter of directives
+     * @param folder Directory for thread dumps
+     * @param warn Soft threshold, in milliseconds
+     * @param alarm Hard threshold, in milliseconds
+     * @checkstyle ParameterNumber (4 lines)
+     */
+    WatchedSteps(final Steps steps, final Emitter emtr, final File folder,
+        final long warn, final long alarm) {
+        this.origin = steps;
+        this.emitter = emtr;
+        this.dir = folder;
+        this.soft = warn;
+        this.hard = Math.max(warn, alarm);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread =
+                        new Thread(runnable, "rultor-watchdog");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }
+        );
+        final long period = Math.max(
+            1L, Math.min(warn / 10L, WatchedSteps.PERIOD)
+        );
+        this.watchdog.scheduleWithFixedDelay(
+            new Runnable() {
+                @Override
+                public void run() {
+                    WatchedSteps.this.check();
+                }
+            },
+            period, period, TimeUnit.MILLISECONDS
+        );
+    }
+
+    @Override
+    public void started(final Identity step) {
+        this.origin.started(step);
+        this.watches.put(step, new WatchedSteps.Watch(Thread.currentThread()));
+    }
+
+    @Override
+    public Span succeeded(final Identity step) {
+        this.watches.remove(step);
+        return this.origin.succeeded(step);
+    }
+
+    @Override
+    public void skipped(final Identity step) {
+        this.origin.skipped(step);
+    }
+
+    @Override
+    public Span failed(final Identity step, final Throwable error) {
+        this.watches.remove(step);
+        return this.origin.failed(step, error);
+    }
+
+    @Override
+    public void close() {
+        this.watchdog.shutdownNow();
+        this.watches.clear();
+        this.origin.close();
+    }
+
+    /**
+     * Check all steps in progress.
+     */
+    private void check() {
+        final long now = System.currentTimeMillis();
+        for (final Map.Entry<Identity, WatchedSteps.Watch> entry
+            : this.watches.entrySet()) {
+            final WatchedSteps.Watch watch = entry.getValue();
+            final long elapsed = now - watch.start;
+            if (elapsed >= this.hard && watch.level < 2) {
+                watch.level = 2;
+                this.alarm(entry.getKey(), watch, elapsed, "hard");
+            } else if (elapsed >= this.soft && watch.level < 1) {
+                watch.level = 1;
+                this.alarm(entry.getKey(), watch, elapsed, "soft");
+            }
+        }
+    }
+
+    /**
+     * Report a step running too long.
+     * @param step The step
+     * @param watch Its watch
+     * @param elapsed How long it is running
+     * @param threshold Name of the threshold passed
+     */
+    private void alarm(final Identity step, final WatchedSteps.Watch watch,
+        final long elapsed, final String threshold) {
+        final ThreadMXBean mxb = ManagementFactory.getThreadMXBean();
+        final File file = new File(
+            this.dir,
+            String.format(
+                "rultor-watchdog-%d-%s.txt", step.number(), threshold
+            )
+        );
+        Level level = Level.WARNING;
+        if ("hard".equals(threshold)) {
+            level = Level.SEVERE;
+        }
+        final String now = new Time().toString();
+        final Directives dirs = new Directives()
+            .xpath("/snapshot").strict(1)
+            .addIf("steps").add("step")
+            .attr(
+                "id",
+                String.format("watchdog-%d-%s", step.number(), threshold)
+            )
+            .add("summary")
+            .set(
+                Logger.format(
+                    "%s is running for %[ms]s, over the %s threshold",
+                    step.label(), elapsed, threshold
+                )
+            ).up()
+            .add("start").set(now).up()
+            .add("finish").set(now).up()
+            .add("level").set(level.toString()).up()
+            .add("watchdog")
+            .attr("step", step.id())
+            .attr("threshold", threshold)
+            .attr("elapsed", Long.toString(elapsed));
+        try {
+            WatchedSteps.dump(mxb, file);
+            dirs.attr("file", file.getAbsolutePath());
+        } catch (final IOException ex) {
+            Logger.warn(this, "Thread dump %s is not saved: %s", file, ex);
+        }
+        final ThreadInfo info = mxb.getThreadInfo(
+            watch.thread.getId(), WatchedSteps.FRAMES
+        );
+        if (info != null) {
+            dirs.append(WatchedSteps.thread(info));
+        }
+        final long[] deadlocked = mxb.findDeadlockedThreads();
+        if (deadlocked != null) {
+            dirs.add("deadlock");
+            for (final ThreadInfo dead
+                : mxb.getThreadInfo(deadlocked, WatchedSteps.FRAMES)) {
+                if (dead != null) {
+                    dirs.append(WatchedSteps.thread(dead));
+                }
+            }
+            dirs.up();
+        }
+        this.emitter.emit(dirs);
+    }
+
+    /**
+     * Directives with a thread.
+     * @param info The thread
+     * @return Directives, leaving the pointer where it was
+     */
+    private static Directives thread(final ThreadInfo info) {
+        final Directives dirs = new Directives().add("thread")
+            .attr("name", info.getThreadName())
+            .attr("state", info.getThreadState().toString());
+        if (info.getLockName() != null) {
+            dirs.attr("lock", info.getLockName());
+        }
+        if (info.getLockOwnerName() != null) {
+            dirs.attr("owner", info.getLockOwnerName());
+        }
+        for (final StackTraceElement frame : info.getStackTrace()) {
+            dirs.add("frame").set(frame.toString()).up();
+        }
+        return dirs.up();
+    }
+
+    /**
+     * Save stacks of all threads.
+     * @param mxb Thread bean
+     * @param file File to save to
+     * @throws IOException If fails
+     */
+    private static void dump(final ThreadMXBean mxb, final File file)
+        throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException(String.format("can't create %s", parent));
+        }
+        final PrintWriter out = new PrintWriter(
+            new OutputStreamWriter(new FileOutputStream(file), "UTF-8")
+        );
+        try {
+            for (final ThreadInfo info : mxb.dumpAllThreads(
+                mxb.isObjectMonitorUsageSupported(),
+                mxb.isSynchronizerUsageSupported()
+            )) {
+                out.printf(
+                    "\"%s\" %s", info.getThreadName(), info.getThreadState()
+                );
+                if (info.getLockName() != null) {
+                    out.printf(" on %s", info.getLockName());
+                }
+                if (info.getLockOwnerName() != null) {
+                    out.printf(" owned by \"%s\"", info.getLockOwnerName());
+                }
+                out.print('\n');
+                for (final StackTraceElement frame : info.getStackTrace()) {
+                    out.printf("\tat %s\n", frame);
+                }
+                out.print('\n');
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Step in progress.
+     */
+    private static final class Watch {
+        /**
+         * Thread running the step.
+         */
+        private final transient Thread thread;
+        /**
+         * Start time.
+         */
+        private final transient long start;
+        /**
+         * Thresholds passed: zero, one or two.
+         */
+        private transient volatile int level;
+        /**
+         * Ctor.
+         * @param thrd Thread running the step
+         */
+        Watch(final Thread thrd) {
+            this.thread = thrd;
+            this.start = System.currentTimeMillis();
+        }
+    }
+
+}
@@ -29,15 +29,8 @@
  */
 package com.rultor.maven.plugin;
 
-import com.rultor.snapshot.XemblyLine;
-import com.rultor.tools.Exceptions;
-import com.rultor.tools.Time;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.logging.Level;
 import org.apache.maven.execution.ExecutionEvent;
 import org.apache.maven.execution.ExecutionListener;
-import org.xembly.Directives;
 
 /**
  * Reports mojos.
@@ -52,23 +45,62 @@ import org.xembly.Directives;
 final class XemblyMojos implements ExecutionListener {
 
     /**
-     * Start times of given goal inside artifacts.
+     * Identities of mojo executions.
      */
-    private final transient ConcurrentMap<String, Long> times =
-        new ConcurrentHashMap<String, Long>(0);
+    private final transient Identities ids = new Identities();
 
     /**
      * Target execution origin.
      */
     private final transient ExecutionListener origin;
 
+    /**
+     * Where to send Xembly directives.
+     */
+    private final transient Emitter emitter;
+
+    /**
+     * Reporter of steps.
+     */
+    private final transient Steps steps;
+
+    /**
+     * Forked lifecycles.
+     */
+    private final transient Forks forks;
+
+    /**
+     * Reports of tests.
+     */
+    private final transient TestReports tests;
+
+    /**
+     * Constructor.
+     *
+     * @param lstnr Listener to call.
+     * @param emtr Emitter of directives.
+     * @param stps Reporter of steps, using the same emitter.
+     */
+    XemblyMojos(final ExecutionListener lstnr, final Emitter emtr,
+        final Steps stps) {
+        this(lstnr, emtr, stps, true);
+    }
+
     /**
      * Constructor.
      *
      * @param lstnr Listener to call.
+     * @param emtr Emitter of directives.
+     * @param stps Reporter of steps, using the same emitter.
+     * @param reports Report tests from their XML reports?
      */
-    XemblyMojos(final ExecutionListener lstnr) {
+    XemblyMojos(final ExecutionListener lstnr, final Emitter emtr,
+        final Steps stps, final boolean reports) {
         this.origin = lstnr;
+        this.emitter = emtr;
+        this.steps = stps;
+        this.forks = new Forks(emtr);
+        this.tests = new TestReports(emtr, reports);
     }
 
     @Override
@@ -83,6 +115,11 @@ final class XemblyMojos implements ExecutionListener {
 
     @Override
     public void sessionEnded(final ExecutionEvent event) {
+        this.forks.close();
+        this.tests.close();
+        this.steps.close();
+        this.emitter.close();
+        this.ids.clear();
         this.origin.sessionEnded(event);
     }
 
@@ -108,134 +145,89 @@ final class XemblyMojos implements ExecutionListener {
 
     @Override
     public void mojoSkipped(final ExecutionEvent event) {
-        final String name = XemblyMojos.identifier(event);
-        final String label = XemblyMojos.label(event);
-        new XemblyLine(
-            new Directives()
-                .xpath("/snapshot").strict(1)
-                .addIf("steps").add("step")
-                .attr("id", name)
-                .add("summary")
-                .set(String.format("%s skipped", label)).up()
-                .add("start").set(new Time().toString()).up()
-                .add("finish").set(new Time().toString()).up()
-                .add("level").set(Level.INFO.toString())
-        ).log();
+        this.steps.skipped(this.step(event));
         this.origin.mojoSkipped(event);
     }
 
     @Override
     public void mojoStarted(final ExecutionEvent event) {
-        final String name = XemblyMojos.identifier(event);
-        final Time start = new Time();
-        this.times.put(name, start.millis());
-        final String label = XemblyMojos.label(event);
-        new XemblyLine(
-            new Directives()
-                .xpath("/snapshot").strict(1)
-                .addIf("steps").add("step")
-                .attr("id", name)
-                .add("summary")
-                .set(String.format("%s running...", label))
-                .up()
-                .add("start").set(start.toString()).up()
-        ).log();
+        this.steps.started(this.step(event));
+        this.tests.started(event.getMojoExecution());
         this.origin.mojoStarted(event);
     }
 
     @Override
     public void mojoSucceeded(final ExecutionEvent event) {
-        final String name = XemblyMojos.identifier(event);
-        final String label = XemblyMojos.label(event);
-        if (this.times.containsKey(name)) {
-            final long start = this.times.get(name);
-            final Time end = new Time();
-            new XemblyLine(
-                new Directives()
-                    .xpath("/snapshot/steps").strict(1)
-                    .xpath(String.format("step[@id='%s']/summary", name))
-                    .set(label).up()
-                    .add("finish").set(end.toString()).up()
-                    .add("level").set(Level.INFO.toString()).up()
-                    .add("duration").set(Long.toString(end.millis() - start))
-            ).log();
-        }
+        final Identity step = this.step(event);
+        this.steps.succeeded(step);
+        this.tests.report(
+            step, event.getProject(), event.getMojoExecution()
+        );
+        this.forks.report(step);
         this.origin.mojoSucceeded(event);
     }
 
     @Override
     public void mojoFailed(final ExecutionEvent event) {
-        final String name = XemblyMojos.identifier(event);
-        new XemblyLine(
-            new Directives()
-                .xpath(String.format("/snapshot/steps/step[@id='%s']", name))
-                .add("exception").add("class")
-                .set(event.getException().getClass().getCanonicalName()).up()
-                .add("stacktrace")
-                .set(Exceptions.stacktrace(event.getException())).up()
-                .add("level").set(Level.SEVERE.toString()).up()
-                .add("cause").set(Exceptions.message(event.getException()))
-        ).log();
+        final Identity step = this.step(event);
+        this.steps.failed(step, event.getException());
+        this.tests.report(
+            step, event.getProject(), event.getMojoExecution()
+        );
+        this.forks.report(step);
         this.origin.mojoFailed(event);
     }
 
     @Override
     public void forkStarted(final ExecutionEvent event) {
+        this.forks.started(this.step(event));
         this.origin.forkStarted(event);
     }
 
     @Override
     public void forkSucceeded(final ExecutionEvent event) {
+        final Identity step = this.step(event);
+        this.forks.completed(step, step);
         this.origin.forkSucceeded(event);
     }
 
     @Override
     public void forkFailed(final ExecutionEvent event) {
+        final Identity step = this.step(event);
+        this.forks.completed(step, step);
         this.origin.forkFailed(event);
     }
 
     @Override
     public void forkedProjectStarted(final ExecutionEvent event) {
+        this.forks.projectStarted(
+            this.step(event), XemblyProjects.identifier(event.getProject())
+        );
         this.origin.forkedProjectStarted(event);
     }
 
     @Override
     public void forkedProjectSucceeded(final ExecutionEvent event) {
+        this.forks.projectCompleted(
+            this.step(event), XemblyProjects.identifier(event.getProject())
+        );
         this.origin.forkedProjectSucceeded(event);
     }
 
     @Override
     public void forkedProjectFailed(final ExecutionEvent event) {
-        this.origin.forkedProjectFailed(event);
-    }
-
-    /**
-     * Identifier of given event.
-     *
-     * @param event Event to identify.
-     * @return Identifier.
-     */
-    private static String identifier(final ExecutionEvent event) {
-        return String.format(
-            "%s:%s:%s:%s",
-            event.getMojoExecution().getGroupId(),
-            event.getMojoExecution().getArtifactId(),
-            event.getMojoExecution().getGoal(),
-            event.getMojoExecution().getExecutionId()
+        this.forks.projectCompleted(
+            this.step(event), XemblyProjects.identifier(event.getProject())
         );
+        this.origin.forkedProjectFailed(event);
     }
 
     /**
-     * Label of given event.
-     *
-     * @param event Event to identify.
-     * @return Label.
+     * Identity of the mojo of the event.
+     * @param event The event
+     * @return Identity
      */
-    private static String label(final ExecutionEvent event) {
-        return String.format(
-            "%s:%s",
-            event.getMojoExecution().getArtifactId(),
-            event.getMojoExecution().getGoal()
-        );
+    private Identity step(final ExecutionEvent event) {
+        return this.ids.mojo(event.getProject(), event.getMojoExecution());
     }
 }
@@ -29,18 +29,19 @@
  */
 package com.rultor.maven.plugin;
 
-import com.rultor.snapshot.XemblyLine;
-import com.rultor.tools.Exceptions;
-import com.rultor.tools.Time;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.logging.Level;
 import org.apache.maven.execution.ExecutionEvent;
 import org.apache.maven.execution.ExecutionListener;
-import org.xembly.Directives;
+import org.apache.maven.execution.ProjectDependencyGraph;
+import org.apache.maven.project.MavenProject;
 
 /**
- * Reports projects.
+ * Reports projects, with their mojos rolled up.
+ *
+ * <p>Mojos are reported through {@link Rollup}: each project step lists
+ * its mojos, and only mojos of slow or failed projects, and the slowest
+ * mojos of the build, become steps of their own.
  *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
@@ -51,23 +52,95 @@ import org.xembly.Directives;
 final class XemblyProjects implements ExecutionListener {
 
     /**
-     * Start times of given projects.
+     * Measured spans of finished projects.
+     */
+    private final transient ConcurrentMap<String, Span> spans =
+        new ConcurrentHashMap<String, Span>(0);
+
+    /**
+     * Identities of projects.
      */
-    private final transient ConcurrentMap<String, Long> times =
-        new ConcurrentHashMap<String, Long>(0);
+    private final transient Identities ids = new Identities();
 
     /**
      * Target execution origin.
      */
     private final transient ExecutionListener origin;
 
+    /**
+     * Where to send Xembly directives.
+     */
+    private final transient Emitter emitter;
+
+    /**
+     * Reporter of steps.
+     */
+    private final transient Steps steps;
+
+    /**
+     * Forked lifecycles.
+     */
+    private final transient Forks forks;
+
+    /**
+     * Reports of tests.
+     */
+    private final transient TestReports tests;
+
+    /**
+     * Mojos, rolled up into projects.
+     */
+    private final transient Rollup rollup;
+
+    /**
+     * Constructor.
+     *
+     * @param lstnr Listener to call.
+     * @param emtr Emitter of directives.
+     * @param stps Reporter of steps, using the same emitter.
+     */
+    XemblyProjects(final ExecutionListener lstnr, final Emitter emtr,
+        final Steps stps) {
+        this(lstnr, emtr, stps, Long.MAX_VALUE, 0);
+    }
+
     /**
      * Constructor.
      *
      * @param lstnr Listener to call.
+     * @param emtr Emitter of directives.
+     * @param stps Reporter of steps, using the same emitter.
+     * @param threshold Projects running longer, in milliseconds, get
+     *  their mojos reported as steps
+     * @param top How many slowest mojos of the build to report as steps
+     * @checkstyle ParameterNumber (4 lines)
      */
-    XemblyProjects(final ExecutionListener lstnr) {
+    XemblyProjects(final ExecutionListener lstnr, final Emitter emtr,
+        final Steps stps, final long threshold, final int top) {
+        this(lstnr, emtr, stps, threshold, top, true);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param lstnr Listener to call.
+     * @param emtr Emitter of directives.
+     * @param stps Reporter of steps, using the same emitter.
+     * @param threshold Projects running longer, in milliseconds, get
+     *  their mojos reported as steps
+     * @param top How many slowest mojos of the build to report as steps
+     * @param reports Report tests from their XML reports?
+     * @checkstyle ParameterNumber (5 lines)
+     */
+    XemblyProjects(final ExecutionListener lstnr, final Emitter emtr,
+        final Steps stps, final long threshold, final int top,
+        final boolean reports) {
         this.origin = lstnr;
+        this.emitter = emtr;
+        this.steps = stps;
+        this.forks = new Forks(emtr);
+        this.tests = new TestReports(emtr, reports);
+        this.rollup = new Rollup(emtr, threshold, top);
     }
 
     @Override
@@ -82,79 +155,57 @@ final class XemblyProjects implements ExecutionListener {
 
     @Override
     public void sessionEnded(final ExecutionEvent event) {
+        final ProjectDependencyGraph graph =
+            event.getSession().getProjectDependencyGraph();
+        if (graph != null && !this.spans.isEmpty()) {
+            this.emitter.emit(
+                new CriticalPath(graph, this.spans).directives()
+            );
+            this.emitter.emit(new Advisor(graph, this.spans).directives());
+        }
+        this.forks.close();
+        this.tests.close();
+        this.rollup.close();
+        this.steps.close();
+        this.emitter.close();
+        this.ids.clear();
+        this.spans.clear();
         this.origin.sessionEnded(event);
     }
 
     @Override
     public void projectSkipped(final ExecutionEvent event) {
-        final String name = XemblyProjects.identifier(event);
-        final String label = XemblyProjects.label(event);
-        new XemblyLine(
-            new Directives()
-                .xpath("/snapshot").strict(1)
-                .addIf("steps").add("step")
-                .attr("id", name)
-                .add("summary")
-                .set(String.format("%s skipped", label)).up()
-                .add("start").set(new Time().toString()).up()
-                .add("finish").set(new Time().toString()).up()
-                .add("level").set(Level.INFO.toString())
-        ).log();
-        this.origin.mojoStarted(event);
+        this.steps.skipped(this.ids.project(event.getProject()));
+        this.origin.projectSkipped(event);
     }
 
     @Override
     public void projectStarted(final ExecutionEvent event) {
-        final String name = XemblyProjects.identifier(event);
-        final Time start = new Time();
-        this.times.put(name, start.millis());
-        final String label = XemblyProjects.label(event);
-        new XemblyLine(
-            new Directives()
-                .xpath("/snapshot").strict(1)
-                .addIf("steps").add("step")
-                .attr("id", name)
-                .add("summary")
-                .set(String.format("%s running...", label))
-                .up()
-                .add("start").set(start.toString()).up()
-        ).log();
+        this.steps.started(this.ids.project(event.getProject()));
         this.origin.projectStarted(event);
     }
 
     @Override
     public void projectSucceeded(final ExecutionEvent event) {
-        final String name = XemblyProjects.identifier(event);
-        final String label = XemblyProjects.label(event);
-        if (this.times.containsKey(name)) {
-            final long start = this.times.get(name);
-            final Time end = new Time();
-            new XemblyLine(
-                new Directives()
-                    .xpath("/snapshot/steps").strict(1)
-                    .xpath(String.format("step[@id='%s']/summary", name))
-                    .set(label).up()
-                    .add("finish").set(end.toString()).up()
-                    .add("level").set(Level.INFO.toString()).up()
-                    .add("duration").set(Long.toString(end.millis() - start))
-            ).log();
+        final Identity step = this.ids.project(event.getProject());
+        final Span span = this.steps.succeeded(step);
+        if (span != null) {
+            this.spans.put(step.id(), span);
+            this.rollup.report(step, span);
         }
+        this.forks.report(step);
         this.origin.projectSucceeded(event);
     }
 
     @Override
     public void projectFailed(final ExecutionEvent event) {
-        final String name = XemblyProjects.identifier(event);
-        new XemblyLine(
-            new Directives()
-                .xpath(String.format("/snapshot/steps/step[@id=%s]", name))
-                .add("exception").add("class")
-                .set(event.getException().getClass().getCanonicalName()).up()
-                .add("stacktrace")
-                .set(Exceptions.stacktrace(event.getException())).up()
-                .add("level").set(Level.SEVERE.toString()).up()
-                .add("cause").set(Exceptions.message(event.getException()))
-        ).log();
+        final Identity step = this.ids.project(event.getProject());
+        final Span span = this.steps.failed(step, event.getException());
+        if (span != null) {
+            this.spans.put(step.id(), span);
+        }
+        this.rollup.report(step, null);
+        this.forks.report(step);
         this.origin.projectFailed(event);
     }
 
@@ -165,69 +216,97 @@ final class XemblyProjects implements ExecutionListener {
 
     @Override
     public void mojoStarted(final ExecutionEvent event) {
+        this.rollup.started(this.mojo(event));
+        this.tests.started(event.getMojoExecution());
         this.origin.mojoStarted(event);
     }
 
     @Override
     public void mojoSucceeded(final ExecutionEvent event) {
+        final Identity project = this.ids.project(event.getProject());
+        this.rollup.completed(project, this.mojo(event));
+        this.tests.report(
+            project, event.getProject(), event.getMojoExecution()
+        );
         this.origin.mojoSucceeded(event);
     }
 
     @Override
     public void mojoFailed(final ExecutionEvent event) {
+        final Identity project = this.ids.project(event.getProject());
+        this.rollup.completed(project, this.mojo(event));
+        this.tests.report(
+            project, event.getProject(), event.getMojoExecution()
+        );
         this.origin.mojoFailed(event);
     }
 
     @Override
     public void forkStarted(final ExecutionEvent event) {
+        this.forks.started(this.mojo(event));
         this.origin.forkStarted(event);
     }
 
     @Override
     public void forkSucceeded(final ExecutionEvent event) {
+        this.forks.completed(
+            this.mojo(event), this.ids.project(event.getProject())
+        );
         this.origin.forkSucceeded(event);
     }
 
     @Override
     public void forkFailed(final ExecutionEvent event) {
+        this.forks.completed(
+            this.mojo(event), this.ids.project(event.getProject())
+        );
         this.origin.forkFailed(event);
     }
 
     @Override
     public void forkedProjectStarted(final ExecutionEvent event) {
+        this.forks.projectStarted(
+            this.mojo(event), XemblyProjects.identifier(event.getProject())
+        );
         this.origin.forkedProjectStarted(event);
     }
 
     @Override
     public void forkedProjectSucceeded(final ExecutionEvent event) {
+        this.forks.projectCompleted(
+            this.mojo(event), XemblyProjects.identifier(event.getProject())
+        );
         this.origin.forkedProjectSucceeded(event);
     }
 
     @Override
     public void forkedProjectFailed(final ExecutionEvent event) {
+        this.forks.projectCompleted(
+            this.mojo(event), XemblyProjects.identifier(event.getProject())
+        );
         this.origin.forkedProjectFailed(event);
     }
 
     /**
-     * Identifier of given event.
+     * Identity of the mojo of the event.
+     * @param event The event
+     * @return Identity
+     */
+    private Identity mojo(final ExecutionEvent event) {
+        return this.ids.mojo(event.getProject(), event.getMojoExecution());
+    }
+
+    /**
+     * Identifier of given project.
      *
-     * @param event Event to identify.
+     * @param project Project to identify.
      * @return Identifier.
      */
-    private static String identifier(final ExecutionEvent event) {
+    static String identifier(final MavenProject project) {
         return String.format(
             "%s:%s",
-            event.getProject().getGroupId(),
-            event.getProject().getArtifactId()
+            project.getGroupId(),
+            project.getArtifactId()
         );
     }
-
-    /**
-     * Label of given event.
-     * @param event Event to identify.
-     * @return Label
-     */
-    private static String label(final ExecutionEvent event) {
-        return event.getProject().getArtifactId();
-    }
 }
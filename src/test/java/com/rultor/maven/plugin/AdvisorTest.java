@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.execution.ProjectDependencyGraph;
+import org.apache.maven.project.MavenProject;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test case for {@link Advisor}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class AdvisorTest {
+
+    /**
+     * Advisor simulates the reactor with different numbers of threads.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void simulatesThreads() throws Exception {
+        final MavenProject root = AdvisorTest.project("root");
+        final MavenProject first = AdvisorTest.project("first");
+        final MavenProject second = AdvisorTest.project("second");
+        final MavenProject third = AdvisorTest.project("third");
+        final ProjectDependencyGraph graph =
+            Mockito.mock(ProjectDependencyGraph.class);
+        Mockito.when(graph.getSortedProjects())
+            .thenReturn(Arrays.asList(root, first, second, third));
+        Mockito.when(graph.getDownstreamProjects(root, false))
+            .thenReturn(Arrays.asList(first, second, third));
+        Mockito.when(graph.getDownstreamProjects(first, false))
+            .thenReturn(Collections.<MavenProject>emptyList());
+        Mockito.when(graph.getDownstreamProjects(second, false))
+            .thenReturn(Collections.<MavenProject>emptyList());
+        Mockito.when(graph.getDownstreamProjects(third, false))
+            .thenReturn(Collections.<MavenProject>emptyList());
+        final Map<String, Span> spans = new HashMap<String, Span>(0);
+        spans.put("g:root", new Span(0L, 10L, "t1"));
+        spans.put("g:first", new Span(10L, 20L, "t1"));
+        spans.put("g:second", new Span(20L, 30L, "t1"));
+        spans.put("g:third", new Span(30L, 40L, "t1"));
+        final DomEmitter emitter = new DomEmitter();
+        emitter.emit(new Advisor(graph, spans).directives());
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath("//step[@id='advice']/advice[.='3']"),
+                Matchers.hasXPath(
+                    "//threads[count(simulation)=4]/simulation[@wall=40]"
+                ),
+                Matchers.hasXPath(
+                    "//threads/simulation[@threads=2 and @wall=30]"
+                ),
+                Matchers.hasXPath(
+                    // @checkstyle LineLength (1 line)
+                    "//threads/simulation[@threads=3 and @wall=20 and @speedup='2.00']"
+                )
+            )
+        );
+    }
+
+    /**
+     * Advisor takes the best speed-up from the fastest simulation, even
+     * if more threads make the build slower.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void takesBestSpeedupFromFastestSimulation() throws Exception {
+        final List<MavenProject> sorted = new ArrayList<MavenProject>(0);
+        final Map<String, Span> spans = new HashMap<String, Span>(0);
+        for (int idx = 0; idx < Advisor.MAX - 4; ++idx) {
+            final MavenProject filler = AdvisorTest.project(
+                String.format("filler-%d", idx)
+            );
+            sorted.add(filler);
+            spans.put(
+                XemblyProjects.identifier(filler),
+                new Span(0L, 12L, "t1")
+            );
+        }
+        final long[] times = {3L, 2L, 2L, 2L, 4L, 4L, 4L, 4L, 9L};
+        final MavenProject[] tasks = new MavenProject[times.length];
+        for (int idx = 0; idx < times.length; ++idx) {
+            tasks[idx] = AdvisorTest.project(String.format("task-%d", idx));
+            sorted.add(tasks[idx]);
+            spans.put(
+                XemblyProjects.identifier(tasks[idx]),
+                new Span(0L, times[idx], "t1")
+            );
+        }
+        final ProjectDependencyGraph graph =
+            Mockito.mock(ProjectDependencyGraph.class);
+        Mockito.when(graph.getSortedProjects()).thenReturn(sorted);
+        Mockito.when(graph.getDownstreamProjects(tasks[0], false))
+            .thenReturn(Arrays.asList(tasks[8]));
+        Mockito.when(graph.getDownstreamProjects(tasks[3], false))
+            .thenReturn(Arrays.asList(tasks[4], tasks[5], tasks[6], tasks[7]));
+        final DomEmitter emitter = new DomEmitter();
+        emitter.emit(new Advisor(graph, spans).directives());
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath(
+                    "//threads/simulation[@threads=64 and @wall=15]"
+                ),
+                Matchers.hasXPath(
+                    "//threads/simulation[@threads=63 and @wall=12]"
+                ),
+                Matchers.hasXPath("//step[@id='advice']/advice[.='63']"),
+                Matchers.hasXPath(
+                    // @checkstyle LineLength (1 line)
+                    "//step[@id='advice']/summary[contains(.,'-T 63: 12ms, -T 63: 12ms')]"
+                )
+            )
+        );
+    }
+
+    /**
+     * Make project.
+     * @param name Artifact ID
+     * @return Project
+     */
+    private static MavenProject project(final String name) {
+        final MavenProject project = new MavenProject();
+        project.setGroupId("g");
+        project.setArtifactId(name);
+        project.setVersion("1.0");
+        return project;
+    }
+
+}
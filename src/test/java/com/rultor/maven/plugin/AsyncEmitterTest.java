@@ -0,0 +1,251 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.xembly.Directives;
+
+/**
+ * Test case for {@link AsyncEmitter}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class AsyncEmitterTest {
+
+    /**
+     * AsyncEmitter delivers everything to origin, from many threads.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void deliversAllDirectivesFromManyThreads() throws Exception {
+        final AsyncEmitterTest.Counter counter =
+            new AsyncEmitterTest.Counter();
+        final Emitter emitter = new AsyncEmitter(
+            counter, 16, AsyncEmitter.Overflow.BLOCK
+        );
+        final int threads = 8;
+        final int total = 500;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService svc = Executors.newFixedThreadPool(threads);
+        for (int thread = 0; thread < threads; ++thread) {
+            svc.submit(
+                new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        for (int idx = 0; idx < total; ++idx) {
+                            emitter.emit(new Directives().add("step"));
+                        }
+                        return null;
+                    }
+                }
+            );
+        }
+        start.countDown();
+        svc.shutdown();
+        MatcherAssert.assertThat(
+            svc.awaitTermination(1L, TimeUnit.MINUTES),
+            Matchers.is(true)
+        );
+        emitter.close();
+        MatcherAssert.assertThat(
+            counter.directives.get(),
+            Matchers.equalTo(threads * total)
+        );
+        MatcherAssert.assertThat(counter.closed.get(), Matchers.equalTo(1));
+    }
+
+    /**
+     * AsyncEmitter never passes directives to origin after closing it,
+     * even if they are emitted while it is being closed.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void neverEmitsToClosedOrigin() throws Exception {
+        final AsyncEmitterTest.Counter counter =
+            new AsyncEmitterTest.Counter();
+        final Emitter emitter = new AsyncEmitter(
+            counter, Short.MAX_VALUE, AsyncEmitter.Overflow.BLOCK
+        );
+        final int threads = 8;
+        final AtomicInteger emitted = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(threads);
+        final ExecutorService svc = Executors.newFixedThreadPool(threads);
+        for (int thread = 0; thread < threads; ++thread) {
+            svc.submit(
+                new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        start.countDown();
+                        while (counter.closed.get() == 0) {
+                            emitter.emit(new Directives().add("step"));
+                            emitted.incrementAndGet();
+                        }
+                        emitter.emit(new Directives().add("late"));
+                        return null;
+                    }
+                }
+            );
+        }
+        start.await();
+        emitter.close();
+        svc.shutdown();
+        MatcherAssert.assertThat(
+            svc.awaitTermination(1L, TimeUnit.MINUTES),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(counter.late.get(), Matchers.equalTo(0));
+        MatcherAssert.assertThat(
+            counter.directives.get(),
+            Matchers.lessThanOrEqualTo(emitted.get())
+        );
+    }
+
+    /**
+     * AsyncEmitter passes every portion to origin separately.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void emitsPortionsSeparately() throws Exception {
+        final AsyncEmitterTest.Counter counter =
+            new AsyncEmitterTest.Counter();
+        final Emitter emitter = new AsyncEmitter(
+            counter, Short.MAX_VALUE, AsyncEmitter.Overflow.BLOCK
+        );
+        final int total = 100;
+        for (int idx = 0; idx < total; ++idx) {
+            emitter.emit(new Directives().add("step").add("summary"));
+        }
+        emitter.close();
+        MatcherAssert.assertThat(
+            counter.portions.get(), Matchers.equalTo(total)
+        );
+        MatcherAssert.assertThat(
+            counter.directives.get(), Matchers.equalTo(total * 2)
+        );
+    }
+
+    /**
+     * AsyncEmitter drops directives when the queue is full.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void dropsOnOverflow() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AsyncEmitterTest.Counter counter =
+            new AsyncEmitterTest.Counter(latch);
+        final Emitter emitter = new AsyncEmitter(
+            counter, 2, AsyncEmitter.Overflow.DROP
+        );
+        final int total = 64;
+        for (int idx = 0; idx < total; ++idx) {
+            emitter.emit(new Directives().add("step"));
+        }
+        latch.countDown();
+        emitter.close();
+        MatcherAssert.assertThat(
+            counter.directives.get(),
+            Matchers.lessThan(total)
+        );
+    }
+
+    /**
+     * Emitter that counts what it gets.
+     */
+    private static final class Counter implements Emitter {
+        /**
+         * Total directives received.
+         */
+        private final transient AtomicInteger directives =
+            new AtomicInteger();
+        /**
+         * Total portions received.
+         */
+        private final transient AtomicInteger portions =
+            new AtomicInteger();
+        /**
+         * Portions received after it was closed.
+         */
+        private final transient AtomicInteger late = new AtomicInteger();
+        /**
+         * How many times it was closed.
+         */
+        private final transient AtomicInteger closed = new AtomicInteger();
+        /**
+         * Latch to wait for before accepting anything.
+         */
+        private final transient CountDownLatch gate;
+        /**
+         * Ctor.
+         */
+        Counter() {
+            this(new CountDownLatch(0));
+        }
+        /**
+         * Ctor.
+         * @param latch Latch to wait for
+         */
+        Counter(final CountDownLatch latch) {
+            this.gate = latch;
+        }
+        @Override
+        public void emit(final Directives dirs) {
+            try {
+                this.gate.await();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(ex);
+            }
+            if (this.closed.get() > 0) {
+                this.late.incrementAndGet();
+            }
+            this.portions.incrementAndGet();
+            this.directives.addAndGet(dirs.size());
+        }
+        @Override
+        public void emit(final String step, final Directives dirs) {
+            this.emit(dirs);
+        }
+        @Override
+        public void close() {
+            this.closed.incrementAndGet();
+        }
+    }
+
+}
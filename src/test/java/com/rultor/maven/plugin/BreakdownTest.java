@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Breakdown}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class BreakdownTest {
+
+    /**
+     * Breakdown aggregates durations by phases and plugins.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void aggregatesByPhasesAndPlugins() throws Exception {
+        final Breakdown breakdown = new Breakdown();
+        for (long idx = 1L; idx <= 100L; ++idx) {
+            breakdown.record(
+                "test", "maven-surefire-plugin:test",
+                idx * 1000L, idx * 1001L
+            );
+        }
+        breakdown.record(
+            null, "maven-compiler-plugin:compile", 0L, 7L
+        );
+        final DomEmitter emitter = new DomEmitter();
+        emitter.emit(breakdown.directives());
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath(
+                    // @checkstyle LineLength (1 line)
+                    "//step[@id='breakdown' and duration=100100]/phases/phase[1][@id='test' and @count=100 and @total=5050 and @max=100 and @p50=51 and @p95=95]"
+                ),
+                Matchers.hasXPath(
+                    "//step/phases/phase[2][@id='none' and @p50=7 and @p95=7]"
+                ),
+                Matchers.hasXPath(
+                    // @checkstyle LineLength (1 line)
+                    "//step/plugins/plugin[@id='maven-compiler-plugin:compile' and @max=7]"
+                )
+            )
+        );
+    }
+
+    /**
+     * Breakdown reports nothing if there were no mojos.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void reportsNothingWithoutMojos() throws Exception {
+        MatcherAssert.assertThat(
+            new Breakdown().directives(),
+            Matchers.emptyIterable()
+        );
+    }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.util.concurrent.TimeUnit;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link CompactSteps}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class CompactStepsTest {
+
+    /**
+     * CompactSteps emits one line per completed step.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void emitsOneLinePerStep() throws Exception {
+        final DomEmitter emitter = new DomEmitter();
+        final Steps steps = new CompactSteps(emitter, 0L);
+        final Identity first = new Identity(0, "a", "first");
+        final Identity second = new Identity(1, "b", "second");
+        steps.started(first);
+        steps.started(second);
+        steps.succeeded(first);
+        steps.failed(second, new IllegalStateException("oops"));
+        steps.close();
+        MatcherAssert.assertThat(emitter.emitted(), Matchers.equalTo(2));
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath(
+                    "/snapshot/steps/step[@id='a' and summary='first']"
+                ),
+                Matchers.hasXPath("//step[@id='a']/start"),
+                Matchers.hasXPath("//step[@id='a']/finish"),
+                Matchers.hasXPath("//step[@id='a']/duration"),
+                Matchers.hasXPath("//step[@id='b' and level='SEVERE']"),
+                Matchers.hasXPath("//step[@id='b']/exception/cause")
+            )
+        );
+    }
+
+    /**
+     * CompactSteps reports long-running steps by heartbeat.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void reportsLongRunningSteps() throws Exception {
+        final DomEmitter emitter = new DomEmitter();
+        final Steps steps = new CompactSteps(emitter, 1L);
+        final Identity slow = new Identity(0, "slow", "slow:goal");
+        steps.started(slow);
+        final long start = System.currentTimeMillis();
+        while (emitter.emitted() == 0
+            && System.currentTimeMillis() - start
+            < TimeUnit.SECONDS.toMillis(1L)) {
+            TimeUnit.MILLISECONDS.sleep(1L);
+        }
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.hasXPath(
+                "//step[@id='slow']/summary[contains(.,'running')]"
+            )
+        );
+        steps.succeeded(slow);
+        steps.close();
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath(
+                    "/snapshot/steps[count(step)=1]/step[count(summary)=1]"
+                ),
+                Matchers.hasXPath(
+                    "//step[@id='slow' and summary='slow:goal' and duration]"
+                )
+            )
+        );
+    }
+
+}
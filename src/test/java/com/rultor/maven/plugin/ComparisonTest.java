@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Comparison}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class ComparisonTest {
+
+    /**
+     * Comparison finds regressions of steps and plugin goals.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void findsRegressions() throws Exception {
+        final Map<String, Long> before = new HashMap<String, Long>(0);
+        before.put("a:core/o:maven-surefire-plugin:test:default-test", 10000L);
+        before.put("a:web/o:maven-surefire-plugin:test:default-test", 5000L);
+        before.put("a:web/o:maven-jar-plugin:jar:default-jar", 100L);
+        before.put("a:gone", 1L);
+        final Map<String, Long> after = new HashMap<String, Long>(0);
+        after.put("a:core/o:maven-surefire-plugin:test:default-test", 13000L);
+        after.put("a:web/o:maven-surefire-plugin:test:default-test", 4000L);
+        after.put("a:web/o:maven-jar-plugin:jar:default-jar", 900L);
+        after.put("a:new", 1L);
+        final Comparison comparison = new Comparison(before, after, 1000L, 10L);
+        MatcherAssert.assertThat(comparison.steps(), Matchers.hasSize(3));
+        MatcherAssert.assertThat(
+            comparison.steps().get(0),
+            Matchers.startsWith("a:core/o:maven-surefire-plugin:test")
+        );
+        MatcherAssert.assertThat(comparison.plugins(), Matchers.hasSize(2));
+        MatcherAssert.assertThat(
+            comparison.plugins().get(0),
+            Matchers.startsWith("maven-surefire-plugin:test")
+        );
+        MatcherAssert.assertThat(
+            comparison.plugins().get(1),
+            Matchers.startsWith("maven-jar-plugin:jar")
+        );
+        MatcherAssert.assertThat(
+            comparison.regressions(), Matchers.hasSize(2)
+        );
+        MatcherAssert.assertThat(
+            comparison.regressions().get(0),
+            Matchers.allOf(
+                Matchers.startsWith("a:core/"),
+                Matchers.endsWith("(+30%)")
+            )
+        );
+        MatcherAssert.assertThat(
+            comparison.regressions().get(1),
+            Matchers.startsWith("maven-surefire-plugin:test")
+        );
+    }
+
+}
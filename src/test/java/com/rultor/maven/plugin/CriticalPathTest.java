@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.apache.maven.execution.ProjectDependencyGraph;
+import org.apache.maven.project.MavenProject;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.w3c.dom.Document;
+import org.xembly.Xembler;
+
+/**
+ * Test case for {@link CriticalPath}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class CriticalPathTest {
+
+    /**
+     * CriticalPath finds the longest chain and slack of other projects.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void findsCriticalPathAndSlack() throws Exception {
+        final MavenProject first = CriticalPathTest.project("first");
+        final MavenProject second = CriticalPathTest.project("second");
+        final MavenProject third = CriticalPathTest.project("third");
+        final ProjectDependencyGraph graph =
+            Mockito.mock(ProjectDependencyGraph.class);
+        Mockito.when(graph.getSortedProjects())
+            .thenReturn(Arrays.asList(first, second, third));
+        Mockito.when(graph.getUpstreamProjects(second, false))
+            .thenReturn(Collections.singletonList(first));
+        Mockito.when(graph.getUpstreamProjects(third, false))
+            .thenReturn(Collections.singletonList(first));
+        Mockito.when(graph.getDownstreamProjects(first, false))
+            .thenReturn(Arrays.asList(second, third));
+        final Map<String, Span> spans = new HashMap<String, Span>(0);
+        spans.put("g:first", new Span(0L, 10L, "t1"));
+        spans.put("g:second", new Span(10L, 30L, "t1"));
+        spans.put("g:third", new Span(10L, 15L, "t2"));
+        final Document dom = DocumentBuilderFactory.newInstance()
+            .newDocumentBuilder().newDocument();
+        dom.appendChild(dom.createElement("snapshot"));
+        new Xembler(new CriticalPath(graph, spans).directives()).apply(dom);
+        MatcherAssert.assertThat(
+            dom,
+            Matchers.allOf(
+                Matchers.hasXPath("//step[@id='critical-path']/summary"),
+                Matchers.hasXPath("//step/duration[.='30']"),
+                Matchers.hasXPath(
+                    "//reactor/project[@id='g:second' and @critical='true']"
+                ),
+                Matchers.hasXPath(
+                    "//reactor/project[@id='g:third' and @slack='15']"
+                ),
+                Matchers.hasXPath("//reactor/thread[@name='t2' and @idle='25']")
+            )
+        );
+    }
+
+    /**
+     * Make project.
+     * @param name Artifact ID
+     * @return Project
+     */
+    private static MavenProject project(final String name) {
+        final MavenProject project = new MavenProject();
+        project.setGroupId("g");
+        project.setArtifactId(name);
+        project.setVersion("1.0");
+        return project;
+    }
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Document;
+import org.xembly.Directives;
+import org.xembly.ImpossibleModificationException;
+import org.xembly.Xembler;
+
+/**
+ * Emitter that applies all directives to an in-memory snapshot.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class DomEmitter implements Emitter {
+
+    /**
+     * Snapshot document.
+     */
+    private final transient Document doc;
+
+    /**
+     * How many portions were emitted.
+     */
+    private final transient AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Public ctor.
+     * @throws ParserConfigurationException If fails
+     */
+    DomEmitter() throws ParserConfigurationException {
+        this.doc = DocumentBuilderFactory.newInstance()
+            .newDocumentBuilder().newDocument();
+        this.doc.appendChild(this.doc.createElement("snapshot"));
+    }
+
+    @Override
+    public void emit(final Directives dirs) {
+        synchronized (this.doc) {
+            try {
+                new Xembler(dirs).apply(this.doc);
+            } catch (final ImpossibleModificationException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        this.count.incrementAndGet();
+    }
+
+    @Override
+    public void emit(final String step, final Directives dirs) {
+        this.emit(dirs);
+    }
+
+    @Override
+    public void close() {
+        // nothing to do
+    }
+
+    /**
+     * Snapshot built so far.
+     * @return Document
+     */
+    public Document snapshot() {
+        return this.doc;
+    }
+
+    /**
+     * How many portions were emitted.
+     * @return Total
+     */
+    public int emitted() {
+        return this.count.get();
+    }
+
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import org.apache.maven.execution.AbstractExecutionListener;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.sonatype.aether.RepositoryEvent;
+import org.sonatype.aether.RepositoryListener;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.repository.LocalRepository;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.transfer.TransferEvent;
+import org.sonatype.aether.transfer.TransferListener;
+import org.sonatype.aether.transfer.TransferResource;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+
+/**
+ * Test case for {@link DownloadsListener}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class DownloadsListenerTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * DownloadsListener attributes resolutions and downloads to projects,
+     * mojos and repositories.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    @SuppressWarnings("PMD.ExcessiveMethodLength")
+    public void attributesDownloads() throws Exception {
+        final TransferListener transfers = Mockito.mock(TransferListener.class);
+        final RepositoryListener resolutions =
+            Mockito.mock(RepositoryListener.class);
+        final DefaultRepositorySystemSession repo =
+            new DefaultRepositorySystemSession();
+        repo.setTransferListener(transfers);
+        repo.setRepositoryListener(resolutions);
+        final MavenSession session = Mockito.mock(MavenSession.class);
+        Mockito.when(session.getRepositorySession()).thenReturn(repo);
+        final DomEmitter emitter = new DomEmitter();
+        final DownloadsListener listener = new DownloadsListener(
+            new AbstractExecutionListener(), emitter, session
+        );
+        final MavenProject project = new MavenProject();
+        project.setGroupId("com.example");
+        project.setArtifactId("core");
+        final Plugin plugin = new Plugin();
+        plugin.setArtifactId("maven-compiler-plugin");
+        final MojoExecution mojo = new MojoExecution(
+            plugin, "compile", "default-compile"
+        );
+        final Artifact artifact = Mockito.mock(Artifact.class);
+        Mockito.when(artifact.toString()).thenReturn("junit:junit:jar:4.11");
+        final File file = this.temp.newFile("junit.jar");
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[10]);
+        } finally {
+            out.close();
+        }
+        final RepositoryEvent local = Mockito.mock(RepositoryEvent.class);
+        Mockito.when(local.getRepository()).thenReturn(
+            new LocalRepository(this.temp.getRoot())
+        );
+        final RepositoryEvent remote = Mockito.mock(RepositoryEvent.class);
+        Mockito.when(remote.getArtifact()).thenReturn(artifact);
+        Mockito.when(remote.getFile()).thenReturn(file);
+        Mockito.when(remote.getRepository()).thenReturn(
+            new RemoteRepository("central", "default", "http://example.com/")
+        );
+        final TransferResource resource = Mockito.mock(TransferResource.class);
+        Mockito.when(resource.getRepositoryUrl())
+            .thenReturn("http://example.com/");
+        Mockito.when(resource.getTransferStartTime())
+            .thenReturn(System.currentTimeMillis());
+        final TransferEvent transfer = Mockito.mock(TransferEvent.class);
+        Mockito.when(transfer.getResource()).thenReturn(resource);
+        Mockito.when(transfer.getTransferredBytes()).thenReturn(10L);
+        listener.projectStarted(
+            new FakeEvent(ExecutionEvent.Type.ProjectStarted, project, null)
+        );
+        repo.getRepositoryListener().artifactResolved(local);
+        listener.mojoStarted(
+            new FakeEvent(ExecutionEvent.Type.MojoStarted, project, mojo)
+        );
+        repo.getRepositoryListener().artifactDownloading(remote);
+        repo.getTransferListener().transferSucceeded(transfer);
+        repo.getRepositoryListener().artifactDownloaded(remote);
+        repo.getRepositoryListener().artifactResolved(remote);
+        listener.mojoSucceeded(
+            new FakeEvent(ExecutionEvent.Type.MojoSucceeded, project, mojo)
+        );
+        listener.sessionEnded(
+            new FakeEvent(ExecutionEvent.Type.SessionEnded, project, null)
+        );
+        Mockito.verify(transfers).transferSucceeded(transfer);
+        Mockito.verify(resolutions).artifactDownloaded(remote);
+        MatcherAssert.assertThat(
+            repo.getTransferListener(), Matchers.sameInstance(transfers)
+        );
+        MatcherAssert.assertThat(
+            repo.getRepositoryListener(), Matchers.sameInstance(resolutions)
+        );
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath(
+                    // @checkstyle LineLength (1 line)
+                    "//step[@id='downloads']/repositories/repository[@url='http://example.com/' and @transfers=1 and @bytes=10 and @failed=0]"
+                ),
+                Matchers.hasXPath(
+                    // @checkstyle LineLength (1 line)
+                    "//step/origins/origin[@id='com.example:core/org.apache.maven.plugins:maven-compiler-plugin:compile:default-compile' and @downloads=1 and @bytes=10 and @hits=0 and @misses=1]"
+                ),
+                Matchers.hasXPath(
+                    // @checkstyle LineLength (1 line)
+                    "//step/origins/origin[@id='com.example:core' and @downloads=0 and @hits=1]"
+                )
+            )
+        );
+    }
+
+    /**
+     * DownloadsListener reports nothing if nothing was resolved.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void reportsNothingWithoutDownloads() throws Exception {
+        final MavenSession session = Mockito.mock(MavenSession.class);
+        Mockito.when(session.getRepositorySession())
+            .thenReturn(new DefaultRepositorySystemSession());
+        final DomEmitter emitter = new DomEmitter();
+        new DownloadsListener(
+            new AbstractExecutionListener(), emitter, session
+        ).sessionEnded(
+            new FakeEvent(
+                ExecutionEvent.Type.SessionEnded, new MavenProject(), null
+            )
+        );
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.not(Matchers.hasXPath("//step[@id='downloads']"))
+        );
+    }
+
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.rultor.snapshot.XemblyLine;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Map;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xembly.Directives;
+
+/**
+ * Test case for {@link Durations}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class DurationsTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * Durations reads steps from a build log.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void readsBuildLog() throws Exception {
+        final File file = this.temp.newFile("build.log");
+        final PrintWriter log = new PrintWriter(
+            new OutputStreamWriter(new FileOutputStream(file), "UTF-8")
+        );
+        log.println("[INFO] Scanning for projects...");
+        final Emitter emitter = new Emitter() {
+            @Override
+            public void emit(final Directives dirs) {
+                log.printf("[INFO] %s\n", new XemblyLine(dirs));
+            }
+            @Override
+            public void emit(final String step, final Directives dirs) {
+                this.emit(dirs);
+            }
+            @Override
+            public void close() {
+                log.close();
+            }
+        };
+        DurationsTest.build(new LiveSteps(emitter));
+        DurationsTest.build(new CompactSteps(emitter, 0L));
+        emitter.close();
+        final Map<String, Long> durations = new Durations(file).read();
+        MatcherAssert.assertThat(
+            durations.keySet(),
+            Matchers.containsInAnyOrder(
+                "com.example:it's/a:b:test:default-test",
+                "com.example:web", "com.example:api"
+            )
+        );
+    }
+
+    /**
+     * Durations reads steps from an XML snapshot.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void readsXmlSnapshot() throws Exception {
+        final DomEmitter emitter = new DomEmitter();
+        DurationsTest.build(new LiveSteps(emitter));
+        emitter.emit(
+            new Directives().xpath("/snapshot/steps").add("step")
+                .attr("id", "critical-path")
+                .add("duration").set("77").up()
+                .add("reactor").add("project").attr("id", "a:b")
+        );
+        final File file = this.temp.newFile("snapshot.xml");
+        TransformerFactory.newInstance().newTransformer().transform(
+            new DOMSource(emitter.snapshot()), new StreamResult(file)
+        );
+        final Map<String, Long> durations = new Durations(file).read();
+        MatcherAssert.assertThat(durations.size(), Matchers.equalTo(3));
+        MatcherAssert.assertThat(
+            durations.get("critical-path"), Matchers.equalTo(77L)
+        );
+    }
+
+    /**
+     * Build two steps, one of them failed.
+     * @param steps Steps to report to
+     */
+    private static void build(final Steps steps) {
+        final Identity first = new Identity(
+            1, "com.example:it's/a:b:test:default-test", "b:test"
+        );
+        final Identity second = new Identity(2, "com.example:web", "web");
+        final Identity third = new Identity(3, "com.example:api", "api");
+        steps.started(first);
+        steps.started(second);
+        steps.succeeded(second);
+        steps.succeeded(first);
+        steps.started(third);
+        steps.failed(third, new IllegalStateException("oops"));
+        steps.close();
+    }
+
+}
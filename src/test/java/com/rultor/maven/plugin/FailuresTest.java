@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.File;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xembly.Directives;
+
+/**
+ * Test case for {@link Failures}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class FailuresTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * Failures reports the same stack trace once.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void reportsSameStackTraceOnce() throws Exception {
+        final File dir = this.temp.newFolder();
+        final Failures failures = new Failures(dir, Failures.CAP);
+        final DomEmitter emitter = new DomEmitter();
+        for (int idx = 0; idx < 3; ++idx) {
+            emitter.emit(
+                new Directives().xpath("/snapshot").add("step")
+                    .attr("id", Integer.toString(idx))
+                    .append(
+                        failures.exception(
+                            FailuresTest.error(String.format("module %d", idx))
+                        )
+                    )
+            );
+        }
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath("/snapshot[count(step/exception)=3]"),
+                Matchers.hasXPath(
+                    "/snapshot[count(step/exception/stacktrace)=1]"
+                ),
+                Matchers.hasXPath(
+                    "/snapshot/step[@id=2]/exception[contains(cause,'2')]"
+                ),
+                Matchers.hasXPath(
+                    // @checkstyle LineLength (1 line)
+                    "/snapshot/step[@id=0]/exception/stacktrace[contains(.,' more')]"
+                )
+            )
+        );
+        MatcherAssert.assertThat(dir.list(), Matchers.arrayWithSize(1));
+    }
+
+    /**
+     * Failures cuts long stack traces and messages.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void cutsLongPayloads() throws Exception {
+        final StringBuilder message = new StringBuilder(0);
+        for (int idx = 0; idx < 10000; ++idx) {
+            message.append("failed test ");
+        }
+        final DomEmitter emitter = new DomEmitter();
+        emitter.emit(
+            new Directives().xpath("/snapshot").add("step").append(
+                new Failures(null, 1000).exception(
+                    FailuresTest.error(message.toString())
+                )
+            )
+        );
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath(
+                    "//exception[string-length(stacktrace) < 1100]"
+                ),
+                Matchers.hasXPath("//exception[string-length(cause) < 1100]"),
+                Matchers.not(Matchers.hasXPath("//exception/file"))
+            )
+        );
+    }
+
+    /**
+     * Make an error with causes, thrown from the same place.
+     * @param message Message of the error
+     * @return Error
+     */
+    private static Throwable error(final String message) {
+        Throwable error;
+        try {
+            throw new IllegalArgumentException(message);
+        } catch (final IllegalArgumentException ex) {
+            error = new IllegalStateException("mojo failed", ex);
+        }
+        return error;
+    }
+
+}
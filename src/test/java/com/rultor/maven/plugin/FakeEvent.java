@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Synthetic execution event.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+final class FakeEvent implements ExecutionEvent {
+
+    /**
+     * Type of the event.
+     */
+    private final transient ExecutionEvent.Type type;
+
+    /**
+     * Project.
+     */
+    private final transient MavenProject project;
+
+    /**
+     * Mojo execution, or NULL.
+     */
+    private final transient MojoExecution mojo;
+
+    /**
+     * Exception, or NULL.
+     */
+    private final transient Exception exception;
+
+    /**
+     * Public ctor.
+     * @param tpe Type of event
+     * @param prj Project
+     * @param exec Mojo execution, or NULL
+     */
+    FakeEvent(final ExecutionEvent.Type tpe, final MavenProject prj,
+        final MojoExecution exec) {
+        this(tpe, prj, exec, null);
+    }
+
+    /**
+     * Public ctor.
+     * @param tpe Type of event
+     * @param prj Project
+     * @param exec Mojo execution, or NULL
+     * @param error Exception, or NULL
+     */
+    FakeEvent(final ExecutionEvent.Type tpe, final MavenProject prj,
+        final MojoExecution exec, final Exception error) {
+        this.type = tpe;
+        this.project = prj;
+        this.mojo = exec;
+        this.exception = error;
+    }
+
+    @Override
+    public ExecutionEvent.Type getType() {
+        return this.type;
+    }
+
+    @Override
+    public MavenSession getSession() {
+        return null;
+    }
+
+    @Override
+    public MavenProject getProject() {
+        return this.project;
+    }
+
+    @Override
+    public MojoExecution getMojoExecution() {
+        return this.mojo;
+    }
+
+    @Override
+    public Exception getException() {
+        return this.exception;
+    }
+
+}
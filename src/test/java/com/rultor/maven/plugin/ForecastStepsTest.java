@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.File;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test case for {@link ForecastSteps}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class ForecastStepsTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * ForecastSteps reports progress from previous build.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void forecastsProgress() throws Exception {
+        final File file = new File(this.temp.newFolder(), "history.txt");
+        final History before = new History(file);
+        before.record("first", 1000L);
+        before.record("second", 3000L);
+        before.save();
+        final DomEmitter emitter = new DomEmitter();
+        final Steps steps = new ForecastSteps(
+            new LiveSteps(emitter), emitter, new History(file)
+        );
+        final Identity first = new Identity(1, "first", "first");
+        final Identity second = new Identity(2, "second", "second");
+        steps.started(first);
+        steps.succeeded(first);
+        steps.started(second);
+        steps.succeeded(second);
+        steps.close();
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath("//step[@id='first' and progress=0]"),
+                Matchers.hasXPath("//step[@id='second' and progress=25]"),
+                Matchers.hasXPath("//step[@id='second' and expected=3000]"),
+                Matchers.hasXPath("//step[@id='second']/eta")
+            )
+        );
+        MatcherAssert.assertThat(
+            new History(file).expected("second"),
+            Matchers.lessThan(3000L)
+        );
+    }
+
+    /**
+     * ForecastSteps reports nothing without history.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void reportsNothingWithoutHistory() throws Exception {
+        final DomEmitter emitter = new DomEmitter();
+        final Steps steps = new ForecastSteps(
+            new LiveSteps(emitter), emitter,
+            new History(new File(this.temp.newFolder(), "absent.txt"))
+        );
+        final Identity step = new Identity(1, "alone", "alone");
+        steps.started(step);
+        steps.succeeded(step);
+        MatcherAssert.assertThat(emitter.emitted(), Matchers.equalTo(2));
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.not(Matchers.hasXPath("//progress"))
+        );
+    }
+
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.File;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test case for {@link History}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class HistoryTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * History averages durations over builds.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void averagesDurations() throws Exception {
+        final File file = new File(this.temp.newFolder(), "a/b/history.txt");
+        final History first = new History(file);
+        MatcherAssert.assertThat(first.total(), Matchers.equalTo(0L));
+        first.record("com.example:core", 1000L);
+        first.record("com.example:web", 3000L);
+        first.save();
+        final History second = new History(file);
+        MatcherAssert.assertThat(second.total(), Matchers.equalTo(4000L));
+        MatcherAssert.assertThat(
+            second.expected("com.example:web"), Matchers.equalTo(3000L)
+        );
+        second.record("com.example:web", 2000L);
+        second.save();
+        final History third = new History(file);
+        MatcherAssert.assertThat(
+            third.expected("com.example:web"), Matchers.equalTo(2700L)
+        );
+        MatcherAssert.assertThat(
+            third.expected("com.example:core"), Matchers.equalTo(1000L)
+        );
+        MatcherAssert.assertThat(third.total(), Matchers.equalTo(2700L));
+    }
+
+    /**
+     * History forgets steps not seen for a long time.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void forgetsOldSteps() throws Exception {
+        final File file = new File(this.temp.newFolder(), "history.txt");
+        final History history = new History(file);
+        history.record("com.example:old module", 1L);
+        history.save();
+        for (int idx = 0; idx < History.AGE; ++idx) {
+            MatcherAssert.assertThat(
+                new History(file).expected("com.example:old module"),
+                Matchers.equalTo(1L)
+            );
+            new History(file).save();
+        }
+        MatcherAssert.assertThat(
+            new History(file).expected("com.example:old module"),
+            Matchers.equalTo(0L)
+        );
+    }
+
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.util.Collections;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Identities}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class IdentitiesTest {
+
+    /**
+     * Identities caches identities of mojo executions.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void cachesMojoIdentities() throws Exception {
+        final Identities ids = new Identities();
+        final MavenProject project = new MavenProject();
+        project.setGroupId("com.example");
+        project.setArtifactId("core");
+        final Plugin plugin = new Plugin();
+        plugin.setGroupId("org.apache.maven.plugins");
+        plugin.setArtifactId("maven-compiler-plugin");
+        final MojoExecution first = new MojoExecution(
+            plugin, "compile", "default-compile"
+        );
+        final MojoExecution second = new MojoExecution(
+            plugin, "testCompile", "default-testCompile"
+        );
+        final Identity ident = ids.mojo(project, first);
+        MatcherAssert.assertThat(
+            ids.mojo(project, first), Matchers.sameInstance(ident)
+        );
+        MatcherAssert.assertThat(
+            ident.label(),
+            Matchers.equalTo("maven-compiler-plugin:compile")
+        );
+        MatcherAssert.assertThat(
+            ident.xpath(),
+            Matchers.equalTo(
+                // @checkstyle LineLength (1 line)
+                "step[@id='com.example:core/org.apache.maven.plugins:maven-compiler-plugin:compile:default-compile']"
+            )
+        );
+        MatcherAssert.assertThat(
+            ids.mojo(project, second).number(),
+            Matchers.not(Matchers.equalTo(ident.number()))
+        );
+    }
+
+    /**
+     * Identities gives unique IDs to executions with the same coordinates.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void makesIdsUnique() throws Exception {
+        final Identities ids = new Identities();
+        final MavenProject project = new MavenProject();
+        project.setGroupId("com.example");
+        project.setArtifactId("web");
+        final Plugin plugin = new Plugin();
+        plugin.setGroupId("org.apache.maven.plugins");
+        plugin.setArtifactId("maven-compiler-plugin");
+        final Identity main = ids.mojo(
+            project, new MojoExecution(plugin, "compile", "default-compile")
+        );
+        final Identity forked = ids.mojo(
+            project, new MojoExecution(plugin, "compile", "default-compile")
+        );
+        MatcherAssert.assertThat(
+            forked.id(), Matchers.equalTo(String.format("%s#2", main.id()))
+        );
+    }
+
+    /**
+     * Identities gives forked executions IDs of mojos which forked them,
+     * no matter in which order executions are seen.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void derivesIdsOfForkedExecutions() throws Exception {
+        final MavenProject project = new MavenProject();
+        project.setGroupId("com.example");
+        project.setArtifactId("lib");
+        final Plugin resources = new Plugin();
+        resources.setGroupId("org.apache.maven.plugins");
+        resources.setArtifactId("maven-resources-plugin");
+        final Plugin source = new Plugin();
+        source.setGroupId("org.apache.maven.plugins");
+        source.setArtifactId("maven-source-plugin");
+        for (int order = 0; order < 2; ++order) {
+            final Identities ids = new Identities();
+            final MojoExecution main = new MojoExecution(
+                resources, "resources", "default-resources"
+            );
+            final MojoExecution forked = new MojoExecution(
+                resources, "resources", "default-resources"
+            );
+            final MojoExecution owner = new MojoExecution(
+                source, "jar", "attach-sources"
+            );
+            owner.setForkedExecutions(
+                "com.example:lib:1.0", Collections.singletonList(forked)
+            );
+            if (order == 0) {
+                ids.mojo(project, main);
+            }
+            ids.mojo(project, owner);
+            MatcherAssert.assertThat(
+                ids.mojo(project, forked).id(),
+                Matchers.equalTo(
+                    // @checkstyle LineLength (1 line)
+                    "com.example:lib/org.apache.maven.plugins:maven-resources-plugin:resources:default-resources@org.apache.maven.plugins:maven-source-plugin:jar:attach-sources"
+                )
+            );
+            MatcherAssert.assertThat(
+                ids.mojo(project, main).id(),
+                Matchers.equalTo(
+                    // @checkstyle LineLength (1 line)
+                    "com.example:lib/org.apache.maven.plugins:maven-resources-plugin:resources:default-resources"
+                )
+            );
+        }
+    }
+
+    /**
+     * Identities caches identities of projects.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void cachesProjectIdentities() throws Exception {
+        final Identities ids = new Identities();
+        final MavenProject project = new MavenProject();
+        project.setGroupId("com.example");
+        project.setArtifactId("core");
+        final Identity ident = ids.project(project);
+        MatcherAssert.assertThat(
+            ident.id(), Matchers.equalTo("com.example:core")
+        );
+        MatcherAssert.assertThat(
+            ident.running(), Matchers.equalTo("core running...")
+        );
+        MatcherAssert.assertThat(
+            ids.project(project), Matchers.sameInstance(ident)
+        );
+    }
+
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Collection;
+import java.util.Collections;
+import org.apache.maven.project.MavenProject;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test case for {@link Inputs}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class InputsTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * Inputs finds unchanged projects and reads only changed files.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void findsUnchangedInputs() throws Exception {
+        final File base = this.temp.newFolder();
+        final File dir = this.temp.newFolder();
+        final File pom = new File(base, "pom.xml");
+        InputsTest.write(pom, "<project/>");
+        final File src = new File(base, "src/main/java/Main.java");
+        InputsTest.write(src, "class Main {}");
+        final MavenProject project = new MavenProject();
+        project.setGroupId("com.example");
+        project.setArtifactId("core");
+        project.setFile(pom);
+        project.addCompileSourceRoot(new File(base, "src/main/java").getPath());
+        final Collection<MavenProject> none = Collections.emptyList();
+        final Inputs.Print first =
+            new Inputs(dir).completed(project, none, false);
+        MatcherAssert.assertThat(first.unchanged(), Matchers.is(false));
+        MatcherAssert.assertThat(first.files(), Matchers.equalTo(2));
+        MatcherAssert.assertThat(first.hashed(), Matchers.equalTo(2));
+        final Inputs inputs = new Inputs(dir);
+        inputs.fingerprint(project);
+        inputs.completed(project, none, true);
+        final Inputs.Print second =
+            new Inputs(dir).completed(project, none, true);
+        MatcherAssert.assertThat(second.unchanged(), Matchers.is(true));
+        MatcherAssert.assertThat(second.hashed(), Matchers.equalTo(0));
+        MatcherAssert.assertThat(
+            second.hash(), Matchers.equalTo(first.hash())
+        );
+        InputsTest.write(src, "class Main { }");
+        final Inputs.Print third =
+            new Inputs(dir).completed(project, none, true);
+        MatcherAssert.assertThat(third.unchanged(), Matchers.is(false));
+        MatcherAssert.assertThat(third.hashed(), Matchers.equalTo(1));
+    }
+
+    /**
+     * Inputs finds projects changed because of their upstream projects.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void findsChangedUpstreamProjects() throws Exception {
+        final File dir = this.temp.newFolder();
+        final File src = new File(this.temp.newFolder(), "Main.java");
+        InputsTest.write(src, "class Main {}");
+        final MavenProject core = InputsTest.project("core", src);
+        final MavenProject web = InputsTest.project(
+            "web", new File(this.temp.newFolder(), "Web.java")
+        );
+        final Collection<MavenProject> none = Collections.emptyList();
+        final Collection<MavenProject> upstream =
+            Collections.singletonList(core);
+        final Inputs first = new Inputs(dir);
+        first.completed(core, none, true);
+        first.completed(web, upstream, true);
+        final Inputs second = new Inputs(dir);
+        second.completed(core, none, true);
+        MatcherAssert.assertThat(
+            second.completed(web, upstream, true).unchanged(),
+            Matchers.is(true)
+        );
+        InputsTest.write(src, "class Main { }");
+        final Inputs third = new Inputs(dir);
+        third.completed(core, none, true);
+        MatcherAssert.assertThat(
+            third.completed(web, upstream, true).unchanged(),
+            Matchers.is(false)
+        );
+        MatcherAssert.assertThat(
+            new Inputs(dir).completed(web, upstream, true).unchanged(),
+            Matchers.is(false)
+        );
+    }
+
+    /**
+     * Inputs ignores generated sources, added to the project by mojos.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void ignoresGeneratedSources() throws Exception {
+        final File base = this.temp.newFolder();
+        final File src = new File(base, "src/Main.java");
+        InputsTest.write(src, "class Main {}");
+        final File gen = new File(base, "target/generated-sources/a/A.java");
+        InputsTest.write(gen, "class A {}");
+        final MavenProject project = InputsTest.project("gen", src);
+        project.getBuild().setDirectory(new File(base, "target").getPath());
+        final Collection<MavenProject> none = Collections.emptyList();
+        final Inputs started = new Inputs(this.temp.newFolder());
+        started.fingerprint(project);
+        project.addCompileSourceRoot(gen.getParent());
+        final Inputs.Print first = started.completed(project, none, true);
+        started.close();
+        final Inputs late = new Inputs(this.temp.newFolder());
+        final Inputs.Print second = late.completed(project, none, true);
+        late.close();
+        MatcherAssert.assertThat(second.files(), Matchers.equalTo(1));
+        MatcherAssert.assertThat(
+            second.hash(), Matchers.equalTo(first.hash())
+        );
+    }
+
+    /**
+     * Inputs reads large files, memory-mapped.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void hashesLargeFiles() throws Exception {
+        final File dir = this.temp.newFolder();
+        final File src = new File(this.temp.newFolder(), "data.bin");
+        final RandomAccessFile raf = new RandomAccessFile(src, "rw");
+        try {
+            raf.setLength(3L << 20);
+        } finally {
+            raf.close();
+        }
+        final MavenProject project = InputsTest.project("data", src);
+        final Collection<MavenProject> none = Collections.emptyList();
+        final Inputs.Print first =
+            new Inputs(dir).completed(project, none, true);
+        MatcherAssert.assertThat(first.hashed(), Matchers.equalTo(1));
+        final RandomAccessFile again = new RandomAccessFile(src, "rw");
+        try {
+            again.seek((3L << 20) - 1L);
+            again.write(1);
+        } finally {
+            again.close();
+        }
+        MatcherAssert.assertThat(src.setLastModified(0L), Matchers.is(true));
+        final Inputs.Print second =
+            new Inputs(dir).completed(project, none, true);
+        MatcherAssert.assertThat(second.hashed(), Matchers.equalTo(1));
+        MatcherAssert.assertThat(
+            second.hash(), Matchers.not(Matchers.equalTo(first.hash()))
+        );
+    }
+
+    /**
+     * Make a project with one source directory.
+     * @param name Artifact ID
+     * @param src File in its source directory
+     * @return Project
+     */
+    private static MavenProject project(final String name, final File src) {
+        final MavenProject project = new MavenProject();
+        project.setGroupId("com.example");
+        project.setArtifactId(name);
+        project.addCompileSourceRoot(src.getParent());
+        return project;
+    }
+
+    /**
+     * Write text to a file.
+     * @param file The file
+     * @param text The text
+     * @throws IOException If fails
+     */
+    private static void write(final File file, final String text)
+        throws IOException {
+        file.getParentFile().mkdirs();
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(text.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+}
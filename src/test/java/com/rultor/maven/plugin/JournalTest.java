@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+
+/**
+ * Test case for {@link Journal} and {@link JournalXml}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class JournalTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * Journal records events from many threads and reads them back.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void recordsAndReadsEvents() throws Exception {
+        final File file = new File(this.temp.newFolder(), "events.bin");
+        final Journal journal = new Journal(file);
+        final int threads = 4;
+        final int total = 10000;
+        final ExecutorService svc = Executors.newFixedThreadPool(threads);
+        for (int thread = 0; thread < threads; ++thread) {
+            svc.submit(
+                new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int idx = 0; idx < total; ++idx) {
+                            journal.append(
+                                "MojoStarted",
+                                String.format("g:a/step-%d", idx % 10),
+                                Thread.currentThread().getName(),
+                                System.nanoTime()
+                            );
+                        }
+                        return null;
+                    }
+                }
+            );
+        }
+        svc.shutdown();
+        MatcherAssert.assertThat(
+            svc.awaitTermination(1L, TimeUnit.MINUTES),
+            Matchers.is(true)
+        );
+        journal.close();
+        final ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        new JournalXml(file).print(xml);
+        final Document dom = DocumentBuilderFactory.newInstance()
+            .newDocumentBuilder()
+            .parse(new ByteArrayInputStream(xml.toByteArray()));
+        MatcherAssert.assertThat(
+            dom,
+            Matchers.allOf(
+                Matchers.hasXPath(
+                    String.format(
+                        "/journal[count(event)=%d]", threads * total
+                    )
+                ),
+                Matchers.hasXPath(
+                    "/journal/event[@type='MojoStarted' and @step='g:a/step-7']"
+                )
+            )
+        );
+    }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link LiveSteps}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class LiveStepsTest {
+
+    /**
+     * LiveSteps adds a step on start and patches it on finish.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void addsAndPatchesSteps() throws Exception {
+        final DomEmitter emitter = new DomEmitter();
+        final Steps steps = new LiveSteps(emitter);
+        final Identity step = new Identity(0, "g:a", "a");
+        steps.started(step);
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.hasXPath("//step[@id='g:a' and summary='a running...']")
+        );
+        MatcherAssert.assertThat(
+            steps.succeeded(step), Matchers.notNullValue()
+        );
+        steps.close();
+        MatcherAssert.assertThat(emitter.emitted(), Matchers.equalTo(2));
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath("//step[count(summary)=1 and summary='a']"),
+                Matchers.hasXPath("//step[start and finish and duration]")
+            )
+        );
+    }
+
+    /**
+     * LiveSteps ignores finish of a step which never started.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void ignoresUnknownSteps() throws Exception {
+        final DomEmitter emitter = new DomEmitter();
+        MatcherAssert.assertThat(
+            new LiveSteps(emitter).succeeded(new Identity(1, "x", "x")),
+            Matchers.nullValue()
+        );
+        MatcherAssert.assertThat(emitter.emitted(), Matchers.equalTo(0));
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link MeteredSteps}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ */
+public final class MeteredStepsTest {
+
+    /**
+     * MeteredSteps reports usage of completed steps.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void reportsUsage() throws Exception {
+        final DomEmitter emitter = new DomEmitter();
+        final Steps steps = new MeteredSteps(new LiveSteps(emitter), emitter);
+        final Identity busy = new Identity(1, "busy", "busy");
+        final Identity broken = new Identity(2, "broken", "broken");
+        steps.started(busy);
+        steps.started(broken);
+        final List<String> garbage = new ArrayList<String>(0);
+        for (int idx = 0; idx < 100000; ++idx) {
+            garbage.add(Integer.toString(idx));
+        }
+        steps.succeeded(busy);
+        steps.failed(broken, new IllegalArgumentException("broken"));
+        steps.close();
+        MatcherAssert.assertThat(garbage, Matchers.not(Matchers.empty()));
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath("//step[@id='busy']/usage[cpu>=0]"),
+                Matchers.hasXPath("//step[@id='busy']/usage/allocated"),
+                Matchers.hasXPath("//step[@id='busy']/usage/gc/count"),
+                Matchers.hasXPath("//step[@id='broken']/usage/gc/time")
+            )
+        );
+    }
+
+}
@@ -0,0 +1,348 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.maven.execution.AbstractExecutionListener;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test case for {@link OtelListener}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class OtelListenerTest {
+
+    /**
+     * ID, parent and name of a span in OTLP/JSON.
+     */
+    private static final Pattern SPAN = Pattern.compile(
+        // @checkstyle LineLength (1 line)
+        "\"spanId\":\"(\\w+)\"(?:,\"parentSpanId\":\"(\\w+)\")?,\"name\":\"([^\"]+)\""
+    );
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * OtelListener posts nested spans to an OTLP/HTTP collector.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void postsSpansToCollector() throws Exception {
+        final Queue<String> bodies = new ConcurrentLinkedQueue<String>();
+        final HttpServer server = HttpServer.create(
+            new InetSocketAddress("127.0.0.1", 0), 0
+        );
+        server.createContext(
+            "/v1/traces",
+            new HttpHandler() {
+                @Override
+                public void handle(final HttpExchange exchange)
+                    throws IOException {
+                    bodies.add(
+                        OtelListenerTest.read(exchange.getRequestBody())
+                    );
+                    exchange.sendResponseHeaders(200, -1L);
+                    exchange.close();
+                }
+            }
+        );
+        server.start();
+        try {
+            OtelListenerTest.replay(
+                new OtelListener(
+                    new AbstractExecutionListener(),
+                    new OtlpExporter(
+                        String.format(
+                            "http://127.0.0.1:%d",
+                            server.getAddress().getPort()
+                        ),
+                        16
+                    ),
+                    "build"
+                )
+            );
+        } finally {
+            server.stop(0);
+        }
+        final StringBuilder all = new StringBuilder(0);
+        for (final String body : bodies) {
+            all.append(body);
+        }
+        final Map<String, String[]> spans = OtelListenerTest.spans(all);
+        MatcherAssert.assertThat(spans.size(), Matchers.equalTo(4));
+        MatcherAssert.assertThat(
+            spans.get("maven-compiler-plugin:compile")[1],
+            Matchers.equalTo(spans.get("com.example:core")[0])
+        );
+        MatcherAssert.assertThat(
+            spans.get("maven-surefire-plugin:test")[1],
+            Matchers.equalTo(spans.get("com.example:core")[0])
+        );
+        MatcherAssert.assertThat(
+            spans.get("com.example:core")[1],
+            Matchers.equalTo(spans.get("build")[0])
+        );
+        MatcherAssert.assertThat(
+            all.toString(),
+            Matchers.allOf(
+                Matchers.containsString(
+                    // @checkstyle LineLength (1 line)
+                    "{\"key\":\"maven.phase\",\"value\":{\"stringValue\":\"compile\"}}"
+                ),
+                Matchers.containsString("\"code\":2,\"message\":\"tests\"")
+            )
+        );
+    }
+
+    /**
+     * OtelListener writes spans to a file.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void writesSpansToFile() throws Exception {
+        final File file = new File(this.temp.newFolder(), "a/spans.json");
+        OtelListenerTest.replay(
+            new OtelListener(
+                new AbstractExecutionListener(),
+                new OtlpExporter(file.getPath(), 16),
+                "build"
+            )
+        );
+        final InputStream input = new FileInputStream(file);
+        try {
+            MatcherAssert.assertThat(
+                OtelListenerTest.spans(OtelListenerTest.read(input)).size(),
+                Matchers.equalTo(4)
+            );
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * OtelListener nests forks inside mojos that requested them, and
+     * mojos of forked projects inside these projects.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void nestsForksInsideMojos() throws Exception {
+        final File file = new File(this.temp.newFolder(), "forks.json");
+        final ExecutionListener listener = new OtelListener(
+            new AbstractExecutionListener(),
+            new OtlpExporter(file.getPath(), 16),
+            "build"
+        );
+        final MavenProject project = new MavenProject();
+        project.setGroupId("com.example");
+        project.setArtifactId("core");
+        final MavenProject fork = new MavenProject();
+        fork.setGroupId("com.example");
+        fork.setArtifactId("forked");
+        final Plugin source = new Plugin();
+        source.setArtifactId("maven-source-plugin");
+        final MojoExecution jar = new MojoExecution(source, "jar", "sources");
+        final Plugin antrun = new Plugin();
+        antrun.setArtifactId("maven-antrun-plugin");
+        final MojoExecution run = new MojoExecution(antrun, "run", "gen");
+        listener.projectStarted(
+            new FakeEvent(ExecutionEvent.Type.ProjectStarted, project, null)
+        );
+        listener.forkStarted(
+            new FakeEvent(ExecutionEvent.Type.ForkStarted, project, jar)
+        );
+        listener.forkedProjectStarted(
+            new FakeEvent(ExecutionEvent.Type.ForkedProjectStarted, fork, jar)
+        );
+        listener.mojoStarted(
+            new FakeEvent(ExecutionEvent.Type.MojoStarted, fork, run)
+        );
+        listener.mojoSucceeded(
+            new FakeEvent(ExecutionEvent.Type.MojoSucceeded, fork, run)
+        );
+        listener.forkedProjectSucceeded(
+            new FakeEvent(
+                ExecutionEvent.Type.ForkedProjectSucceeded, fork, jar
+            )
+        );
+        listener.forkSucceeded(
+            new FakeEvent(ExecutionEvent.Type.ForkSucceeded, project, jar)
+        );
+        listener.mojoStarted(
+            new FakeEvent(ExecutionEvent.Type.MojoStarted, project, jar)
+        );
+        listener.mojoSucceeded(
+            new FakeEvent(ExecutionEvent.Type.MojoSucceeded, project, jar)
+        );
+        listener.projectSucceeded(
+            new FakeEvent(ExecutionEvent.Type.ProjectSucceeded, project, null)
+        );
+        listener.sessionEnded(
+            new FakeEvent(ExecutionEvent.Type.SessionEnded, project, null)
+        );
+        final InputStream input = new FileInputStream(file);
+        final Map<String, String[]> spans;
+        try {
+            spans = OtelListenerTest.spans(OtelListenerTest.read(input));
+        } finally {
+            input.close();
+        }
+        MatcherAssert.assertThat(spans.size(), Matchers.equalTo(6));
+        MatcherAssert.assertThat(
+            spans.get("maven-source-plugin:jar")[1],
+            Matchers.equalTo(spans.get("com.example:core")[0])
+        );
+        MatcherAssert.assertThat(
+            spans.get("fork maven-source-plugin:jar")[1],
+            Matchers.equalTo(spans.get("maven-source-plugin:jar")[0])
+        );
+        MatcherAssert.assertThat(
+            spans.get("com.example:forked")[1],
+            Matchers.equalTo(spans.get("fork maven-source-plugin:jar")[0])
+        );
+        MatcherAssert.assertThat(
+            spans.get("maven-antrun-plugin:run")[1],
+            Matchers.equalTo(spans.get("com.example:forked")[0])
+        );
+    }
+
+    /**
+     * Replay a session with one project and two mojos, one failed.
+     * @param listener Listener to feed
+     */
+    private static void replay(final ExecutionListener listener) {
+        final MavenProject project = new MavenProject();
+        project.setGroupId("com.example");
+        project.setArtifactId("core");
+        final Plugin compiler = new Plugin();
+        compiler.setArtifactId("maven-compiler-plugin");
+        final MojoExecution compile = new MojoExecution(
+            compiler, "compile", "default-compile"
+        );
+        compile.setLifecyclePhase("compile");
+        final Plugin surefire = new Plugin();
+        surefire.setArtifactId("maven-surefire-plugin");
+        final MojoExecution test = new MojoExecution(
+            surefire, "test", "default-test"
+        );
+        listener.projectStarted(
+            new FakeEvent(ExecutionEvent.Type.ProjectStarted, project, null)
+        );
+        listener.mojoStarted(
+            new FakeEvent(ExecutionEvent.Type.MojoStarted, project, compile)
+        );
+        listener.mojoSucceeded(
+            new FakeEvent(ExecutionEvent.Type.MojoSucceeded, project, compile)
+        );
+        listener.mojoStarted(
+            new FakeEvent(ExecutionEvent.Type.MojoStarted, project, test)
+        );
+        listener.mojoFailed(
+            new FakeEvent(
+                ExecutionEvent.Type.MojoFailed, project, test,
+                new MojoExecutionException("tests")
+            )
+        );
+        listener.projectFailed(
+            new FakeEvent(ExecutionEvent.Type.ProjectFailed, project, null)
+        );
+        listener.sessionEnded(
+            new FakeEvent(ExecutionEvent.Type.SessionEnded, project, null)
+        );
+    }
+
+    /**
+     * Spans found in JSON.
+     * @param json JSON
+     * @return ID and parent ID, by name
+     */
+    private static Map<String, String[]> spans(final CharSequence json) {
+        final Map<String, String[]> spans = new HashMap<String, String[]>(0);
+        final Matcher matcher = OtelListenerTest.SPAN.matcher(json);
+        while (matcher.find()) {
+            spans.put(
+                matcher.group(3),
+                new String[] {matcher.group(1), matcher.group(2)}
+            );
+        }
+        return spans;
+    }
+
+    /**
+     * Read the stream.
+     * @param input Stream
+     * @return Text
+     * @throws IOException If fails
+     */
+    private static String read(final InputStream input) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buf = new byte[4096];
+        while (true) {
+            final int len = input.read(buf);
+            if (len < 0) {
+                break;
+            }
+            out.write(buf, 0, len);
+        }
+        return out.toString("UTF-8");
+    }
+
+}
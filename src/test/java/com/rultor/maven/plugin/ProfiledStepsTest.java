@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test case for {@link ProfiledSteps}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class ProfiledStepsTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * ProfiledSteps samples slow steps only.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void profilesSlowSteps() throws Exception {
+        final DomEmitter emitter = new DomEmitter();
+        final File dir = this.temp.newFolder();
+        final Steps steps = new ProfiledSteps(
+            new LiveSteps(emitter), emitter, dir, 100L, 1L
+        );
+        final Identity fast = new Identity(1, "a:b/c:d:fast:e", "fast");
+        final Identity slow = new Identity(2, "a:b/c:d:slow:e", "slow");
+        steps.started(fast);
+        steps.succeeded(fast);
+        steps.started(slow);
+        ProfiledStepsTest.spin(TimeUnit.MILLISECONDS.toNanos(500L));
+        steps.succeeded(slow);
+        steps.close();
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath(
+                    "//step[@id='a:b/c:d:slow:e']/profile/frame"
+                ),
+                Matchers.not(
+                    Matchers.hasXPath("//step[@id='a:b/c:d:fast:e']/profile")
+                )
+            )
+        );
+        MatcherAssert.assertThat(
+            new File(dir, "a_b_c_d_slow_e.folded").length(),
+            Matchers.greaterThan(0L)
+        );
+    }
+
+    /**
+     * Burn CPU.
+     * @param nanos How long
+     * @return Something, to keep the loop
+     */
+    private static long spin(final long nanos) {
+        final long start = System.nanoTime();
+        long sum = 0L;
+        while (System.nanoTime() - start < nanos) {
+            sum += Long.toString(sum).length();
+        }
+        return sum;
+    }
+
+}
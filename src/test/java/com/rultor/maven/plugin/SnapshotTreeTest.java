@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.xembly.Directives;
+
+/**
+ * Test case for {@link SnapshotTree} and {@link SnapshotEmitter}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class SnapshotTreeTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * SnapshotTree builds the same snapshot as DOM.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void buildsSameSnapshotAsDom() throws Exception {
+        final DomEmitter dom = new DomEmitter();
+        final SnapshotTree tree = new SnapshotTree();
+        final Emitter emitter = new Emitter() {
+            @Override
+            public void emit(final Directives dirs) {
+                dom.emit(dirs);
+                tree.apply(dirs);
+            }
+            @Override
+            public void emit(final String step, final Directives dirs) {
+                dom.emit(dirs);
+                tree.apply(step, dirs);
+            }
+            @Override
+            public void close() {
+                dom.close();
+            }
+        };
+        SnapshotTreeTest.build(new LiveSteps(emitter), "live");
+        SnapshotTreeTest.build(new CompactSteps(emitter, 1L), "compact");
+        emitter.emit(
+            new Directives().xpath("/snapshot/steps").add("step")
+                .attr("id", "critical-path")
+                .add("reactor").add("project").attr("id", "a:b").up()
+                .add("project").attr("id", "a:c")
+        );
+        final ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        tree.print(xml);
+        final Document doc = DocumentBuilderFactory.newInstance()
+            .newDocumentBuilder()
+            .parse(new ByteArrayInputStream(xml.toByteArray()));
+        doc.normalizeDocument();
+        dom.snapshot().normalizeDocument();
+        MatcherAssert.assertThat(
+            doc.getDocumentElement().isEqualNode(
+                dom.snapshot().getDocumentElement()
+            ),
+            Matchers.is(true)
+        );
+    }
+
+    /**
+     * SnapshotTree finds steps added together by their IDs.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void modifiesStepsAddedTogether() throws Exception {
+        final SnapshotTree tree = new SnapshotTree();
+        final Directives dirs = new Directives();
+        for (int idx = 0; idx < 3; ++idx) {
+            dirs.xpath("/snapshot").strict(1)
+                .addIf("steps").add("step")
+                .attr("id", String.format("s%d", idx))
+                .add("summary").set("running");
+        }
+        tree.apply(dirs);
+        tree.apply(
+            "s1",
+            new Directives().xpath("/snapshot/steps").strict(1)
+                .xpath(Identity.xpath("s1"))
+                .xpath("summary").set("done").up()
+                .add("duration").set("1")
+        );
+        final ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        tree.print(xml);
+        MatcherAssert.assertThat(
+            DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(xml.toByteArray())),
+            Matchers.allOf(
+                Matchers.hasXPath("/snapshot/steps[count(step)=3]"),
+                Matchers.hasXPath("/snapshot/steps/step[2][@id='s1']"),
+                Matchers.hasXPath("//step[@id='s1' and duration=1]"),
+                Matchers.hasXPath("//step[@id='s1']/summary[.='done']"),
+                Matchers.hasXPath("//step[@id='s2']/summary[.='running']")
+            )
+        );
+    }
+
+    /**
+     * SnapshotEmitter saves snapshot to file when closed.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void savesSnapshotWhenClosed() throws Exception {
+        final File file = new File(this.temp.newFolder(), "a/snapshot.xml");
+        final Emitter emitter = new SnapshotEmitter(
+            new DomEmitter(), file, 0L
+        );
+        SnapshotTreeTest.build(new LiveSteps(emitter), "file");
+        MatcherAssert.assertThat(file.exists(), Matchers.is(false));
+        emitter.close();
+        MatcherAssert.assertThat(
+            DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(file),
+            Matchers.hasXPath("/snapshot/steps[count(step)=3]")
+        );
+    }
+
+    /**
+     * Build three steps.
+     * @param steps Steps to report to
+     * @param prefix Prefix of step IDs
+     * @throws Exception If fails
+     */
+    private static void build(final Steps steps, final String prefix)
+        throws Exception {
+        final Identity first = new Identity(
+            1, String.format("%s/it's", prefix), "first"
+        );
+        final Identity second = new Identity(
+            2, String.format("%s/second", prefix), "second"
+        );
+        final Identity third = new Identity(
+            3, String.format("%s/third", prefix), "third"
+        );
+        steps.started(first);
+        steps.started(second);
+        Thread.sleep(50L);
+        steps.succeeded(second);
+        steps.failed(first, new IllegalStateException("<oops> & \"quotes\""));
+        steps.skipped(third);
+        steps.close();
+    }
+
+}
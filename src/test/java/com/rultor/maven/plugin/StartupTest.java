@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Profile;
+import org.apache.maven.project.MavenProject;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Startup}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class StartupTest {
+
+    /**
+     * Startup reports boot and discovery when events are not seen.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void reportsDiscoveryUntilInjection() throws Exception {
+        final Model model = new Model();
+        model.setGroupId("com.example");
+        model.setArtifactId("core");
+        final DependencyManagement bom = new DependencyManagement();
+        bom.setDependencies(
+            Arrays.asList(new Dependency(), new Dependency())
+        );
+        model.setDependencyManagement(bom);
+        model.addDependency(new Dependency());
+        final MavenProject core = new MavenProject(model);
+        core.setActiveProfiles(Collections.singletonList(new Profile()));
+        final MavenProject web = new MavenProject();
+        web.setGroupId("com.example");
+        web.setArtifactId("web");
+        final Startup startup = new Startup(
+            1000L, 1500L, 5500L, Arrays.asList(core, web)
+        );
+        startup.project(9000L);
+        final DomEmitter emitter = new DomEmitter();
+        emitter.emit(startup.directives());
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath("//step[@id='startup' and duration=4500]"),
+                Matchers.hasXPath(
+                    "//step/startup/phase[@id='boot' and @duration=500]"
+                ),
+                Matchers.hasXPath(
+                    "//step/startup/phase[@id='discovery' and @duration=4000]"
+                ),
+                Matchers.not(
+                    Matchers.hasXPath("//step/startup/phase[@id='scheduling']")
+                )
+            )
+        );
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath(
+                    "//step/projects[@count=2 and @average=2000]"
+                ),
+                Matchers.hasXPath(
+                    // @checkstyle LineLength (1 line)
+                    "//projects/project[@id='com.example:core' and @profiles=1 and @managed=2 and @dependencies=1]"
+                ),
+                Matchers.hasXPath(
+                    "//projects/project[@id='com.example:web' and @managed=0]"
+                )
+            )
+        );
+    }
+
+    /**
+     * Startup reports scheduling when the session start is seen.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void reportsSchedulingWhenSessionSeen() throws Exception {
+        final Startup startup = new Startup(
+            1000L, 0L, 9000L, Collections.<MavenProject>emptyList()
+        );
+        startup.discovered(2000L);
+        startup.started(5000L);
+        startup.project(5300L);
+        startup.project(7000L);
+        final DomEmitter emitter = new DomEmitter();
+        emitter.emit(startup.directives());
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath("//step[@id='startup' and duration=4300]"),
+                Matchers.hasXPath(
+                    "//step/startup/phase[@id='discovery' and @duration=3000]"
+                ),
+                Matchers.hasXPath(
+                    "//step/startup/phase[@id='scheduling' and @duration=300]"
+                ),
+                Matchers.hasXPath("//step/projects[@count=0]")
+            )
+        );
+    }
+
+}
@@ -29,11 +29,28 @@
  */
 package com.rultor.maven.plugin;
 
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.execution.AbstractExecutionListener;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.ExecutionEvent;
 import org.apache.maven.execution.ExecutionListener;
 import org.apache.maven.execution.MavenExecutionRequest;
 import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
 /**
@@ -41,9 +58,22 @@ import org.mockito.Mockito;
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @since 0.1
+ * @checkstyle MultipleStringLiterals (500 lines)
  */
 public final class StepsMojoTest {
 
+    /**
+     * Sessions to run in one JVM.
+     */
+    private static final int SESSIONS = 400;
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
     /**
      * StepsMojo will override default ExecutionListener.
      * @throws Exception If something is wrong
@@ -66,4 +96,176 @@ public final class StepsMojoTest {
         );
     }
 
+    /**
+     * StepsMojo injects its listeners once per session and removes them
+     * when the session ends, keeping no state between sessions, like in
+     * a build daemon, where the same mojo and request live long, and
+     * leaving no threads behind. Parameters have their default values,
+     * so the test runs the same listeners as a real build.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void keepsNoStateBetweenSessions() throws Exception {
+        final StepsMojo mojo = new StepsMojo();
+        final File dir = this.temp.newFolder();
+        StepsMojoTest.defaults(mojo, dir);
+        final MavenExecutionRequest request =
+            new DefaultMavenExecutionRequest();
+        final ExecutionListener original = new AbstractExecutionListener();
+        request.setExecutionListener(original);
+        final MavenSession session = Mockito.mock(MavenSession.class);
+        Mockito.when(session.getRequest()).thenReturn(request);
+        final MavenProject project = new MavenProject();
+        project.setGroupId("com.example");
+        project.setArtifactId("soak");
+        mojo.setProject(project);
+        mojo.setSession(session);
+        long warm = 0L;
+        for (int idx = 0; idx < StepsMojoTest.SESSIONS; ++idx) {
+            mojo.execute();
+            mojo.execute();
+            MatcherAssert.assertThat(
+                ((SessionListener) request.getExecutionListener()).original(),
+                Matchers.sameInstance(original)
+            );
+            StepsMojoTest.session(request.getExecutionListener(), project);
+            MatcherAssert.assertThat(
+                request.getExecutionListener(),
+                Matchers.sameInstance(original)
+            );
+            if (idx == StepsMojoTest.SESSIONS / 4) {
+                warm = StepsMojoTest.used();
+            }
+        }
+        MatcherAssert.assertThat(
+            StepsMojoTest.used() - warm,
+            Matchers.lessThan(8L << 20)
+        );
+        MatcherAssert.assertThat(
+            StepsMojoTest.threads(), Matchers.<String>empty()
+        );
+        MatcherAssert.assertThat(
+            new File(dir, "rultor-snapshot.xml").exists(),
+            Matchers.is(true)
+        );
+    }
+
+    /**
+     * Set parameters of the mojo to their default values, the way Maven
+     * injects them.
+     * @param mojo The mojo
+     * @param dir Build directory of the project
+     * @throws Exception If fails
+     */
+    private static void defaults(final StepsMojo mojo, final File dir)
+        throws Exception {
+        final Map<String, Object> params = new HashMap<String, Object>(0);
+        params.put("skip", false);
+        params.put("async", false);
+        params.put("capacity", 4096);
+        params.put("overflow", "block");
+        params.put("compact", false);
+        params.put("heartbeat", 60);
+        params.put("journal", false);
+        params.put("events", new File(dir, "rultor-events.bin"));
+        params.put("history", false);
+        params.put("durations", new File(dir, "m2/soak.txt"));
+        params.put("usage", false);
+        params.put("profile", false);
+        params.put("threshold", 30);
+        params.put("interval", 20);
+        params.put("profiles", new File(dir, "rultor-profiles"));
+        params.put("watchdog", true);
+        params.put("soft", 600);
+        params.put("hard", 1800);
+        params.put("dumps", dir);
+        params.put("cap", 16384);
+        params.put("failures", new File(dir, "rultor-failures"));
+        params.put("snapshot", true);
+        params.put("xml", new File(dir, "rultor-snapshot.xml"));
+        params.put("checkpoint", 0);
+        params.put("trace", false);
+        params.put("timeline", new File(dir, "rultor-trace.json"));
+        params.put("otlp", "");
+        params.put("spans", 4096);
+        params.put("detail", 60);
+        params.put("top", 10);
+        params.put("breakdown", true);
+        params.put("downloads", true);
+        params.put("startup", true);
+        params.put("fingerprint", false);
+        params.put("prints", new File(dir, "m2/soak-inputs"));
+        for (final Map.Entry<String, Object> param : params.entrySet()) {
+            final Field field =
+                StepsMojo.class.getDeclaredField(param.getKey());
+            field.setAccessible(true);
+            field.set(mojo, param.getValue());
+        }
+    }
+
+    /**
+     * Names of live threads of the plugin, after they had a second
+     * to finish.
+     * @return Names
+     * @throws InterruptedException If interrupted
+     */
+    private static Collection<String> threads() throws InterruptedException {
+        final Collection<String> names = new LinkedList<String>();
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("rultor-")) {
+                thread.join(TimeUnit.SECONDS.toMillis(1L));
+                if (thread.isAlive()) {
+                    names.add(thread.getName());
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Events of one session, with a failed mojo.
+     * @param listener Listener to feed
+     * @param project The project
+     */
+    private static void session(final ExecutionListener listener,
+        final MavenProject project) {
+        final Plugin plugin = new Plugin();
+        plugin.setGroupId("org.apache.maven.plugins");
+        plugin.setArtifactId("maven-any-plugin");
+        final MojoExecution good = new MojoExecution(plugin, "good", "a");
+        final MojoExecution bad = new MojoExecution(plugin, "bad", "b");
+        listener.mojoStarted(
+            new FakeEvent(ExecutionEvent.Type.MojoStarted, project, good)
+        );
+        listener.mojoSucceeded(
+            new FakeEvent(ExecutionEvent.Type.MojoSucceeded, project, good)
+        );
+        listener.mojoStarted(
+            new FakeEvent(ExecutionEvent.Type.MojoStarted, project, bad)
+        );
+        listener.mojoFailed(
+            new FakeEvent(
+                ExecutionEvent.Type.MojoFailed, project, bad,
+                new MojoExecutionException("failed")
+            )
+        );
+        listener.sessionEnded(
+            new FakeEvent(ExecutionEvent.Type.SessionEnded, project, null)
+        );
+    }
+
+    /**
+     * Heap used after garbage collection.
+     * @return Bytes
+     * @throws InterruptedException If interrupted
+     */
+    private static long used() throws InterruptedException {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int idx = 0; idx < 3; ++idx) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
 }
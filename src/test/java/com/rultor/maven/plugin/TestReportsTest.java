@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xembly.Directives;
+
+/**
+ * Test case for {@link TestReports}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class TestReportsTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * TestReports reports slowest tests of surefire.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void reportsSlowestTests() throws Exception {
+        final File target = this.temp.newFolder();
+        final MavenProject project = new MavenProject();
+        project.getBuild().setDirectory(target.getPath());
+        final Plugin plugin = new Plugin();
+        plugin.setGroupId("org.apache.maven.plugins");
+        plugin.setArtifactId("maven-surefire-plugin");
+        final MojoExecution mojo = new MojoExecution(
+            plugin, "test", "default-test"
+        );
+        final Identity step = new Identity(1, "core/test", "test");
+        final DomEmitter emitter = new DomEmitter();
+        emitter.emit(
+            new Directives().xpath("/snapshot").add("steps")
+                .add("step").attr("id", step.id())
+        );
+        final TestReports reports = new TestReports(emitter);
+        reports.started(mojo);
+        final File dir = new File(target, "surefire-reports");
+        dir.mkdirs();
+        final OutputStream out = new FileOutputStream(
+            new File(dir, "TEST-com.example.FooTest.xml")
+        );
+        try {
+            out.write(
+                // @checkstyle LineLength (1 line)
+                "<testsuite name='com.example.FooTest' time='1,200.5'><testcase classname='com.example.FooTest' name='slow' time='1,200.0'/><testcase classname='com.example.FooTest' name='broken' time='0.5'><failure/></testcase></testsuite>"
+                    .getBytes("UTF-8")
+            );
+        } finally {
+            out.close();
+        }
+        reports.report(step, project, mojo);
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath(
+                    // @checkstyle LineLength (1 line)
+                    "//step[@id='core/test']/tests[@classes=1 and @total=2 and @failed=1 and @time=1200500]"
+                ),
+                Matchers.hasXPath(
+                    "//tests/class[@name='com.example.FooTest']"
+                ),
+                Matchers.hasXPath(
+                    "//tests/test[1][@name='slow' and @time=1200000]"
+                ),
+                Matchers.hasXPath(
+                    "//tests/test[@name='broken' and @status='failed']"
+                )
+            )
+        );
+    }
+
+    /**
+     * TestReports doesn't read reports when it's disabled.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void ignoresReportsWhenDisabled() throws Exception {
+        final File target = this.temp.newFolder();
+        final MavenProject project = new MavenProject();
+        project.getBuild().setDirectory(target.getPath());
+        final Plugin plugin = new Plugin();
+        plugin.setGroupId("org.apache.maven.plugins");
+        plugin.setArtifactId("maven-surefire-plugin");
+        final MojoExecution mojo = new MojoExecution(
+            plugin, "test", "default-test"
+        );
+        final DomEmitter emitter = new DomEmitter();
+        final TestReports reports = new TestReports(emitter, false);
+        reports.started(mojo);
+        final File dir = new File(target, "surefire-reports");
+        dir.mkdirs();
+        final OutputStream out = new FileOutputStream(
+            new File(dir, "TEST-com.example.BarTest.xml")
+        );
+        try {
+            out.write("<testsuite name='Bar' time='1'/>".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        reports.report(new Identity(1, "core/test", "test"), project, mojo);
+        MatcherAssert.assertThat(emitter.emitted(), Matchers.equalTo(0));
+    }
+
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import org.apache.maven.execution.AbstractExecutionListener;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test case for {@link TraceListener} and {@link Trace}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class TraceListenerTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * TraceListener writes nested spans and failures.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void writesNestedSpans() throws Exception {
+        final File file = new File(this.temp.newFolder(), "trace.json");
+        final ExecutionListener listener = new TraceListener(
+            new AbstractExecutionListener(), new Trace(file)
+        );
+        final MavenProject project = new MavenProject();
+        project.setGroupId("com.example");
+        project.setArtifactId("core");
+        final Plugin plugin = new Plugin();
+        plugin.setArtifactId("maven-surefire-plugin");
+        final MojoExecution mojo = new MojoExecution(
+            plugin, "test", "default-test"
+        );
+        listener.projectStarted(
+            new FakeEvent(ExecutionEvent.Type.ProjectStarted, project, null)
+        );
+        listener.mojoStarted(
+            new FakeEvent(ExecutionEvent.Type.MojoStarted, project, mojo)
+        );
+        listener.mojoFailed(
+            new FakeEvent(ExecutionEvent.Type.MojoFailed, project, mojo)
+        );
+        listener.projectFailed(
+            new FakeEvent(ExecutionEvent.Type.ProjectFailed, project, null)
+        );
+        MatcherAssert.assertThat(
+            TraceListenerTest.read(file),
+            Matchers.containsString("\"name\":\"com.example:core\"")
+        );
+        listener.sessionEnded(
+            new FakeEvent(ExecutionEvent.Type.SessionEnded, null, null)
+        );
+        final String json = TraceListenerTest.read(file);
+        MatcherAssert.assertThat(
+            json,
+            Matchers.allOf(
+                Matchers.startsWith("[\n{\"name\":\"thread_name\""),
+                Matchers.containsString(
+                    "{\"name\":\"maven-surefire-plugin:test (default-test)\""
+                ),
+                Matchers.containsString("\"cat\":\"failure\",\"ph\":\"i\""),
+                Matchers.endsWith("}\n]\n")
+            )
+        );
+        MatcherAssert.assertThat(
+            json.split("\"ph\":\"B\"").length,
+            Matchers.equalTo(json.split("\"ph\":\"E\"").length)
+        );
+    }
+
+    /**
+     * TraceListener doesn't end spans that were never started.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void skipsEndsOfSpansNeverStarted() throws Exception {
+        final File file = new File(this.temp.newFolder(), "trace.json");
+        final ExecutionListener listener = new TraceListener(
+            new AbstractExecutionListener(), new Trace(file)
+        );
+        final MavenProject project = new MavenProject();
+        project.setGroupId("com.example");
+        project.setArtifactId("parent");
+        final Plugin plugin = new Plugin();
+        plugin.setArtifactId("rultor-maven-plugin");
+        final MojoExecution mojo = new MojoExecution(
+            plugin, "steps", "default"
+        );
+        listener.mojoSucceeded(
+            new FakeEvent(ExecutionEvent.Type.MojoSucceeded, project, mojo)
+        );
+        listener.projectSucceeded(
+            new FakeEvent(ExecutionEvent.Type.ProjectSucceeded, project, null)
+        );
+        listener.sessionEnded(
+            new FakeEvent(ExecutionEvent.Type.SessionEnded, null, null)
+        );
+        MatcherAssert.assertThat(
+            TraceListenerTest.read(file),
+            Matchers.not(Matchers.containsString("\"ph\":\"E\""))
+        );
+    }
+
+    /**
+     * Read file.
+     * @param file File
+     * @return Content
+     * @throws Exception If fails
+     */
+    private static String read(final File file) throws Exception {
+        final Reader reader = new InputStreamReader(
+            new FileInputStream(file), "UTF-8"
+        );
+        final StringBuilder text = new StringBuilder(0);
+        try {
+            final char[] buf = new char[1024];
+            while (true) {
+                final int len = reader.read(buf);
+                if (len < 0) {
+                    break;
+                }
+                text.append(buf, 0, len);
+            }
+        } finally {
+            reader.close();
+        }
+        return text.toString();
+    }
+
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test case for {@link WatchedSteps}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class WatchedStepsTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public final transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * WatchedSteps reports hanging steps and deadlocks.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void reportsHangingSteps() throws Exception {
+        final DomEmitter emitter = new DomEmitter();
+        final File dir = this.temp.newFolder();
+        final Steps steps = new WatchedSteps(
+            new LiveSteps(emitter), emitter, dir, 50L, 150L
+        );
+        final Lock first = new ReentrantLock();
+        final Lock second = new ReentrantLock();
+        final CountDownLatch locked = new CountDownLatch(2);
+        final Thread left = WatchedStepsTest.deadlock(first, second, locked);
+        final Thread right = WatchedStepsTest.deadlock(second, first, locked);
+        final Identity step = new Identity(1, "a:b/c:d:hang:e", "hang");
+        try {
+            steps.started(step);
+            Thread.sleep(500L);
+            steps.succeeded(step);
+        } finally {
+            steps.close();
+            left.interrupt();
+            right.interrupt();
+        }
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath(
+                    // @checkstyle LineLength (1 line)
+                    "//step[@id='watchdog-1-soft' and level='WARNING']/watchdog[@step='a:b/c:d:hang:e']/thread[@name='main']/frame"
+                ),
+                Matchers.hasXPath(
+                    "//step[@id='watchdog-1-hard' and level='SEVERE']"
+                ),
+                Matchers.hasXPath(
+                    "//step[@id='watchdog-1-hard']//deadlock[count(thread)=2]"
+                )
+            )
+        );
+        MatcherAssert.assertThat(
+            new File(dir, "rultor-watchdog-1-hard.txt").length(),
+            Matchers.greaterThan(0L)
+        );
+    }
+
+    /**
+     * Start a daemon thread, which locks one lock and waits for another.
+     * @param own Lock to take first
+     * @param other Lock to take then
+     * @param locked Latch to count down when the first lock is taken
+     * @return The thread
+     */
+    private static Thread deadlock(final Lock own, final Lock other,
+        final CountDownLatch locked) {
+        final Thread thread = new Thread(
+            new Runnable() {
+                @Override
+                public void run() {
+                    own.lock();
+                    try {
+                        locked.countDown();
+                        locked.await();
+                        other.lockInterruptibly();
+                        other.unlock();
+                    } catch (final InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        own.unlock();
+                    }
+                }
+            }
+        );
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+}
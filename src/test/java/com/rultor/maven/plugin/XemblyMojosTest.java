@@ -0,0 +1,308 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.execution.AbstractExecutionListener;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link XemblyMojos}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class XemblyMojosTest {
+
+    /**
+     * Number of modules.
+     */
+    private static final int MODULES = 64;
+
+    /**
+     * Goals in every module.
+     */
+    private static final String[] GOALS = {
+        "resources", "compile", "testResources", "testCompile", "test", "jar",
+    };
+
+    /**
+     * XemblyMojos reports every step once, in a parallel build where
+     * the same goals run in all modules.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void reportsParallelStepsLive() throws Exception {
+        final DomEmitter emitter = new DomEmitter();
+        XemblyMojosTest.replay(
+            new XemblyMojos(
+                new AbstractExecutionListener(), emitter,
+                new LiveSteps(emitter)
+            )
+        );
+        XemblyMojosTest.verify(emitter);
+    }
+
+    /**
+     * XemblyMojos reports every step once, in a parallel build where
+     * the same goals run in all modules, in compact mode.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void reportsParallelStepsCompact() throws Exception {
+        final DomEmitter emitter = new DomEmitter();
+        XemblyMojosTest.replay(
+            new XemblyMojos(
+                new AbstractExecutionListener(), emitter,
+                new CompactSteps(emitter, 0L)
+            )
+        );
+        XemblyMojosTest.verify(emitter);
+    }
+
+    /**
+     * XemblyMojos reports forked lifecycles inside mojos that
+     * requested them.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void reportsForks() throws Exception {
+        final DomEmitter emitter = new DomEmitter();
+        final ExecutionListener listener = new XemblyMojos(
+            new AbstractExecutionListener(), emitter, new LiveSteps(emitter)
+        );
+        final MavenProject project = new MavenProject();
+        project.setGroupId("com.example");
+        project.setArtifactId("core");
+        final Plugin plugin = new Plugin();
+        plugin.setGroupId("org.apache.maven.plugins");
+        plugin.setArtifactId("maven-source-plugin");
+        final MojoExecution jar = new MojoExecution(plugin, "jar", "sources");
+        final MojoExecution compile = new MojoExecution(
+            plugin, "compile", "default-compile"
+        );
+        listener.forkStarted(
+            new FakeEvent(ExecutionEvent.Type.ForkStarted, project, jar)
+        );
+        listener.forkedProjectStarted(
+            new FakeEvent(
+                ExecutionEvent.Type.ForkedProjectStarted, project, jar
+            )
+        );
+        listener.mojoStarted(
+            new FakeEvent(ExecutionEvent.Type.MojoStarted, project, compile)
+        );
+        listener.mojoSucceeded(
+            new FakeEvent(ExecutionEvent.Type.MojoSucceeded, project, compile)
+        );
+        listener.forkedProjectSucceeded(
+            new FakeEvent(
+                ExecutionEvent.Type.ForkedProjectSucceeded, project, jar
+            )
+        );
+        listener.forkSucceeded(
+            new FakeEvent(ExecutionEvent.Type.ForkSucceeded, project, jar)
+        );
+        listener.mojoStarted(
+            new FakeEvent(ExecutionEvent.Type.MojoStarted, project, jar)
+        );
+        listener.mojoSucceeded(
+            new FakeEvent(ExecutionEvent.Type.MojoSucceeded, project, jar)
+        );
+        listener.sessionEnded(
+            new FakeEvent(ExecutionEvent.Type.SessionEnded, project, null)
+        );
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath(
+                    // @checkstyle LineLength (1 line)
+                    "//step[summary='maven-source-plugin:jar']/fork[@mojo='maven-source-plugin:jar' and duration]/project[@id='com.example:core']"
+                ),
+                Matchers.hasXPath("//step[@id='forks' and duration]")
+            )
+        );
+    }
+
+    /**
+     * XemblyMojos reports forked projects that didn't complete
+     * without durations.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void reportsIncompleteForkedProjects() throws Exception {
+        final DomEmitter emitter = new DomEmitter();
+        final ExecutionListener listener = new XemblyMojos(
+            new AbstractExecutionListener(), emitter, new LiveSteps(emitter)
+        );
+        final MavenProject project = new MavenProject();
+        project.setGroupId("com.example");
+        project.setArtifactId("web");
+        final Plugin plugin = new Plugin();
+        plugin.setGroupId("org.apache.maven.plugins");
+        plugin.setArtifactId("maven-javadoc-plugin");
+        final MojoExecution jar = new MojoExecution(plugin, "jar", "docs");
+        listener.forkStarted(
+            new FakeEvent(ExecutionEvent.Type.ForkStarted, project, jar)
+        );
+        listener.forkedProjectStarted(
+            new FakeEvent(
+                ExecutionEvent.Type.ForkedProjectStarted, project, jar
+            )
+        );
+        listener.forkFailed(
+            new FakeEvent(ExecutionEvent.Type.ForkFailed, project, jar)
+        );
+        listener.mojoStarted(
+            new FakeEvent(ExecutionEvent.Type.MojoStarted, project, jar)
+        );
+        listener.mojoSucceeded(
+            new FakeEvent(ExecutionEvent.Type.MojoSucceeded, project, jar)
+        );
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath(
+                    // @checkstyle LineLength (1 line)
+                    "//fork/project[@id='com.example:web' and @status='incomplete']"
+                ),
+                Matchers.not(Matchers.hasXPath("//fork/project/@duration"))
+            )
+        );
+    }
+
+    /**
+     * Replay events of a parallel build, every module in its own task,
+     * with modules shuffled and run by many threads.
+     * @param listener Listener to feed
+     * @throws Exception If fails
+     */
+    private static void replay(final ExecutionListener listener)
+        throws Exception {
+        final List<Callable<Void>> tasks =
+            new ArrayList<Callable<Void>>(XemblyMojosTest.MODULES);
+        final CountDownLatch start = new CountDownLatch(1);
+        for (int idx = 0; idx < XemblyMojosTest.MODULES; ++idx) {
+            final MavenProject project = new MavenProject();
+            project.setGroupId("com.example");
+            project.setArtifactId(String.format("module-%d", idx));
+            tasks.add(
+                new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        XemblyMojosTest.module(listener, project);
+                        return null;
+                    }
+                }
+            );
+        }
+        Collections.shuffle(tasks, new Random(0L));
+        final ExecutorService svc = Executors.newFixedThreadPool(16);
+        final List<Future<Void>> futures =
+            new ArrayList<Future<Void>>(tasks.size());
+        for (final Callable<Void> task : tasks) {
+            futures.add(svc.submit(task));
+        }
+        start.countDown();
+        for (final Future<Void> future : futures) {
+            future.get(1L, TimeUnit.MINUTES);
+        }
+        svc.shutdown();
+    }
+
+    /**
+     * Events of one module.
+     * @param listener Listener to feed
+     * @param project The module
+     */
+    private static void module(final ExecutionListener listener,
+        final MavenProject project) {
+        final Plugin plugin = new Plugin();
+        plugin.setGroupId("org.apache.maven.plugins");
+        plugin.setArtifactId("maven-any-plugin");
+        for (final String goal : XemblyMojosTest.GOALS) {
+            final MojoExecution mojo = new MojoExecution(
+                plugin, goal, String.format("default-%s", goal)
+            );
+            listener.mojoStarted(
+                new FakeEvent(ExecutionEvent.Type.MojoStarted, project, mojo)
+            );
+            Thread.yield();
+            listener.mojoSucceeded(
+                new FakeEvent(
+                    ExecutionEvent.Type.MojoSucceeded, project, mojo
+                )
+            );
+        }
+    }
+
+    /**
+     * Every step has exactly one start, finish and duration.
+     * @param emitter Emitter with the snapshot
+     */
+    private static void verify(final DomEmitter emitter) {
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath(
+                    String.format(
+                        "/snapshot/steps[count(step)=%d]",
+                        XemblyMojosTest.MODULES * XemblyMojosTest.GOALS.length
+                    )
+                ),
+                Matchers.not(
+                    Matchers.hasXPath(
+                        // @checkstyle LineLength (1 line)
+                        "//step[count(start)!=1 or count(finish)!=1 or count(duration)!=1 or count(summary)!=1]"
+                    )
+                )
+            )
+        );
+    }
+
+}
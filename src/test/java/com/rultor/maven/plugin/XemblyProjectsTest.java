@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2009-2013, rultor.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the rultor.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rultor.maven.plugin;
+
+import java.util.Collections;
+import org.apache.maven.execution.AbstractExecutionListener;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.execution.ProjectDependencyGraph;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test case for {@link XemblyProjects}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 1.0
+ * @checkstyle MultipleStringLiterals (500 lines)
+ */
+public final class XemblyProjectsTest {
+
+    /**
+     * Goals in every module.
+     */
+    private static final String[] GOALS = {"compile", "test", "jar"};
+
+    /**
+     * XemblyProjects rolls mojos up into projects and reports only
+     * the slowest of them as steps.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void rollsUpMojosIntoProjects() throws Exception {
+        final DomEmitter emitter = new DomEmitter();
+        XemblyProjectsTest.replay(
+            new XemblyProjects(
+                new AbstractExecutionListener(), emitter,
+                new LiveSteps(emitter), Long.MAX_VALUE, 2
+            )
+        );
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath(
+                    "/snapshot/steps[count(step[contains(@id,'/')])=2]"
+                ),
+                Matchers.hasXPath(
+                    "/snapshot/steps[count(step[not(contains(@id,'/'))])=3]"
+                ),
+                Matchers.hasXPath(
+                    // @checkstyle LineLength (1 line)
+                    "//step[@id='com.example:m1']/mojos[count(mojo[@duration])=3]"
+                ),
+                Matchers.hasXPath(
+                    // @checkstyle LineLength (1 line)
+                    "//step[@id='com.example:m2']/mojos/mojo[.='maven-any-plugin:jar']"
+                )
+            )
+        );
+    }
+
+    /**
+     * XemblyProjects reports all mojos of projects above the threshold.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void reportsMojosOfSlowProjects() throws Exception {
+        final DomEmitter emitter = new DomEmitter();
+        XemblyProjectsTest.replay(
+            new XemblyProjects(
+                new AbstractExecutionListener(), emitter,
+                new LiveSteps(emitter), 0L, 0
+            )
+        );
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.allOf(
+                Matchers.hasXPath(
+                    "/snapshot/steps[count(step[contains(@id,'/')])=9]"
+                ),
+                Matchers.not(
+                    Matchers.hasXPath(
+                        // @checkstyle LineLength (1 line)
+                        "//step[count(start)!=1 or count(finish)!=1 or count(duration)!=1 or count(summary)!=1]"
+                    )
+                )
+            )
+        );
+    }
+
+    /**
+     * XemblyProjects lays failed projects over the critical path too.
+     * @throws Exception If something is wrong
+     */
+    @Test
+    public void includesFailedProjectsInCriticalPath() throws Exception {
+        final DomEmitter emitter = new DomEmitter();
+        final ExecutionListener listener = new XemblyProjects(
+            new AbstractExecutionListener(), emitter,
+            new LiveSteps(emitter), Long.MAX_VALUE, 2
+        );
+        final MavenProject project = new MavenProject();
+        project.setGroupId("com.example");
+        project.setArtifactId("broken");
+        listener.projectStarted(
+            new FakeEvent(ExecutionEvent.Type.ProjectStarted, project, null)
+        );
+        listener.projectFailed(
+            new FakeEvent(
+                ExecutionEvent.Type.ProjectFailed, project, null,
+                new IllegalStateException("doesn't compile")
+            )
+        );
+        final ProjectDependencyGraph graph =
+            Mockito.mock(ProjectDependencyGraph.class);
+        Mockito.doReturn(Collections.singletonList(project))
+            .when(graph).getSortedProjects();
+        final MavenSession session = Mockito.mock(MavenSession.class);
+        Mockito.doReturn(graph).when(session).getProjectDependencyGraph();
+        final ExecutionEvent end = Mockito.mock(ExecutionEvent.class);
+        Mockito.doReturn(session).when(end).getSession();
+        listener.sessionEnded(end);
+        MatcherAssert.assertThat(
+            emitter.snapshot(),
+            Matchers.hasXPath(
+                // @checkstyle LineLength (1 line)
+                "//step[@id='critical-path']//project[@id='com.example:broken' and @critical='true']"
+            )
+        );
+    }
+
+    /**
+     * Replay events of a build with three modules.
+     * @param listener Listener to feed
+     */
+    private static void replay(final ExecutionListener listener) {
+        final Plugin plugin = new Plugin();
+        plugin.setGroupId("org.apache.maven.plugins");
+        plugin.setArtifactId("maven-any-plugin");
+        for (int idx = 0; idx < 3; ++idx) {
+            final MavenProject project = new MavenProject();
+            project.setGroupId("com.example");
+            project.setArtifactId(String.format("m%d", idx));
+            listener.projectStarted(
+                new FakeEvent(
+                    ExecutionEvent.Type.ProjectStarted, project, null
+                )
+            );
+            for (final String goal : XemblyProjectsTest.GOALS) {
+                final MojoExecution mojo = new MojoExecution(
+                    plugin, goal, String.format("default-%s", goal)
+                );
+                listener.mojoStarted(
+                    new FakeEvent(
+                        ExecutionEvent.Type.MojoStarted, project, mojo
+                    )
+                );
+                listener.mojoSucceeded(
+                    new FakeEvent(
+                        ExecutionEvent.Type.MojoSucceeded, project, mojo
+                    )
+                );
+            }
+            listener.projectSucceeded(
+                new FakeEvent(
+                    ExecutionEvent.Type.ProjectSucceeded, project, null
+                )
+            );
+        }
+        final ExecutionEvent end = Mockito.mock(ExecutionEvent.class);
+        Mockito.doReturn(Mockito.mock(MavenSession.class))
+            .when(end).getSession();
+        listener.sessionEnded(end);
+    }
+
+}